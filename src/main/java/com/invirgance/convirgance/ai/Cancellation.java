@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.web.servlet.ServiceState;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cancels model requests made on behalf of a client that has gone away. The
+ * code serving the request installs a cancellation in the 
+ * <code>ServiceState</code> and calls {@link #cancel()} when it notices that 
+ * the client disconnected, for example from a servlet <code>AsyncListener</code>
+ * or after a failed write. Chat models pick up the cancellation when their
+ * binding is requested. Cancelling closes their connections to the server 
+ * right away, which stops generation and frees the connection and concurrency
+ * permits for other requests.
+ *
+ * @author jbanes
+ */
+public class Cancellation
+{
+    public static final String KEY = "cancellation";
+    
+    private volatile boolean cancelled;
+    private Set<AutoCloseable> resources = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Finds the cancellation installed for the request being served
+     * 
+     * @return the cancellation or null if none was installed
+     */
+    public static Cancellation current()
+    {
+        var cancellation = ServiceState.get(KEY);
+        
+        return (cancellation instanceof Cancellation) ? (Cancellation)cancellation : null;
+    }
+    
+    /**
+     * Creates a cancellation for the request being served and stores it in 
+     * the <code>ServiceState</code>
+     * 
+     * @return the new cancellation
+     */
+    public static Cancellation install()
+    {
+        var cancellation = new Cancellation();
+        
+        ServiceState.set(KEY, cancellation);
+        
+        return cancellation;
+    }
+    
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+    
+    /**
+     * Closes every registered resource. Resources registered afterward are 
+     * closed immediately.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        
+        for(var resource : resources) close(resource);
+    }
+    
+    public void register(AutoCloseable resource)
+    {
+        resources.add(resource);
+        
+        if(cancelled) close(resource);
+    }
+    
+    public void unregister(AutoCloseable resource)
+    {
+        resources.remove(resource);
+    }
+    
+    private void close(AutoCloseable resource)
+    {
+        if(!resources.remove(resource)) return;
+        
+        try
+        {
+            resource.close();
+        }
+        catch(Exception e)
+        {
+            // The client is gone, so there's no one left to report this to
+        }
+    }
+    
+    /**
+     * Ties the iterators of an iterable to this cancellation. Once cancelled,
+     * the iterators are closed and report that no records remain. Iterators
+     * are released from the cancellation when they are exhausted or closed.
+     * 
+     * @param <T> the type of record
+     * @param iterable the records to guard
+     * @return an iterable that stops when cancelled
+     */
+    public <T> Iterable<T> watch(Iterable<T> iterable)
+    {
+        return () -> {
+            if(cancelled) return Collections.emptyIterator();
+            
+            var iterator = new Watched<>(iterable.iterator());
+            
+            register(iterator);
+            
+            return iterator;
+        };
+    }
+    
+    private class Watched<T> implements CloseableIterator<T>
+    {
+        private Iterator<T> iterator;
+
+        public Watched(Iterator<T> iterator)
+        {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if(cancelled) return false;
+            
+            try
+            {
+                if(iterator.hasNext()) return true;
+            }
+            catch(RuntimeException e)
+            {
+                // Reading from a stream closed by cancel() fails
+                if(cancelled) return false;
+                
+                throw e;
+            }
+            
+            unregister(this);
+            
+            return false;
+        }
+
+        @Override
+        public T next()
+        {
+            return iterator.next();
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            unregister(this);
+            
+            if(iterator instanceof AutoCloseable closeable) closeable.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai;
+
+import com.invirgance.convirgance.json.JSONObject;
+
+/**
+ * Supplies an answer when the model can't be reached because its circuit 
+ * breaker is open. Implementations might return a cached answer or a message
+ * explaining that the service is degraded.
+ *
+ * @author jbanes
+ */
+public interface Fallback
+{
+    /**
+     * Produces the records returned in place of the model's response. The 
+     * records should have the same shape as the model's response.
+     * 
+     * @param parameters the parameters passed to the chat model
+     * @param message the request that would have been sent to the model
+     * @return the records to return to the caller
+     */
+    public Iterable<JSONObject> getFallback(JSONObject parameters, JSONObject message);
+}
@@ -43,6 +43,8 @@ public class OllamaConversationInitializer implements ChatModel
     private boolean stream = false; // Default to not stream
     private boolean raw = false;
     private boolean pull = false;
+    private boolean warm = false;
+    private long readyTimeout = 0;
     
     private String model = "llama3.2";
     private String chat;
@@ -54,16 +56,15 @@ public class OllamaConversationInitializer implements ChatModel
     private List<String> optionalSession;
     
     private Ollama engine = new Ollama();
-    private boolean pulled;
     
     private void pullModel()
     {
-        if(!pull) return;
-        if(pulled) return;
-
-        engine.ensureModel(model, true);
-
-        pulled = true;
+        if(pull) engine.getProvisioner().provision(model);
+    }
+    
+    private void warmModel()
+    {
+        if(warm) engine.getWarmer().register(model, false);
     }
     
     public Ollama getEngine()
@@ -76,10 +77,31 @@ public class OllamaConversationInitializer implements ChatModel
         return engine.getBaseUrl();
     }
 
+    /**
+     * The URL of the Ollama API. Requests can be balanced across multiple 
+     * servers by separating their URLs with commas.
+     * 
+     * @param baseUrl one or more comma separated URLs
+     */
     public void setBaseUrl(String baseUrl)
     {
         this.engine.setBaseUrl(baseUrl);
     }
+
+    public List<String> getBaseUrls()
+    {
+        return engine.getBaseUrls();
+    }
+
+    /**
+     * The list of Ollama servers to balance requests across
+     * 
+     * @param baseUrls the URLs of the Ollama APIs
+     */
+    public void setBaseUrls(List<String> baseUrls)
+    {
+        this.engine.setBaseUrls(baseUrls);
+    }
     
     public boolean isStream()
     {
@@ -108,10 +130,12 @@ public class OllamaConversationInitializer implements ChatModel
 
     public void setModel(String model)
     {
+        if(warm) engine.getWarmer().unregister(this.model);
+        
         this.model = model;
-        this.pulled = false;
         
         pullModel();
+        warmModel();
     }
 
     public boolean isPull()
@@ -119,6 +143,12 @@ public class OllamaConversationInitializer implements ChatModel
         return pull;
     }
 
+    /**
+     * Pulls the model onto the servers in the background if it is missing.
+     * Conversations wait for the pull to finish for up to the ready timeout.
+     * 
+     * @param pull true to pull a missing model
+     */
     public void setPull(boolean pull)
     {
         this.pull = pull;
@@ -126,6 +156,42 @@ public class OllamaConversationInitializer implements ChatModel
         pullModel();
     }
 
+    public long getReadyTimeout()
+    {
+        return readyTimeout;
+    }
+
+    /**
+     * The time in milliseconds a conversation waits for a model that is 
+     * still being pulled before failing with a 
+     * <code>ModelNotReadyException</code>. Defaults to 0, which waits until 
+     * the model is ready.
+     * 
+     * @param readyTimeout the time to wait for the model in milliseconds
+     */
+    public void setReadyTimeout(long readyTimeout)
+    {
+        this.readyTimeout = readyTimeout;
+    }
+
+    public boolean isWarm()
+    {
+        return warm;
+    }
+
+    /**
+     * Loads the model in the background and keeps it resident on the server
+     * so that the first conversation doesn't wait on a cold model load
+     * 
+     * @param warm true to keep the model warm
+     */
+    public void setWarm(boolean warm)
+    {
+        this.warm = warm;
+        
+        warmModel();
+    }
+
     public String getChat()
     {
         return chat;
@@ -196,9 +262,12 @@ public class OllamaConversationInitializer implements ChatModel
         var chat = template(this.chat, parameters);
         var system = this.system == null ? null : template(this.system, parameters);
         var template = this.template == null ? null : template(this.template, parameters);
+        var cancellation = Cancellation.current();
         
         Iterable<JSONObject> iterable;
         
+        if(pull) engine.getProvisioner().await(model, readyTimeout);
+        
         session.setAttribute(sessionKey, conversation);
         
         if(requiredSession != null)
@@ -224,6 +293,8 @@ public class OllamaConversationInitializer implements ChatModel
         
         iterable = engine.generate(model, chat, stream, null, null, null, system, template, raw);
         
+        if(cancellation != null) iterable = cancellation.watch(iterable);
+        
         return new IdentityTransformer() {
             @Override
             public JSONObject transform(JSONObject record) throws ConvirganceException
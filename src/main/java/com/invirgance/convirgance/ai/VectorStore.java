@@ -39,4 +39,31 @@ public interface VectorStore
     public String match(JSONArray<Double> embed);
     
     public JSONArray<JSONObject> matches(JSONArray<Double> embed);
+    
+    /**
+     * Adds a document using an embedding decoded into a primitive array.
+     * Stores that keep their vectors as <code>float[]</code> should override
+     * this to avoid boxing each value.
+     * 
+     * @param embed the embedding of the document
+     * @param document the text of the document
+     */
+    public default void register(float[] embed, String document)
+    {
+        register(box(embed), document);
+    }
+    
+    public default JSONArray<JSONObject> matches(float[] embed)
+    {
+        return matches(box(embed));
+    }
+    
+    private static JSONArray<Double> box(float[] embed)
+    {
+        var array = new JSONArray<Double>();
+        
+        for(float value : embed) array.add((double)value);
+        
+        return array;
+    }
 }
@@ -0,0 +1,203 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests in flight against a single resource. Callers
+ * over the limit wait in a bounded queue. Once the queue is full, or a caller
+ * has waited longer than the timeout, the request fails immediately rather 
+ * than piling up on the server.
+ *
+ * @author jbanes
+ */
+public class Bulkhead
+{
+    private String name;
+    private int limit;
+    private int queue;
+    private long timeout;
+    
+    private Semaphore permits;
+    private AtomicInteger waiting = new AtomicInteger();
+    
+    private AtomicLong acquired = new AtomicLong();
+    private AtomicLong rejected = new AtomicLong();
+    private AtomicLong timeouts = new AtomicLong();
+    private AtomicLong totalWait = new AtomicLong();
+    private AtomicLong maxWait = new AtomicLong();
+
+    /**
+     * Creates a new bulkhead
+     * 
+     * @param name used to identify the bulkhead in errors and statistics
+     * @param limit the number of requests allowed to run at once
+     * @param queue the number of requests allowed to wait for a permit
+     * @param timeout the maximum time in milliseconds a request will wait
+     */
+    public Bulkhead(String name, int limit, int queue, long timeout)
+    {
+        this.name = name;
+        this.limit = limit;
+        this.queue = queue;
+        this.timeout = timeout;
+        this.permits = new Semaphore(limit, true);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * The number of requests currently waiting for a permit
+     * 
+     * @return the current depth of the queue
+     */
+    public int getQueueDepth()
+    {
+        return waiting.get();
+    }
+    
+    /**
+     * The number of requests currently holding a permit
+     * 
+     * @return the number of active requests
+     */
+    public int getActive()
+    {
+        return limit - permits.availablePermits();
+    }
+    
+    private void recordWait(long wait)
+    {
+        long max;
+        
+        totalWait.addAndGet(wait);
+        
+        do
+        {
+            max = maxWait.get();
+        }
+        while(wait > max && !maxWait.compareAndSet(max, wait));
+    }
+    
+    /**
+     * Waits for a permit, failing with a <code>ConvirganceException</code> if
+     * the queue is full or the timeout expires first. Every successful call
+     * must be matched with a call to {@link #release()}.
+     */
+    public void acquire()
+    {
+        acquire(timeout);
+    }
+    
+    /**
+     * Waits for a permit for no longer than the given timeout. See 
+     * {@link #acquire()}.
+     * 
+     * @param timeout the maximum time in milliseconds to wait
+     */
+    public void acquire(long timeout)
+    {
+        long start = System.nanoTime();
+        
+        if(permits.tryAcquire())
+        {
+            acquired.incrementAndGet();
+            return;
+        }
+        
+        if(waiting.incrementAndGet() > queue)
+        {
+            waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            
+            throw new ConvirganceException("Too many requests waiting on " + name + ". " + queue + " requests are already queued.");
+        }
+        
+        try
+        {
+            if(!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+            {
+                timeouts.incrementAndGet();
+                
+                throw new ConvirganceException("Timed out after " + timeout + "ms waiting on " + name);
+            }
+            
+            acquired.incrementAndGet();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            
+            throw new ConvirganceException(e);
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+            recordWait(System.nanoTime() - start);
+        }
+    }
+    
+    public void release()
+    {
+        permits.release();
+    }
+    
+    /**
+     * Returns a snapshot of the bulkhead's state. Wait times are reported in
+     * milliseconds.
+     * 
+     * @return the current statistics for this bulkhead
+     */
+    public JSONObject getStatistics()
+    {
+        var statistics = new JSONObject();
+        var count = acquired.get() + timeouts.get();
+        
+        statistics.put("name", name);
+        statistics.put("limit", limit);
+        statistics.put("active", getActive());
+        statistics.put("queueDepth", getQueueDepth());
+        statistics.put("acquired", acquired.get());
+        statistics.put("rejected", rejected.get());
+        statistics.put("timeouts", timeouts.get());
+        statistics.put("averageWait", count > 0 ? totalWait.get() / count / 1000000.0 : 0.0);
+        statistics.put("maxWait", maxWait.get() / 1000000.0);
+        
+        return statistics;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONObject;
+
+/**
+ * Stops sending requests to a resource that keeps failing. While 
+ * <code>CLOSED</code>, the outcome of the most recent calls is tracked in a
+ * sliding window. Once the failure rate in the window reaches the threshold,
+ * the breaker opens and calls fail immediately with a 
+ * {@link CircuitOpenException} instead of waiting on a connection or timeout.
+ * After the open timeout a limited number of trial calls are let through in
+ * the <code>HALF_OPEN</code> state. The breaker closes if they all succeed
+ * and opens again if any of them fail.
+ *
+ * @author jbanes
+ */
+public class CircuitBreaker
+{
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    private String name;
+    private int failureRate;
+    private int minimumCalls;
+    private long openTimeout;
+    private int trialCalls;
+    
+    private State state = State.CLOSED;
+    private boolean[] window;
+    private int calls;
+    private int failures;
+    private int next;
+    private long opened;
+    private int trials;
+    private int succeeded;
+    
+    private long rejected;
+    private long transitions;
+
+    /**
+     * Creates a new circuit breaker
+     * 
+     * @param name used to identify the breaker in errors and statistics
+     * @param failureRate the percentage of failed calls that opens the breaker
+     * @param window the number of recent calls used to compute the failure rate
+     * @param minimumCalls the number of calls needed before the breaker can open
+     * @param openTimeout milliseconds to wait before allowing trial calls
+     * @param trialCalls the number of successful trial calls needed to close
+     */
+    public CircuitBreaker(String name, int failureRate, int window, int minimumCalls, long openTimeout, int trialCalls)
+    {
+        this.name = name;
+        this.failureRate = failureRate;
+        this.window = new boolean[Math.max(1, window)];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), this.window.length);
+        this.openTimeout = openTimeout;
+        this.trialCalls = Math.max(1, trialCalls);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+    
+    public synchronized State getState()
+    {
+        return state;
+    }
+    
+    private void transition(State state)
+    {
+        this.state = state;
+        this.calls = 0;
+        this.failures = 0;
+        this.next = 0;
+        this.trials = 0;
+        this.succeeded = 0;
+        this.transitions++;
+        
+        if(state == State.OPEN) opened = System.currentTimeMillis();
+    }
+    
+    /**
+     * Checks if a call would be let through without reserving it
+     * 
+     * @return true if the breaker is closed or ready for a trial call
+     */
+    public synchronized boolean isCallPermitted()
+    {
+        switch(state)
+        {
+            case OPEN:
+                return (System.currentTimeMillis() - opened >= openTimeout);
+                
+            case HALF_OPEN:
+                return (trials < trialCalls);
+                
+            default:
+                return true;
+        }
+    }
+    
+    /**
+     * Reserves a call, failing immediately if the breaker is open. Every 
+     * successful call must be followed by a call to {@link #success()} or 
+     * {@link #failure()}.
+     */
+    public synchronized void acquire()
+    {
+        if(state == State.OPEN && System.currentTimeMillis() - opened >= openTimeout) transition(State.HALF_OPEN);
+        
+        if(state == State.OPEN || (state == State.HALF_OPEN && trials >= trialCalls))
+        {
+            rejected++;
+            
+            throw new CircuitOpenException(name, getRetryAfter());
+        }
+        
+        if(state == State.HALF_OPEN) trials++;
+    }
+    
+    /**
+     * Gives back a reserved call without recording an outcome, such as when
+     * the call was cancelled before the server answered
+     */
+    public synchronized void release()
+    {
+        if(state == State.HALF_OPEN && trials > succeeded) trials--;
+    }
+    
+    /**
+     * The time until trial calls will be allowed through
+     * 
+     * @return milliseconds until the breaker is half open or 0 if it isn't open
+     */
+    public synchronized long getRetryAfter()
+    {
+        if(state != State.OPEN) return 0;
+        
+        return Math.max(0, openTimeout - (System.currentTimeMillis() - opened));
+    }
+    
+    private void record(boolean failed)
+    {
+        if(calls == window.length && window[next]) failures--;
+        if(calls < window.length) calls++;
+        if(failed) failures++;
+        
+        window[next] = failed;
+        next = (next + 1) % window.length;
+    }
+    
+    public synchronized void success()
+    {
+        switch(state)
+        {
+            case HALF_OPEN:
+                if(++succeeded >= trialCalls) transition(State.CLOSED);
+                break;
+                
+            case CLOSED:
+                record(false);
+                break;
+        }
+    }
+    
+    public synchronized void failure()
+    {
+        switch(state)
+        {
+            case HALF_OPEN:
+                transition(State.OPEN);
+                break;
+                
+            case CLOSED:
+                record(true);
+                
+                if(calls >= minimumCalls && failures * 100 >= failureRate * calls) transition(State.OPEN);
+                break;
+        }
+    }
+    
+    /**
+     * Lets trial calls through immediately if the breaker is open. Used when
+     * there is other evidence that the resource has recovered.
+     */
+    public synchronized void probe()
+    {
+        if(state == State.OPEN) transition(State.HALF_OPEN);
+    }
+    
+    /**
+     * Returns a snapshot of the breaker's state. The failure rate is reported
+     * as a percentage of the calls in the window.
+     * 
+     * @return the current statistics for this breaker
+     */
+    public synchronized JSONObject getStatistics()
+    {
+        var statistics = new JSONObject();
+        
+        statistics.put("name", name);
+        statistics.put("state", state.name());
+        statistics.put("calls", calls);
+        statistics.put("failures", failures);
+        statistics.put("failureRate", calls > 0 ? failures * 100.0 / calls : 0.0);
+        statistics.put("rejected", rejected);
+        statistics.put("transitions", transitions);
+        
+        return statistics;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+
+/**
+ * Thrown instead of sending a request when the circuit breaker for every 
+ * server that could handle the request is open
+ *
+ * @author jbanes
+ */
+public class CircuitOpenException extends ConvirganceException
+{
+    private long retryAfter;
+
+    public CircuitOpenException(String name, long retryAfter)
+    {
+        super("Circuit breaker for " + name + " is open. Retry in " + retryAfter + "ms.");
+        
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * The time until trial calls will be allowed through
+     * 
+     * @return milliseconds until the breaker is half open
+     */
+    public long getRetryAfter()
+    {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A time budget for a request that spans several calls to the engine. While
+ * a deadline is entered on a thread, requests created by the engine carry it
+ * with them. Waits for permits and connections, the HTTP timeouts, retries, 
+ * and reads of the response are all cut short when the budget runs out, 
+ * failing with a {@link DeadlineExceededException}.
+ * <br><br>
+ * Deadlines are entered with try-with-resources:
+ * <pre>
+ * try(var scope = new Deadline(8000).enter())
+ * {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author jbanes
+ */
+public class Deadline
+{
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+    
+    private long budget;
+    private long expires;
+
+    /**
+     * Creates a deadline that expires after the given time
+     * 
+     * @param budget the number of milliseconds allowed from now
+     */
+    public Deadline(long budget)
+    {
+        this.budget = budget;
+        this.expires = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget);
+    }
+    
+    /**
+     * The deadline entered on the current thread
+     * 
+     * @return the current deadline or null if there isn't one
+     */
+    public static Deadline current()
+    {
+        return current.get();
+    }
+
+    public long getBudget()
+    {
+        return budget;
+    }
+    
+    /**
+     * The time left before the deadline expires. Partial milliseconds are
+     * rounded up so that a wait for the remaining time never ends before the
+     * deadline expires.
+     * 
+     * @return the remaining time in milliseconds, or zero once expired
+     */
+    public long getRemaining()
+    {
+        var remaining = expires - System.nanoTime();
+        
+        return (remaining <= 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(remaining + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+    
+    public boolean isExpired()
+    {
+        return expires - System.nanoTime() <= 0;
+    }
+    
+    /**
+     * Fails if the deadline has expired
+     * 
+     * @param stage the part of the request about to run
+     * @throws DeadlineExceededException if no time remains
+     */
+    public void check(String stage) throws DeadlineExceededException
+    {
+        if(isExpired()) throw new DeadlineExceededException(stage, budget);
+    }
+    
+    /**
+     * Shortens a timeout so that it ends no later than the deadline
+     * 
+     * @param timeout a timeout in milliseconds, or zero or less for none
+     * @param stage the part of the request about to run
+     * @return the smaller of the timeout and the remaining time
+     * @throws DeadlineExceededException if no time remains
+     */
+    public long bound(long timeout, String stage) throws DeadlineExceededException
+    {
+        var remaining = getRemaining();
+        
+        if(remaining <= 0) throw new DeadlineExceededException(stage, budget);
+        
+        return (timeout <= 0) ? remaining : Math.min(timeout, remaining);
+    }
+    
+    /**
+     * Waits for an asynchronous call, giving up once the deadline expires. 
+     * Failures are unwrapped as in {@link Ollama#await(CompletableFuture)}.
+     * 
+     * @param <T> the type of result
+     * @param future the call to wait for
+     * @param stage the name of the call
+     * @return the result of the call
+     * @throws DeadlineExceededException if the deadline expires first
+     */
+    public <T> T await(CompletableFuture<T> future, String stage) throws DeadlineExceededException
+    {
+        try
+        {
+            return future.get(bound(0, stage), TimeUnit.MILLISECONDS);
+        }
+        catch(TimeoutException e)
+        {
+            throw new DeadlineExceededException(stage, budget);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            
+            throw new DeadlineExceededException(stage, budget);
+        }
+        catch(ExecutionException e)
+        {
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            
+            throw new ConvirganceException(e.getCause());
+        }
+    }
+    
+    /**
+     * Makes this the current deadline for the thread until the returned scope
+     * is closed
+     * 
+     * @return the scope to close when the work is done
+     */
+    public Scope enter()
+    {
+        var previous = current.get();
+        
+        current.set(this);
+        
+        return () -> {
+            if(previous == null) current.remove();
+            else current.set(previous);
+        };
+    }
+    
+    public static interface Scope extends AutoCloseable
+    {
+        @Override
+        public void close();
+    }
+}
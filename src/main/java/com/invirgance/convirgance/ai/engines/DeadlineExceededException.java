@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+
+/**
+ * Thrown when a request runs out of time before it completes. See
+ * {@link Deadline}.
+ *
+ * @author jbanes
+ */
+public class DeadlineExceededException extends ConvirganceException
+{
+    private String stage;
+    private long budget;
+
+    public DeadlineExceededException(String stage, long budget)
+    {
+        super("Deadline of " + budget + "ms exceeded during " + stage);
+        
+        this.stage = stage;
+        this.budget = budget;
+    }
+
+    /**
+     * The part of the request that was running when time ran out, such as
+     * <code>queue</code>, <code>generate</code>, or <code>tool calls</code>
+     * 
+     * @return the name of the stage
+     */
+    public String getStage()
+    {
+        return stage;
+    }
+
+    /**
+     * The total time in milliseconds the request was allowed
+     * 
+     * @return the budget of the deadline
+     */
+    public long getBudget()
+    {
+        return budget;
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers concurrent single-text embedding requests for the same model into 
+ * one call to the embed API. The first request for a model opens a batch 
+ * that is sent when the window elapses or as soon as it reaches the maximum
+ * batch size, whichever comes first. Each caller receives the embedding for
+ * its own text. The embed call runs under the {@link Deadline} of the caller
+ * that can wait the longest, so that no caller is cut short by another's.
+ *
+ * @author jbanes
+ */
+public class EmbeddingBatcher
+{
+    private Ollama engine;
+    private Map<String,Batch> batches = new HashMap<>();
+    
+    private int window = 5;
+    private int maxBatchSize = 32;
+    
+    private long requests;
+    private long sent;
+    private long largestBatch;
+    private long totalWait;
+    private long maxWait;
+
+    public EmbeddingBatcher(Ollama engine)
+    {
+        this.engine = engine;
+    }
+
+    /**
+     * How long in milliseconds a batch waits for more requests before it is
+     * sent. Setting the window to zero sends every request on its own. 
+     * Defaults to 5 milliseconds.
+     * 
+     * @return the batching window in milliseconds
+     */
+    public int getWindow()
+    {
+        return window;
+    }
+
+    public void setWindow(int window)
+    {
+        this.window = window;
+    }
+
+    /**
+     * The number of texts that causes a batch to be sent without waiting for
+     * the window to elapse. Defaults to 32.
+     * 
+     * @return the maximum number of texts per embed call
+     */
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+    
+    /**
+     * Queues a text to be embedded with the next batch for the model
+     * 
+     * @param model the embedding model
+     * @param input the text to embed
+     * @return the embedding once the batch completes
+     */
+    public CompletableFuture<JSONArray<Double>> queue(String model, String input)
+    {
+        var request = new Request(input, false);
+        
+        add(model, request);
+        
+        return request.future;
+    }
+    
+    /**
+     * Queues a text to be embedded into a primitive array. When every text in
+     * a batch is queued this way, the response is decoded without boxing. See
+     * {@link Ollama#getEmbedVectors(String, String...)}.
+     * 
+     * @param model the embedding model
+     * @param input the text to embed
+     * @return the embedding once the batch completes
+     */
+    public CompletableFuture<float[]> queueVector(String model, String input)
+    {
+        var request = new Request(input, true);
+        
+        add(model, request);
+        
+        return request.vector;
+    }
+    
+    private void add(String model, Request request)
+    {
+        Batch batch;
+        
+        synchronized(this)
+        {
+            requests++;
+            batch = batches.get(model);
+            
+            if(batch == null)
+            {
+                batch = new Batch(model);
+                
+                batches.put(model, batch);
+                
+                if(window > 0) batch.timer = engine.getScheduler().schedule(() -> flush(model), window, TimeUnit.MILLISECONDS);
+            }
+            
+            batch.requests.add(request);
+            
+            if(window > 0 && batch.requests.size() < maxBatchSize) batch = null;
+            else batches.remove(model);
+        }
+        
+        if(batch != null) dispatch(batch);
+    }
+    
+    /**
+     * Embeds a text as part of a batch, waiting for the batch to complete
+     * 
+     * @param model the embedding model
+     * @param input the text to embed
+     * @return the embedding
+     */
+    public JSONArray<Double> getEmbed(String model, String input)
+    {
+        return Ollama.await(queue(model, input));
+    }
+    
+    public float[] getEmbedVector(String model, String input)
+    {
+        return Ollama.await(queueVector(model, input));
+    }
+    
+    private void flush(String model)
+    {
+        Batch batch;
+        
+        synchronized(this)
+        {
+            batch = batches.remove(model);
+        }
+        
+        if(batch != null) dispatch(batch);
+    }
+    
+    private void dispatch(Batch batch)
+    {
+        var now = System.nanoTime();
+        var size = batch.requests.size();
+        var wait = 0L;
+        
+        if(batch.timer != null) batch.timer.cancel(false);
+        
+        for(var request : batch.requests) wait += now - request.queued;
+        
+        synchronized(this)
+        {
+            sent++;
+            largestBatch = Math.max(largestBatch, size);
+            totalWait += wait;
+            maxWait = Math.max(maxWait, now - batch.requests.get(0).queued);
+        }
+        
+        // Keep the call off the scheduler thread
+        engine.getExecutor().execute(() -> send(batch));
+    }
+    
+    private Deadline getDeadline(Batch batch)
+    {
+        Deadline latest = null;
+        
+        for(var request : batch.requests)
+        {
+            // Callers without a deadline wait as long as the call takes
+            if(request.deadline == null) return null;
+            
+            if(latest == null || request.deadline.getRemaining() > latest.getRemaining()) latest = request.deadline;
+        }
+        
+        return latest;
+    }
+    
+    private void send(Batch batch)
+    {
+        var inputs = new String[batch.requests.size()];
+        var boxed = false;
+        var deadline = getDeadline(batch);
+        JSONArray<JSONArray<Double>> embeddings;
+        float[][] vectors;
+        
+        for(int i=0; i<inputs.length; i++) 
+        {
+            inputs[i] = batch.requests.get(i).input;
+            boxed |= (batch.requests.get(i).vector == null);
+        }
+        
+        try(var scope = (deadline == null) ? null : deadline.enter())
+        {
+            if(!boxed)
+            {
+                vectors = engine.getEmbedVectors(batch.model, inputs);
+                
+                check(inputs.length, vectors.length);
+                
+                for(int i=0; i<inputs.length; i++) batch.requests.get(i).vector.complete(vectors[i]);
+                
+                return;
+            }
+            
+            embeddings = engine.getEmbed(batch.model, inputs);
+            
+            check(inputs.length, embeddings.size());
+            
+            for(int i=0; i<inputs.length; i++) batch.requests.get(i).complete(embeddings.get(i));
+        }
+        catch(Throwable t)
+        {
+            for(var request : batch.requests) request.fail(t);
+        }
+    }
+    
+    private void check(int expected, int received)
+    {
+        if(received != expected)
+        {
+            throw new ConvirganceException("Expected " + expected + " embeddings but received " + received);
+        }
+    }
+    
+    synchronized void cancel()
+    {
+        for(var batch : batches.values())
+        {
+            if(batch.timer != null) batch.timer.cancel(false);
+            
+            for(var request : batch.requests) request.fail(new ConvirganceException("Engine closed"));
+        }
+        
+        batches.clear();
+    }
+    
+    /**
+     * Reports the number of texts embedded, the number of embed calls used,
+     * the average and largest batch size, and the average and maximum time 
+     * in milliseconds that texts waited for their batch to be sent
+     * 
+     * @return the batching statistics
+     */
+    public synchronized JSONObject getStatistics()
+    {
+        var statistics = new JSONObject();
+        var pending = getPending();
+        var dispatched = requests - pending;
+        
+        statistics.put("requests", requests);
+        statistics.put("batches", sent);
+        statistics.put("averageBatchSize", (sent > 0) ? (double)dispatched / sent : 0.0);
+        statistics.put("largestBatch", largestBatch);
+        statistics.put("averageWait", (dispatched > 0) ? totalWait / 1000000.0 / dispatched : 0.0);
+        statistics.put("maxWait", maxWait / 1000000.0);
+        statistics.put("pending", pending);
+        
+        return statistics;
+    }
+    
+    private synchronized int getPending()
+    {
+        var pending = 0;
+        
+        for(var batch : batches.values()) pending += batch.requests.size();
+        
+        return pending;
+    }
+    
+    private static class Batch
+    {
+        String model;
+        List<Request> requests = new ArrayList<>();
+        ScheduledFuture<?> timer;
+
+        public Batch(String model)
+        {
+            this.model = model;
+        }
+    }
+    
+    private static class Request
+    {
+        String input;
+        Deadline deadline = Deadline.current();
+        long queued = System.nanoTime();
+        CompletableFuture<JSONArray<Double>> future;
+        CompletableFuture<float[]> vector;
+
+        public Request(String input, boolean primitive)
+        {
+            this.input = input;
+            
+            if(primitive) vector = new CompletableFuture<>();
+            else future = new CompletableFuture<>();
+        }
+        
+        void complete(JSONArray<Double> embed)
+        {
+            float[] values;
+            
+            if(future != null)
+            {
+                future.complete(embed);
+                return;
+            }
+            
+            values = new float[embed.size()];
+            
+            for(int i=0; i<values.length; i++) values[i] = (float)embed.getDouble(i);
+            
+            vector.complete(values);
+        }
+        
+        void fail(Throwable t)
+        {
+            if(future != null) future.completeExceptionally(t);
+            else vector.completeExceptionally(t);
+        }
+    }
+}
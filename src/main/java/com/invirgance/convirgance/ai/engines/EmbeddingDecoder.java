@@ -0,0 +1,440 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reads the embeddings from an <code>/api/embed</code> response straight into
+ * primitive arrays. The response is scanned a byte at a time and numbers are 
+ * parsed without creating strings or boxed values, so decoding allocates 
+ * little more than the returned vectors. Other fields in the response are 
+ * skipped.
+ *
+ * @author jbanes
+ */
+class EmbeddingDecoder
+{
+    private static final double[] POWERS = new double[23];
+    private static final byte[] KEY = {'e','m','b','e','d','d','i','n','g','s'};
+    
+    private InputStream in;
+    private byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+    
+    private float[] row = new float[1024];
+    private int rows;
+    
+    static
+    {
+        POWERS[0] = 1;
+        
+        for(int i=1; i<POWERS.length; i++) POWERS[i] = POWERS[i-1] * 10;
+    }
+
+    public EmbeddingDecoder(InputStream in)
+    {
+        this.in = in;
+    }
+    
+    /**
+     * Decodes each embedding into its own array
+     * 
+     * @return the embeddings in the order of the inputs
+     * @throws IOException if the response can't be read
+     */
+    public float[][] decode() throws IOException
+    {
+        var embeddings = new ArrayList<float[]>();
+        
+        parse((count) -> embeddings.add(Arrays.copyOf(row, count)), null, 0);
+        
+        return embeddings.toArray(float[][]::new);
+    }
+    
+    /**
+     * Decodes the embeddings one after another into a caller supplied buffer
+     * 
+     * @param target the buffer to fill
+     * @param offset the position in the buffer of the first value
+     * @return the number of values written
+     * @throws IOException if the response can't be read
+     */
+    public int decode(float[] target, int offset) throws IOException
+    {
+        return parse(null, target, offset) - offset;
+    }
+    
+    /**
+     * The number of embeddings read by the last call to decode
+     * 
+     * @return the number of embeddings
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+    
+    private int parse(Row handler, float[] target, int offset) throws IOException
+    {
+        var found = false;
+        int c;
+        
+        rows = 0;
+        
+        expect('{');
+        
+        if(skipWhitespace() == '}') 
+        {
+            read();
+        }
+        else
+        {
+            do
+            {
+                if(isKey())
+                {
+                    expect(':');
+                    
+                    offset = parseEmbeddings(handler, target, offset);
+                    found = true;
+                }
+                else
+                {
+                    expect(':');
+                    skipValue();
+                }
+                
+                c = read(skipWhitespace());
+                
+                if(c != ',' && c != '}') throw error("Expected , or } but found", c);
+            }
+            while(c == ',');
+        }
+        
+        // Reading to the end hands the connection back for reuse
+        while(read() >= 0);
+        
+        if(!found) throw new ConvirganceException("Response does not contain embeddings");
+        
+        return offset;
+    }
+    
+    private int parseEmbeddings(Row handler, float[] target, int offset) throws IOException
+    {
+        int count;
+        int c;
+        
+        expect('[');
+        
+        if(skipWhitespace() == ']')
+        {
+            read();
+            return offset;
+        }
+        
+        do
+        {
+            expect('[');
+            
+            count = 0;
+            
+            if(skipWhitespace() != ']')
+            {
+                do
+                {
+                    skipWhitespace();
+                    
+                    if(target != null)
+                    {
+                        if(offset >= target.length) throw new ConvirganceException("Buffer of " + target.length + " values is too small for the embeddings");
+                        
+                        target[offset++] = (float)parseNumber();
+                    }
+                    else
+                    {
+                        if(count >= row.length) row = Arrays.copyOf(row, row.length * 2);
+                        
+                        row[count] = (float)parseNumber();
+                    }
+                    
+                    count++;
+                    c = read(skipWhitespace());
+                    
+                    if(c != ',' && c != ']') throw error("Expected , or ] but found", c);
+                }
+                while(c == ',');
+            }
+            else
+            {
+                read();
+            }
+            
+            if(handler != null) handler.completed(count);
+            
+            rows++;
+            c = read(skipWhitespace());
+            
+            if(c != ',' && c != ']') throw error("Expected , or ] but found", c);
+        }
+        while(c == ',');
+        
+        return offset;
+    }
+    
+    private double parseNumber() throws IOException
+    {
+        var negative = false;
+        var mantissa = 0L;
+        var digits = 0;
+        var exponent = 0;
+        var power = 0;
+        var negativePower = false;
+        var value = 0.0;
+        int c = peek();
+        
+        if(c == '-')
+        {
+            negative = true;
+            position++;
+            c = peek();
+        }
+        
+        if(c < '0' || c > '9') throw error("Expected a number but found", c);
+        
+        while(c >= '0' && c <= '9')
+        {
+            if(digits < 18) mantissa = mantissa * 10 + (c - '0');
+            else exponent++;
+            
+            if(mantissa > 0) digits++;
+            
+            position++;
+            c = peek();
+        }
+        
+        if(c == '.')
+        {
+            position++;
+            c = peek();
+            
+            while(c >= '0' && c <= '9')
+            {
+                if(digits < 18)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent--;
+                }
+                
+                if(mantissa > 0) digits++;
+                
+                position++;
+                c = peek();
+            }
+        }
+        
+        if(c == 'e' || c == 'E')
+        {
+            position++;
+            c = peek();
+            
+            if(c == '-' || c == '+')
+            {
+                negativePower = (c == '-');
+                position++;
+                c = peek();
+            }
+            
+            while(c >= '0' && c <= '9')
+            {
+                if(power < 10000) power = power * 10 + (c - '0');
+                
+                position++;
+                c = peek();
+            }
+            
+            exponent += negativePower ? -power : power;
+        }
+        
+        value = mantissa;
+        
+        // Multiplying or dividing by an exact power of ten rounds only once
+        if(mantissa == 0) value = 0;
+        else if(exponent >= 0 && exponent < POWERS.length) value *= POWERS[exponent];
+        else if(exponent < 0 && -exponent < POWERS.length) value /= POWERS[-exponent];
+        else value *= Math.pow(10, exponent);
+        
+        return negative ? -value : value;
+    }
+    
+    private boolean isKey() throws IOException
+    {
+        var index = 0;
+        var match = true;
+        int c;
+        
+        expect('"');
+        
+        while((c = read()) != '"')
+        {
+            if(c < 0) throw error("Unexpected end of response", c);
+            
+            if(c == '\\')
+            {
+                read();
+                match = false;
+            }
+            else if(index >= KEY.length || KEY[index++] != c)
+            {
+                match = false;
+            }
+        }
+        
+        return match && index == KEY.length;
+    }
+    
+    private void skipString() throws IOException
+    {
+        int c;
+        
+        expect('"');
+        
+        while((c = read()) != '"')
+        {
+            if(c < 0) throw error("Unexpected end of response", c);
+            if(c == '\\') read();
+        }
+    }
+    
+    private void skipValue() throws IOException
+    {
+        int c = skipWhitespace();
+        
+        switch(c)
+        {
+            case '"':
+                skipString();
+                break;
+                
+            case '{':
+            case '[':
+                skipContainer();
+                break;
+                
+            default:
+                while(c >= 0 && c != ',' && c != '}' && c != ']' && c > ' ')
+                {
+                    position++;
+                    c = peek();
+                }
+        }
+    }
+    
+    private void skipContainer() throws IOException
+    {
+        var depth = 0;
+        int c;
+        
+        do
+        {
+            c = skipWhitespace();
+            
+            if(c < 0) throw error("Unexpected end of response", c);
+            
+            if(c == '"')
+            {
+                skipString();
+                continue;
+            }
+            
+            if(c == '{' || c == '[') depth++;
+            if(c == '}' || c == ']') depth--;
+            
+            position++;
+        }
+        while(depth > 0);
+    }
+    
+    private int skipWhitespace() throws IOException
+    {
+        int c = peek();
+        
+        while(c == ' ' || c == '\n' || c == '\r' || c == '\t')
+        {
+            position++;
+            c = peek();
+        }
+        
+        return c;
+    }
+    
+    private void expect(int expected) throws IOException
+    {
+        var c = read(skipWhitespace());
+        
+        if(c != expected) throw error("Expected " + (char)expected + " but found", c);
+    }
+    
+    private int peek() throws IOException
+    {
+        if(position < limit) return buffer[position] & 0xFF;
+        if(limit < 0) return -1;
+        
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        
+        return (limit > 0) ? buffer[0] & 0xFF : peek();
+    }
+    
+    private int read() throws IOException
+    {
+        var c = peek();
+        
+        if(c >= 0) position++;
+        
+        return c;
+    }
+    
+    private int read(int peeked) throws IOException
+    {
+        if(peeked >= 0) position++;
+        
+        return peeked;
+    }
+    
+    private ConvirganceException error(String message, int c)
+    {
+        return new ConvirganceException(message + " " + ((c < 0) ? "end of response" : "'" + (char)c + "'") + " in embedding response");
+    }
+    
+    private static interface Row
+    {
+        public void completed(int count);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the server for each request made by an {@link Ollama} engine. The 
+ * least loaded healthy server whose {@link CircuitBreaker} permits the call 
+ * is chosen, preferring servers that already have the model loaded when 
+ * model affinity is enabled. The background health checks keep the health
+ * and loaded models of each server current.
+ *
+ * @author jbanes
+ */
+class EndpointSelector
+{
+    private Ollama engine;
+    private AtomicInteger rotation = new AtomicInteger();
+
+    public EndpointSelector(Ollama engine)
+    {
+        this.engine = engine;
+    }
+    
+    /**
+     * Chooses a server for a request
+     * 
+     * @param model the model the request runs, or null
+     * @param exclude servers that have already been tried
+     * @return the server to use, or null if none is available
+     */
+    public OllamaEndpoint select(String model, Collection<OllamaEndpoint> exclude)
+    {
+        var endpoints = engine.getEndpoints();
+        var start = rotation.getAndIncrement();
+        OllamaEndpoint selected = null;
+        OllamaEndpoint endpoint;
+        
+        if(engine.isModelAffinity() && model != null && endpoints.size() > 1)
+        {
+            for(int i=0; i<endpoints.size(); i++)
+            {
+                endpoint = endpoints.get(Math.floorMod(start + i, endpoints.size()));
+
+                if(!endpoint.isHealthy() || exclude.contains(endpoint) || !endpoint.hasModel(model)) continue;
+                if(!isPermitted(endpoint, model)) continue;
+                if(selected == null || endpoint.getOutstanding() < selected.getOutstanding()) selected = endpoint;
+            }
+            
+            if(selected != null) return selected;
+        }
+        
+        // Rotating the starting point spreads ties across the servers
+        for(int i=0; i<endpoints.size(); i++)
+        {
+            endpoint = endpoints.get(Math.floorMod(start + i, endpoints.size()));
+            
+            if(!endpoint.isHealthy() || exclude.contains(endpoint) || !isPermitted(endpoint, model)) continue;
+            if(selected == null || endpoint.getOutstanding() < selected.getOutstanding()) selected = endpoint;
+        }
+        
+        if(selected != null) return selected;
+        
+        // Nothing is known to be healthy. Better to try than to fail outright.
+        for(int i=0; i<endpoints.size(); i++)
+        {
+            endpoint = endpoints.get(Math.floorMod(start + i, endpoints.size()));
+            
+            if(exclude.contains(endpoint) || !isPermitted(endpoint, model)) continue;
+            if(selected == null || endpoint.getOutstanding() < selected.getOutstanding()) selected = endpoint;
+        }
+        
+        return selected;
+    }
+    
+    public CircuitBreaker getBreaker(OllamaEndpoint endpoint, String model)
+    {
+        var rate = engine.getCircuitFailureRate();
+        
+        if(rate < 1) return null;
+        
+        return endpoint.getBreaker(model, name -> new CircuitBreaker(name, rate, engine.getCircuitWindow(), engine.getCircuitMinimumCalls(), engine.getCircuitOpenTimeout(), 1));
+    }
+    
+    public boolean isPermitted(OllamaEndpoint endpoint, String model)
+    {
+        var breaker = getBreaker(endpoint, model);
+        
+        return (breaker == null || breaker.isCallPermitted());
+    }
+    
+    /**
+     * Asks each server which models it has loaded. Servers that don't answer
+     * are marked unhealthy until a later check succeeds.
+     */
+    public void checkHealth()
+    {
+        HttpRequest request;
+        
+        for(var endpoint : engine.getEndpoints())
+        {
+            try
+            {
+                request = HttpRequest.newBuilder(new URI(endpoint.getBaseUrl() + "/ps"))
+                                     .timeout(Duration.ofMillis(engine.getConnectTimeout()))
+                                     .GET()
+                                     .build();
+
+                engine.getClient().sendAsync(request, BodyHandlers.ofString())
+                           .whenComplete((response, error) -> {
+                               var success = (error == null && response.statusCode() < 400);
+                               JSONArray<JSONObject> models = null;
+                               
+                               if(success)
+                               {
+                                   try
+                                   {
+                                       models = new JSONObject(response.body()).getJSONArray("models");
+                                   }
+                                   catch(RuntimeException e)
+                                   {
+                                       // Not an answer from Ollama, such as a proxy's error page
+                                   }
+                               }
+                               
+                               if(models != null) endpoint.loaded(models);
+                               
+                               endpoint.checked(models != null);
+                           });
+            }
+            catch(Exception e)
+            {
+                endpoint.checked(false);
+            }
+        }
+    }
+}
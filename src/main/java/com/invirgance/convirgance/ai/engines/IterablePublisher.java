@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the records of an iterable to reactive subscribers. Each 
+ * subscription gets its own iterator, so each subscriber sends its own 
+ * request. Nothing is read until the subscriber requests records, and no 
+ * more records are read than have been requested. Reads block on the 
+ * executor rather than the subscriber's thread. Cancelling closes the 
+ * iterator, which for an engine response closes the connection and stops the
+ * server from generating further tokens.
+ *
+ * @param <T> the type of record published
+ * @author jbanes
+ */
+public class IterablePublisher<T> implements Flow.Publisher<T>
+{
+    private Iterable<T> iterable;
+    private Executor executor;
+
+    public IterablePublisher(Iterable<T> iterable, Executor executor)
+    {
+        this.iterable = iterable;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber)
+    {
+        Objects.requireNonNull(subscriber);
+        
+        subscriber.onSubscribe(new IteratorSubscription(subscriber));
+    }
+    
+    private class IteratorSubscription implements Flow.Subscription
+    {
+        private Flow.Subscriber<? super T> subscriber;
+        private volatile Iterator<T> iterator;
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+        
+        private AtomicLong demand = new AtomicLong();
+        private AtomicInteger work = new AtomicInteger();
+        private AtomicBoolean closed = new AtomicBoolean();
+
+        public IteratorSubscription(Flow.Subscriber<? super T> subscriber)
+        {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long count)
+        {
+            if(count < 1) error = new IllegalArgumentException("Requested " + count + " records. Requests must be positive.");
+            else demand.getAndAccumulate(count, (current, added) -> (current + added < 0) ? Long.MAX_VALUE : current + added);
+            
+            schedule();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            
+            // Closing from here unblocks a read waiting on the server
+            close();
+        }
+        
+        private void close()
+        {
+            var iterator = this.iterator;
+            
+            if(iterator == null || !(iterator instanceof AutoCloseable closeable)) return;
+            if(closed.getAndSet(true)) return;
+            
+            try
+            {
+                closeable.close();
+            }
+            catch(Exception e)
+            {
+                // Nothing is left to read, so there is no one to report it to
+            }
+        }
+        
+        private void schedule()
+        {
+            if(work.getAndIncrement() != 0) return;
+            
+            try
+            {
+                executor.execute(this::drain);
+            }
+            catch(RuntimeException e)
+            {
+                fail(e);
+            }
+        }
+        
+        private void fail(Throwable error)
+        {
+            if(cancelled) return;
+            
+            cancelled = true;
+            
+            close();
+            subscriber.onError(error);
+        }
+        
+        private void drain()
+        {
+            var missed = 1;
+            
+            do
+            {
+                try
+                {
+                    if(cancelled) return;
+                    
+                    if(error != null)
+                    {
+                        fail(error);
+                        return;
+                    }
+                    
+                    while(demand.get() > 0 && !cancelled)
+                    {
+                        if(iterator == null) iterator = iterable.iterator();
+                        if(cancelled) break; // Cancelled while opening
+                        
+                        if(!iterator.hasNext())
+                        {
+                            cancelled = true;
+                            
+                            close();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        
+                        var record = iterator.next();
+                        
+                        if(demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                        
+                        subscriber.onNext(record);
+                    }
+                    
+                    if(cancelled)
+                    {
+                        close();
+                        return;
+                    }
+                }
+                catch(Throwable t)
+                {
+                    fail(t);
+                    return;
+                }
+                
+                missed = work.addAndGet(-missed);
+            }
+            while(missed != 0);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serializes a JSON value as UTF-8 bytes on demand. Nothing is serialized until
+ * it is read, so a large request body never exists in memory as a complete
+ * <code>String</code> or <code>byte[]</code>. Only a few kilobytes of 
+ * characters are held at any one time, and the encoder and its buffers are
+ * pooled and reused across requests.
+ *
+ * @author jbanes
+ */
+class JSONBodyStream extends InputStream
+{
+    private static final int MAX_POOLED = 64;
+    private static final ConcurrentLinkedQueue<Buffers> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+    
+    private ArrayDeque<Frame> stack = new ArrayDeque<>();
+    private Buffers buffers;
+    
+    private Object value;
+    private boolean pending;
+    
+    private String string;
+    private int offset;
+    private boolean raw;
+    private boolean key;
+    private Object keyValue;
+    
+    private boolean finished;
+    private boolean flushed;
+    private boolean closed;
+    
+    private LongAdder written;
+
+    public JSONBodyStream(Object value)
+    {
+        this(value, null);
+    }
+    
+    /**
+     * @param value the value to serialize
+     * @param written counts the bytes read from the stream, or null
+     */
+    public JSONBodyStream(Object value, LongAdder written)
+    {
+        this.value = value;
+        this.pending = true;
+        this.written = written;
+    }
+    
+    private static Buffers borrow()
+    {
+        var buffers = pool.poll();
+        
+        if(buffers == null) return new Buffers();
+        
+        pooled.decrementAndGet();
+        
+        return buffers;
+    }
+    
+    private static void giveBack(Buffers buffers)
+    {
+        if(pooled.incrementAndGet() > MAX_POOLED)
+        {
+            pooled.decrementAndGet();
+            return;
+        }
+        
+        buffers.reset();
+        pool.offer(buffers);
+    }
+    
+    private void beginValue(Object value, CharBuffer out)
+    {
+        if(value == null) out.put("null");
+        else if(value instanceof Boolean) out.put(value.toString());
+        else if(value instanceof Double && !Double.isFinite((Double)value)) out.put("null");
+        else if(value instanceof Float && !Float.isFinite((Float)value)) out.put("null");
+        else if(value instanceof Number) beginNumber(value.toString(), out);
+        else if(value instanceof Map) 
+        {
+            out.put('{');
+            stack.push(new Frame(((Map)value).entrySet().iterator(), true));
+        }
+        else if(value instanceof Iterable) 
+        {
+            out.put('[');
+            stack.push(new Frame(((Iterable)value).iterator(), false));
+        }
+        else if(value instanceof Object[]) 
+        {
+            out.put('[');
+            stack.push(new Frame(Arrays.asList((Object[])value).iterator(), false));
+        }
+        else if(value instanceof Enum) beginString(((Enum)value).name(), out);
+        else beginString(value.toString(), out);
+    }
+    
+    private void beginString(String value, CharBuffer out)
+    {
+        out.put('"');
+        
+        string = value;
+        offset = 0;
+    }
+    
+    private void beginNumber(String value, CharBuffer out)
+    {
+        // BigDecimal and BigInteger can be longer than the room left in the buffer
+        if(value.length() <= 32)
+        {
+            out.put(value);
+            return;
+        }
+        
+        string = value;
+        offset = 0;
+        raw = true;
+    }
+    
+    private void writeRaw(CharBuffer out)
+    {
+        var length = Math.min(out.remaining(), string.length() - offset);
+        
+        out.put(string, offset, offset + length);
+        offset += length;
+        
+        if(offset < string.length()) return;
+        
+        string = null;
+        raw = false;
+    }
+    
+    private void writeString(CharBuffer out)
+    {
+        char c;
+        
+        if(raw)
+        {
+            writeRaw(out);
+            return;
+        }
+        
+        // Leave room for the longest escape sequence
+        while(offset < string.length() && out.remaining() >= 6)
+        {
+            c = string.charAt(offset++);
+            
+            switch(c)
+            {
+                case '"': out.put("\\\""); break;
+                case '\\': out.put("\\\\"); break;
+                case '\n': out.put("\\n"); break;
+                case '\r': out.put("\\r"); break;
+                case '\t': out.put("\\t"); break;
+                case '\b': out.put("\\b"); break;
+                case '\f': out.put("\\f"); break;
+                default:
+                    if(c < 0x20)
+                    {
+                        out.put("\\u00");
+                        out.put(Character.forDigit(c >> 4, 16));
+                        out.put(Character.forDigit(c & 0xF, 16));
+                    }
+                    else
+                    {
+                        out.put(c);
+                    }
+            }
+        }
+        
+        if(offset < string.length() || out.remaining() < 2) return;
+        
+        out.put('"');
+        string = null;
+        
+        if(key)
+        {
+            out.put(':');
+            
+            key = false;
+            value = keyValue;
+            keyValue = null;
+            pending = true;
+        }
+    }
+    
+    private void next(CharBuffer out)
+    {
+        var frame = stack.peek();
+        Map.Entry entry;
+        
+        if(string != null)
+        {
+            writeString(out);
+        }
+        else if(pending)
+        {
+            pending = false;
+            
+            beginValue(value, out);
+            
+            value = null;
+        }
+        else if(frame == null)
+        {
+            finished = true;
+        }
+        else if(frame.iterator.hasNext())
+        {
+            if(frame.first) frame.first = false;
+            else out.put(',');
+            
+            if(frame.map)
+            {
+                entry = (Map.Entry)frame.iterator.next();
+                key = true;
+                keyValue = entry.getValue();
+                
+                beginString(String.valueOf(entry.getKey()), out);
+            }
+            else
+            {
+                value = frame.iterator.next();
+                pending = true;
+            }
+        }
+        else
+        {
+            out.put(frame.map ? '}' : ']');
+            stack.pop();
+        }
+    }
+    
+    private boolean fill()
+    {
+        var chars = buffers.chars;
+        var bytes = buffers.bytes;
+        
+        if(flushed) return false;
+        
+        bytes.clear();
+        
+        while(!finished && chars.remaining() >= 64) next(chars);
+        
+        chars.flip();
+        buffers.encoder.encode(chars, bytes, finished);
+        chars.compact();
+        
+        if(finished && chars.position() == 0) 
+        {
+            buffers.encoder.flush(bytes);
+            
+            flushed = true;
+        }
+        
+        bytes.flip();
+        
+        return true;
+    }
+    
+    @Override
+    public int read(byte[] data, int offset, int length)
+    {
+        if(closed) return -1;
+        if(buffers == null) buffers = borrow();
+        
+        while(!buffers.bytes.hasRemaining())
+        {
+            if(!fill())
+            {
+                close();
+                
+                return -1;
+            }
+        }
+        
+        length = Math.min(length, buffers.bytes.remaining());
+        
+        buffers.bytes.get(data, offset, length);
+        
+        if(written != null) written.add(length);
+        
+        return length;
+    }
+    
+    @Override
+    public int read()
+    {
+        if(closed) return -1;
+        if(buffers == null) buffers = borrow();
+        
+        while(!buffers.bytes.hasRemaining())
+        {
+            if(!fill())
+            {
+                close();
+                
+                return -1;
+            }
+        }
+        
+        if(written != null) written.increment();
+        
+        return buffers.bytes.get() & 0xFF;
+    }
+
+    @Override
+    public void close()
+    {
+        if(closed) return;
+        
+        closed = true;
+        stack.clear();
+        
+        if(buffers != null) giveBack(buffers);
+        
+        buffers = null;
+    }
+    
+    private static class Frame
+    {
+        Iterator iterator;
+        boolean map;
+        boolean first = true;
+
+        public Frame(Iterator iterator, boolean map)
+        {
+            this.iterator = iterator;
+            this.map = map;
+        }
+    }
+    
+    private static class Buffers
+    {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(4096);
+        ByteBuffer bytes = ByteBuffer.allocate(16384); // Worst case of 3 bytes per char
+
+        public Buffers()
+        {
+            bytes.flip();
+        }
+        
+        void reset()
+        {
+            encoder.reset();
+            chars.clear();
+            bytes.clear();
+            bytes.flip();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the latency of the most recent requests so that percentiles can be
+ * computed cheaply. Older samples are overwritten once the window is full.
+ *
+ * @author jbanes
+ */
+class LatencyWindow
+{
+    private static final int MINIMUM_SAMPLES = 20;
+    
+    private long[] samples;
+    private int count;
+    private int next;
+
+    public LatencyWindow(int size)
+    {
+        this.samples = new long[size];
+    }
+    
+    /**
+     * Records a sample
+     * 
+     * @param nanos the latency of a request in nanoseconds
+     */
+    public synchronized void record(long nanos)
+    {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        
+        if(count < samples.length) count++;
+    }
+    
+    public synchronized int getCount()
+    {
+        return count;
+    }
+    
+    /**
+     * Computes a percentile of the recorded latencies
+     * 
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in milliseconds or -1 if there are too few samples
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] sorted;
+        int index;
+        
+        synchronized(this)
+        {
+            if(count < MINIMUM_SAMPLES) return -1;
+            
+            sorted = Arrays.copyOf(samples, count);
+        }
+        
+        Arrays.sort(sorted);
+        
+        index = (int)Math.ceil(percentile / 100 * sorted.length) - 1;
+        
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000000;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the answers to metadata calls such as show, tags, and ps for a
+ * limited time. Lookups that find nothing are remembered as well so that 
+ * repeated checks for a missing model don't go back to the server. Each key
+ * is loaded by one caller at a time, and a load that finishes after its key
+ * was invalidated is never cached.
+ *
+ * @author jbanes
+ */
+class MetadataCache
+{
+    private static final Object MISSING = new Object();
+    
+    private Map<String,Entry> entries = new ConcurrentHashMap<>();
+    private volatile long ttl;
+    
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+
+    public MetadataCache(long ttl)
+    {
+        this.ttl = ttl;
+    }
+
+    public long getTtl()
+    {
+        return ttl;
+    }
+
+    public void setTtl(long ttl)
+    {
+        this.ttl = ttl;
+        
+        entries.clear();
+    }
+    
+    /**
+     * Returns the cached value or loads it. Null values are cached. Failures
+     * are not.
+     */
+    public <T> T get(String key, Supplier<T> loader)
+    {
+        return get(key, ttl, loader);
+    }
+    
+    public <T> T get(String key, long ttl, Supplier<T> loader)
+    {
+        var entry = entries.get(key);
+        var now = System.nanoTime();
+        var created = new Entry();
+        Object value;
+        
+        if(ttl <= 0) return loader.get();
+        
+        // Only one caller loads a key. Everyone else waits on its result.
+        while(entry == null || entry.isExpired(now))
+        {
+            if(entry == null && (entry = entries.putIfAbsent(key, created)) == null) return load(key, created, ttl, loader);
+            if(entry != null && entry.isExpired(now) && entries.replace(key, entry, created)) return load(key, created, ttl, loader);
+            
+            entry = entries.get(key);
+        }
+        
+        hits.incrementAndGet();
+        
+        try
+        {
+            value = entry.value.join();
+        }
+        catch(CompletionException e)
+        {
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            
+            throw e;
+        }
+        
+        return (value == MISSING) ? null : (T)value;
+    }
+    
+    private <T> T load(String key, Entry entry, long ttl, Supplier<T> loader)
+    {
+        T value;
+        
+        misses.incrementAndGet();
+        
+        try
+        {
+            value = loader.get();
+        }
+        catch(RuntimeException e)
+        {
+            entries.remove(key, entry);
+            entry.value.completeExceptionally(e);
+            
+            throw e;
+        }
+        
+        // If the key was invalidated while loading, the entry is no longer in
+        // the map and the possibly stale value is only seen by callers that 
+        // were already waiting on it
+        entry.expires = System.nanoTime() + ttl * 1000000;
+        entry.value.complete((value == null) ? MISSING : value);
+        
+        return value;
+    }
+    
+    public void invalidate(String key)
+    {
+        entries.remove(key);
+    }
+    
+    public void clear()
+    {
+        entries.clear();
+    }
+    
+    public JSONObject getStatistics()
+    {
+        var statistics = new JSONObject();
+        var hits = this.hits.get();
+        var misses = this.misses.get();
+        
+        statistics.put("entries", entries.size());
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("hitRate", (hits + misses > 0) ? (double)hits / (hits + misses) : 0.0);
+        
+        return statistics;
+    }
+    
+    private static class Entry
+    {
+        CompletableFuture<Object> value = new CompletableFuture<>();
+        volatile long expires;
+        
+        /**
+         * An entry still loading never expires; callers wait for it instead
+         */
+        boolean isExpired(long now)
+        {
+            return value.isDone() && expires - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+
+/**
+ * Thrown when a request needs a model that is still being pulled. See
+ * {@link ModelProvisioner}.
+ *
+ * @author jbanes
+ */
+public class ModelNotReadyException extends ConvirganceException
+{
+    private String model;
+    private String state;
+
+    public ModelNotReadyException(String model, String state)
+    {
+        super("Model " + model + " is not ready (" + state + ")");
+        
+        this.model = model;
+        this.state = state;
+    }
+
+    public String getModel()
+    {
+        return model;
+    }
+
+    /**
+     * The provisioning state of the model when the request gave up, such as
+     * <code>pulling</code> or <code>failed</code>
+     * 
+     * @return the state of the model
+     */
+    public String getState()
+    {
+        return state;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes sure models are installed on every Ollama server without blocking the
+ * caller. Each model is checked and, if missing, pulled in the background. 
+ * Requests to provision a model that is already being provisioned share the
+ * same pull. Progress reported by the servers is recorded and can be read 
+ * from {@link #getStatus()} while the pull runs.
+ * <br><br>
+ * Callers that need the model wait on {@link #await(String, long)}, which 
+ * fails with a {@link ModelNotReadyException} if the model isn't ready in 
+ * time. A failed pull is attempted again the next time the model is 
+ * provisioned.
+ *
+ * @author jbanes
+ */
+public class ModelProvisioner
+{
+    private Ollama engine;
+    private Map<String,Model> models = new ConcurrentHashMap<>();
+    
+    private boolean log = true;
+
+    public ModelProvisioner(Ollama engine)
+    {
+        this.engine = engine;
+    }
+
+    public boolean isLog()
+    {
+        return log;
+    }
+
+    /**
+     * Prints each change in the progress of a pull to standard error. 
+     * Defaults to true.
+     * 
+     * @param log true to log pull progress
+     */
+    public void setLog(boolean log)
+    {
+        this.log = log;
+    }
+    
+    /**
+     * Starts making the model available on every server. Returns immediately
+     * with a future that completes once the model is installed everywhere.
+     * 
+     * @param model the name of the model
+     * @return a future that completes when the model is ready
+     */
+    public CompletableFuture<Void> provision(String model)
+    {
+        var name = OllamaEndpoint.normalize(model);
+        var entry = models.compute(name, (key, existing) -> {
+            return (existing == null || existing.failed()) ? new Model(key) : existing;
+        });
+        
+        entry.start();
+        
+        return entry.future;
+    }
+    
+    /**
+     * Checks if the model has been provisioned on every server
+     * 
+     * @param model the name of the model
+     * @return true if the model is ready to use
+     */
+    public boolean isReady(String model)
+    {
+        var entry = models.get(OllamaEndpoint.normalize(model));
+        
+        return (entry != null && entry.state.equals("ready"));
+    }
+    
+    /**
+     * Provisions the model if needed and waits for it to be ready. The wait
+     * is also bounded by the current {@link Deadline}, if any.
+     * 
+     * @param model the name of the model
+     * @param timeout the time to wait in milliseconds, or zero to wait until
+     * the model is ready
+     * @throws ModelNotReadyException if the model is not ready in time
+     */
+    public void await(String model, long timeout) throws ModelNotReadyException
+    {
+        var future = provision(model);
+        var deadline = Deadline.current();
+        var limit = timeout;
+        
+        if(isReady(model)) return;
+        if(deadline != null) timeout = deadline.bound(timeout, "provisioning");
+        
+        try
+        {
+            if(timeout > 0) future.get(timeout, TimeUnit.MILLISECONDS);
+            else future.get();
+        }
+        catch(TimeoutException e)
+        {
+            // Ran out of request time rather than patience
+            if(deadline != null && (limit <= 0 || timeout < limit)) throw new DeadlineExceededException("provisioning", deadline.getBudget());
+            
+            throw new ModelNotReadyException(model, getState(model));
+        }
+        catch(ExecutionException e)
+        {
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            
+            throw new ConvirganceException(e.getCause());
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            
+            throw new ConvirganceException(e);
+        }
+    }
+    
+    /**
+     * Forgets what is known about a model so that it is checked again the 
+     * next time it is provisioned
+     * 
+     * @param model the name of the model
+     */
+    public void reset(String model)
+    {
+        models.remove(OllamaEndpoint.normalize(model));
+    }
+    
+    /**
+     * The provisioning state of a model: <code>checking</code>, 
+     * <code>pulling</code>, <code>ready</code>, or <code>failed</code>
+     * 
+     * @param model the name of the model
+     * @return the state or null if the model hasn't been provisioned
+     */
+    public String getState(String model)
+    {
+        var entry = models.get(OllamaEndpoint.normalize(model));
+        
+        return (entry == null) ? null : entry.state;
+    }
+    
+    /**
+     * The reason the last attempt to provision a model failed
+     * 
+     * @param model the name of the model
+     * @return the error message or null if the model hasn't failed
+     */
+    public String getError(String model)
+    {
+        var entry = models.get(OllamaEndpoint.normalize(model));
+        
+        return (entry == null) ? null : entry.error;
+    }
+    
+    /**
+     * Reports the progress of each provisioned model
+     * 
+     * @return status records keyed by model name
+     */
+    public JSONObject getStatus()
+    {
+        var status = new JSONObject();
+        JSONObject record;
+        
+        for(var entry : models.values())
+        {
+            record = new JSONObject();
+            
+            record.put("state", entry.state);
+            record.put("status", entry.status);
+            record.put("completed", entry.completed);
+            record.put("total", entry.total);
+            record.put("percent", (entry.total > 0) ? (entry.completed * 100 / entry.total) : 0);
+            record.put("bytesPerSecond", entry.getRate());
+            record.put("started", entry.started);
+            record.put("finished", entry.finished);
+            record.put("error", entry.error);
+            
+            status.put(entry.name, record);
+        }
+        
+        return status;
+    }
+    
+    private void pull(Model model, OllamaEndpoint endpoint)
+    {
+        String status;
+        
+        for(var record : engine.pull(endpoint, model.name))
+        {
+            if(record.containsKey("error")) throw new ConvirganceException("Pull of " + model.name + " failed: " + record.getString("error"));
+            
+            status = record.getString("status");
+            
+            if(record.containsKey("total"))
+            {
+                model.total = record.getLong("total");
+                model.completed = record.containsKey("completed") ? record.getLong("completed") : 0;
+            }
+            
+            if(status == null || status.equals(model.status)) continue;
+            
+            model.status = status;
+            
+            if(log) System.err.println("[" + endpoint.getBaseUrl() + "] " + model.name + ": " + status);
+        }
+        
+        if(!"success".equals(model.status)) throw new ConvirganceException("Pull of " + model.name + " did not complete");
+    }
+    
+    private void provision(Model model)
+    {
+        var checked = 0;
+        
+        try
+        {
+            for(var endpoint : engine.getEndpoints())
+            {
+                if(!endpoint.isHealthy()) continue;
+                
+                model.state = "checking";
+                checked++;
+                
+                if(engine.hasModel(endpoint, model.name)) continue;
+                
+                model.state = "pulling";
+                
+                pull(model, endpoint);
+            }
+            
+            if(checked < 1) throw new ConvirganceException("No healthy servers to provision " + model.name + " on");
+            
+            model.finished = System.currentTimeMillis();
+            model.state = "ready";
+            model.future.complete(null);
+        }
+        catch(RuntimeException e)
+        {
+            model.finished = System.currentTimeMillis();
+            model.error = e.getMessage();
+            model.state = "failed";
+            model.future.completeExceptionally(e);
+        }
+    }
+    
+    private class Model
+    {
+        String name;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        
+        volatile String state = "checking";
+        volatile String status;
+        volatile long completed;
+        volatile long total;
+        volatile long started;
+        volatile long finished;
+        volatile String error;
+
+        public Model(String name)
+        {
+            this.name = name;
+        }
+        
+        synchronized void start()
+        {
+            if(started > 0) return;
+            
+            started = System.currentTimeMillis();
+            
+            engine.getExecutor().execute(() -> provision(this));
+        }
+        
+        boolean failed()
+        {
+            return state.equals("failed");
+        }
+        
+        long getRate()
+        {
+            var end = (finished > 0) ? finished : System.currentTimeMillis();
+            
+            return (end > started) ? completed * 1000 / (end - started) : 0;
+        }
+    }
+}
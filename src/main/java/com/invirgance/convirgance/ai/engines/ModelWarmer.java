@@ -0,0 +1,312 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps registered models loaded on every Ollama server so that requests never
+ * pay for a cold model load. Models are loaded in the background as soon as
+ * they are registered by sending an empty generate or embed request, then 
+ * re-warmed on a schedule. Requests for registered models that don't specify
+ * a <code>keep_alive</code> are sent with the configured value so that the 
+ * server keeps the model resident between warm-ups.
+ *
+ * @author jbanes
+ */
+public class ModelWarmer
+{
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+    
+    private Ollama engine;
+    private Map<String,Model> models = new ConcurrentHashMap<>();
+    
+    private String keepAlive = "30m";
+    private int interval = 600000;
+    private ScheduledFuture<?> schedule;
+
+    public ModelWarmer(Ollama engine)
+    {
+        this.engine = engine;
+    }
+
+    /**
+     * How long the server should keep warmed models loaded after their last 
+     * use. Accepts Ollama durations like <code>30m</code> or <code>1h</code>, 
+     * a number of seconds, or <code>-1</code> to keep the models loaded 
+     * indefinitely. Defaults to 30 minutes.
+     * 
+     * @return the keep alive duration
+     */
+    public String getKeepAlive()
+    {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(String keepAlive)
+    {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * How often in milliseconds registered models are warmed again. This 
+     * reloads models that were evicted or lost to a server restart. Defaults 
+     * to 10 minutes.
+     * 
+     * @return the interval between warm-ups
+     */
+    public int getInterval()
+    {
+        return interval;
+    }
+
+    public synchronized void setInterval(int interval)
+    {
+        this.interval = interval;
+        
+        cancel();
+        
+        if(!models.isEmpty()) schedule();
+    }
+    
+    private Object getKeepAliveValue()
+    {
+        try
+        {
+            return Long.valueOf(keepAlive.trim());
+        }
+        catch(NumberFormatException e)
+        {
+            return keepAlive.trim();
+        }
+    }
+    
+    private long getKeepAliveMillis()
+    {
+        var value = keepAlive.trim();
+        var matcher = DURATION.matcher(value);
+        var millis = 0.0;
+        
+        if(value.startsWith("-")) return -1;
+        if(value.matches("\\d+")) return Long.parseLong(value) * 1000;
+        
+        while(matcher.find())
+        {
+            switch(matcher.group(2))
+            {
+                case "ms": millis += Double.parseDouble(matcher.group(1)); break;
+                case "s": millis += Double.parseDouble(matcher.group(1)) * 1000; break;
+                case "m": millis += Double.parseDouble(matcher.group(1)) * 60000; break;
+                case "h": millis += Double.parseDouble(matcher.group(1)) * 3600000; break;
+            }
+        }
+        
+        return (millis > 0) ? (long)millis : 300000; // Ollama's default
+    }
+    
+    private synchronized void schedule()
+    {
+        if(schedule != null || interval < 1) return;
+        
+        schedule = engine.getScheduler().scheduleWithFixedDelay(this::rewarm, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    synchronized void cancel()
+    {
+        if(schedule != null) schedule.cancel(false);
+        
+        schedule = null;
+    }
+    
+    /**
+     * Registers a model to be loaded now and kept warm. The model is loaded in
+     * the background and this method returns immediately.
+     * 
+     * @param model the name of the model
+     * @param embedding true if the model is used for embeddings rather than
+     * chat or generate requests
+     */
+    public void register(String model, boolean embedding)
+    {
+        var entry = new Model(model, embedding);
+        
+        if(models.putIfAbsent(OllamaEndpoint.normalize(model), entry) != null) return;
+        
+        schedule();
+        engine.getExecutor().execute(() -> warm(entry));
+    }
+    
+    public void unregister(String model)
+    {
+        models.remove(OllamaEndpoint.normalize(model));
+    }
+    
+    public boolean isRegistered(String model)
+    {
+        return models.containsKey(OllamaEndpoint.normalize(model));
+    }
+    
+    /**
+     * Checks if a model was loaded recently enough that the server should
+     * still have it resident
+     * 
+     * @param model the name of the model
+     * @return true if the model is believed to be loaded
+     */
+    public boolean isWarm(String model)
+    {
+        var entry = models.get(OllamaEndpoint.normalize(model));
+        var keepAlive = getKeepAliveMillis();
+        
+        if(entry == null || entry.warmed == 0) return false;
+        
+        return (keepAlive < 0 || System.currentTimeMillis() - entry.used < keepAlive);
+    }
+    
+    public JSONArray<String> getWarmModels()
+    {
+        var warm = new JSONArray<String>();
+        
+        for(var model : models.values())
+        {
+            if(isWarm(model.name)) warm.add(model.name);
+        }
+        
+        return warm;
+    }
+    
+    /**
+     * Reports the state of each registered model
+     * 
+     * @return status records keyed by model name
+     */
+    public JSONObject getStatus()
+    {
+        var status = new JSONObject();
+        JSONObject record;
+        
+        for(var entry : models.values())
+        {
+            record = new JSONObject();
+            
+            record.put("embedding", entry.embedding);
+            record.put("warm", isWarm(entry.name));
+            record.put("lastWarmed", entry.warmed);
+            record.put("lastUsed", entry.used);
+            record.put("error", entry.error);
+            
+            status.put(entry.name, record);
+        }
+        
+        return status;
+    }
+    
+    /**
+     * Adds the keep alive to a request for a registered model. The caller's
+     * request is left untouched.
+     * 
+     * @param model the model the request is for
+     * @param message the request
+     * @return a copy of the request with the keep alive, or the request itself
+     * if it needs none
+     */
+    JSONObject apply(String model, JSONObject message)
+    {
+        JSONObject copy;
+        
+        if(model == null || message.containsKey("keep_alive") || !isRegistered(model)) return message;
+        
+        copy = new JSONObject();
+        
+        copy.putAll(message);
+        copy.put("keep_alive", getKeepAliveValue());
+        
+        return copy;
+    }
+    
+    void used(String model)
+    {
+        var entry = (model == null) ? null : models.get(OllamaEndpoint.normalize(model));
+        
+        if(entry != null) entry.used = System.currentTimeMillis();
+    }
+    
+    private void warm(Model model)
+    {
+        var warmed = 0;
+        
+        for(var endpoint : engine.getEndpoints())
+        {
+            if(!endpoint.isHealthy()) continue;
+            
+            try
+            {
+                engine.warm(endpoint, model.name, model.embedding, getKeepAliveValue());
+                
+                warmed++;
+            }
+            catch(ConvirganceException e)
+            {
+                model.error = e.getMessage();
+            }
+        }
+        
+        if(warmed < 1) return;
+        
+        model.warmed = System.currentTimeMillis();
+        model.used = model.warmed;
+        model.error = null;
+    }
+    
+    private void rewarm()
+    {
+        for(var model : models.values())
+        {
+            engine.getExecutor().execute(() -> warm(model));
+        }
+    }
+    
+    private static class Model
+    {
+        String name;
+        boolean embedding;
+        
+        volatile long warmed;
+        volatile long used;
+        volatile String error;
+
+        public Model(String name, boolean embedding)
+        {
+            this.name = name;
+            this.embedding = embedding;
+        }
+    }
+}
@@ -27,51 +27,1162 @@ import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.input.JSONInput;
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
-import com.invirgance.convirgance.source.Source;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import com.invirgance.convirgance.CloseableIterator;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URL;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
+ * Client for the Ollama REST API. All requests made through an instance share
+ * a single pooled, keep-alive HTTP client that is created on first use. Call
+ * {@link #close()} to release the pooled connections when the engine is no
+ * longer needed. The engine can still be used after closing, in which case a
+ * new client is created.
+ * <br><br>
+ * Each blocking call has an asynchronous counterpart ending in 
+ * <code>Async</code> that runs on the configured executor. By default every
+ * asynchronous call gets its own virtual thread, allowing many model and
+ * embedding calls to be in flight without tying up platform threads. Streamed
+ * chat and generate responses can also be consumed as a 
+ * {@link Flow.Publisher} with back-pressure and cancellation.
+ * <br><br>
+ * Requests to the chat, generate, and embed APIs pass through a 
+ * {@link Bulkhead} for their model. Chat and generate requests share one
+ * bulkhead per model while embedding requests get their own, so a bulk load of
+ * embeddings cannot starve interactive chat. Requests over the limit queue on 
+ * the client rather than piling up on the server.
+ * <br><br>
+ * The base URL may list several servers separated by commas. Each request is
+ * sent to the healthy server with the fewest requests outstanding. Servers 
+ * are checked in the background using the <code>/api/ps</code> call. Servers
+ * that fail are taken out of rotation until a check succeeds again. With 
+ * model affinity enabled, requests prefer servers that already have the model
+ * loaded to avoid paying for a cold model load. Models registered with the
+ * {@link ModelWarmer} are loaded ahead of time and kept resident. Missing 
+ * models can be pulled in the background with the {@link ModelProvisioner}.
+ * <br><br>
+ * Idempotent requests (embed, show, tags, ps, and generate without streaming)
+ * are retried with jittered exponential backoff when the connection fails or
+ * the server reports a temporary error. When hedging is enabled, an 
+ * idempotent request that takes longer than the configured percentile of 
+ * recent requests is also sent to a second server. Whichever answers first
+ * is used and the other is cancelled.
+ * <br><br>
+ * Each model on each server is protected by a {@link CircuitBreaker}. Once 
+ * too many recent requests have failed, the server is skipped for that model.
+ * If no server is left, requests fail immediately with a 
+ * {@link CircuitOpenException} rather than waiting on a connection that is 
+ * unlikely to succeed.
+ * <br><br>
+ * Identical requests that are in flight at the same time are coalesced into a
+ * single request to the server. Chat and generate requests are only coalesced
+ * when a seed or a temperature of 0 makes the answer repeatable. Every caller
+ * receives its own replay of the response, including streamed responses. 
+ * Single-text embeddings sent through the {@link EmbeddingBatcher} are 
+ * combined into one embed call.
+ * <br><br>
+ * Requests made while a {@link Deadline} is entered are bounded by it. Time
+ * spent queuing, connecting, retrying, and reading the response all count 
+ * against the deadline, and the request fails with a 
+ * {@link DeadlineExceededException} once it runs out.
+ * <br><br>
+ * Model details, installed models, and loaded models are cached for a short
+ * time so that repeated lookups don't go back to the server. See 
+ * {@link #setMetadataTtl(int)}.
+ * <br><br>
+ * Latency, load times, token throughput, errors, and bytes transferred are 
+ * recorded per model and server in the {@link OllamaMetrics}, which can be
+ * published over JMX while the engine is in use. See {@link #setJmx(boolean)}.
  *
  * @author jbanes
  */
-public class Ollama
+public class Ollama implements AutoCloseable
 {
     private String baseUrl = System.getProperty("ollama.base.url", "http://localhost:11434/api");
+    private volatile List<OllamaEndpoint> endpoints;
+    private EndpointSelector selector = new EndpointSelector(this);
+    
+    private int healthCheckInterval = 5000;
+    private boolean modelAffinity = false;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> healthCheck;
+    
+    private int connectTimeout = 10000;
+    private int readTimeout = 600000;
+    private int maxConnections = 16;
+    
+    private HttpClient client;
+    private Semaphore connections;
+    
+    private Executor executor;
+    private ExecutorService defaultExecutor;
+    
+    private int maxConcurrency = 4;
+    private int maxEmbedConcurrency = 4;
+    private int maxQueue = 256;
+    private int queueTimeout = 60000;
+    private Map<String,Integer> modelConcurrency = new HashMap<>();
+    private Map<String,Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    
+    private ModelWarmer warmer;
+    private ModelProvisioner provisioner;
+    private EmbeddingBatcher batcher;
+    
+    private int maxRetries = 2;
+    private int retryBackoff = 100;
+    private int maxRetryBackoff = 5000;
+    private double hedgePercentile = 0;
+    private int minHedgeDelay = 20;
+    private Map<String,LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private AtomicLong retries = new AtomicLong();
+    private AtomicLong hedges = new AtomicLong();
+    private AtomicLong hedgeWins = new AtomicLong();
+    
+    private int circuitFailureRate = 50;
+    private int circuitWindow = 20;
+    private int circuitMinimumCalls = 10;
+    private int circuitOpenTimeout = 30000;
+    
+    private boolean coalesce = true;
+    private SingleFlight flights = new SingleFlight();
+    
+    private MetadataCache metadata = new MetadataCache(60000);
+    
+    private static final AtomicInteger instances = new AtomicInteger();
+    
+    private String name = "ollama-" + instances.incrementAndGet();
+    private boolean jmx = false;
+    private OllamaMetrics metrics = new OllamaMetrics();
+
+    public Ollama()
+    {
+    }
+    
+    public Ollama(String baseUrl)
+    {
+        this.baseUrl = baseUrl;
+    }
+    
+    public String getBaseUrl()
+    {
+        return baseUrl;
+    }
+
+    /**
+     * The URL of the Ollama API. Multiple servers can be specified by 
+     * separating their URLs with commas.
+     * 
+     * @param baseUrl one or more comma separated URLs
+     */
+    public synchronized void setBaseUrl(String baseUrl)
+    {
+        this.baseUrl = baseUrl;
+        this.endpoints = null;
+        
+        if(healthCheck != null) healthCheck.cancel(false);
+        
+        healthCheck = null;
+    }
+    
+    public List<String> getBaseUrls()
+    {
+        var urls = new ArrayList<String>();
+        
+        for(var endpoint : getEndpoints()) urls.add(endpoint.getBaseUrl());
+        
+        return urls;
+    }
+    
+    public void setBaseUrls(List<String> baseUrls)
+    {
+        setBaseUrl(String.join(",", baseUrls));
+    }
+
+    /**
+     * How often in milliseconds each server is checked when requests are 
+     * being balanced across more than one server. Defaults to 5 seconds.
+     * 
+     * @return the interval between health checks
+     */
+    public int getHealthCheckInterval()
+    {
+        return healthCheckInterval;
+    }
+
+    public synchronized void setHealthCheckInterval(int healthCheckInterval)
+    {
+        this.healthCheckInterval = healthCheckInterval;
+        
+        if(healthCheck != null) healthCheck.cancel(false);
+        
+        healthCheck = null;
+        endpoints = null;
+    }
+    
+    /**
+     * When enabled, requests are sent to a server that already has the 
+     * requested model loaded. The least loaded server is used only when no
+     * server has the model loaded. Which models are loaded is refreshed with
+     * each health check. Defaults to false.
+     * 
+     * @return true if requests are routed to servers with the model loaded
+     */
+    public boolean isModelAffinity()
+    {
+        return modelAffinity;
+    }
+
+    public void setModelAffinity(boolean modelAffinity)
+    {
+        this.modelAffinity = modelAffinity;
+    }
+    
+    /**
+     * The servers this engine balances requests across
+     * 
+     * @return the list of endpoints parsed from the base URL
+     */
+    public synchronized List<OllamaEndpoint> getEndpoints()
+    {
+        var endpoints = new ArrayList<OllamaEndpoint>();
+        
+        if(this.endpoints != null) return this.endpoints;
+        
+        for(var url : baseUrl.split(","))
+        {
+            if(!url.isBlank()) endpoints.add(new OllamaEndpoint(url));
+        }
+        
+        if(endpoints.isEmpty()) throw new ConvirganceException("No Ollama base URL has been configured");
+        
+        this.endpoints = List.copyOf(endpoints);
+        
+        if(endpoints.size() > 1 && healthCheckInterval > 0)
+        {
+            // Check right away so routing has the resident models as soon as possible
+            healthCheck = getScheduler().scheduleWithFixedDelay(selector::checkHealth, 0, healthCheckInterval, TimeUnit.MILLISECONDS);
+        }
+        
+        return this.endpoints;
+    }
+    
+    /**
+     * Reports the health and load of each server
+     * 
+     * @return the status of each endpoint
+     */
+    public JSONArray<JSONObject> getEndpointStatus()
+    {
+        var status = new JSONArray<JSONObject>();
+        
+        for(var endpoint : getEndpoints()) status.add(endpoint.getStatus());
+        
+        return status;
+    }
+    
+    EndpointSelector getSelector()
+    {
+        return selector;
+    }
+    
+    synchronized ScheduledExecutorService getScheduler()
+    {
+        if(scheduler != null) return scheduler;
+        
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "ollama-scheduler");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        return scheduler;
+    }
+
+    /**
+     * The maximum time in milliseconds to wait for a connection to the server 
+     * to be established. This is also the maximum time a request will wait for 
+     * a free connection when the pool is exhausted. Defaults to 10 seconds.
+     * 
+     * @return the connection timeout in milliseconds
+     */
+    public int getConnectTimeout()
+    {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout)
+    {
+        this.connectTimeout = connectTimeout;
+        
+        reset();
+    }
+
+    /**
+     * The maximum time in milliseconds to wait for the server to begin 
+     * responding once a request has been sent. Model loads count against this
+     * time, so it should be generous. Defaults to 10 minutes. Set to 0 to wait
+     * indefinitely.
+     * 
+     * @return the read timeout in milliseconds
+     */
+    public int getReadTimeout()
+    {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout)
+    {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * The maximum number of simultaneous connections to the server. Idle 
+     * connections are kept alive and reused by later requests. Defaults to 16.
+     * 
+     * @return the size of the connection pool
+     */
+    public int getMaxConnections()
+    {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections)
+    {
+        this.maxConnections = maxConnections;
+        
+        reset();
+    }
+    
+    /**
+     * The executor that runs the asynchronous variants of the API calls. If
+     * none has been set, a virtual thread per task executor is used.
+     * 
+     * @return the executor used for asynchronous calls
+     */
+    public synchronized Executor getExecutor()
+    {
+        if(executor != null) return executor;
+        if(defaultExecutor == null) defaultExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        
+        return defaultExecutor;
+    }
+
+    public synchronized void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+    
+    /**
+     * The number of chat and generate requests allowed in flight for each 
+     * model. This should generally match <code>OLLAMA_NUM_PARALLEL</code> on 
+     * the server. Defaults to 4. Set to 0 to disable the limit.
+     * 
+     * @return the maximum number of concurrent requests per model
+     */
+    public int getMaxConcurrency()
+    {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency)
+    {
+        this.maxConcurrency = maxConcurrency;
+        
+        bulkheads.clear();
+    }
+
+    /**
+     * The number of embedding requests allowed in flight for each model. 
+     * Defaults to 4. Set to 0 to disable the limit.
+     * 
+     * @return the maximum number of concurrent embedding requests per model
+     */
+    public int getMaxEmbedConcurrency()
+    {
+        return maxEmbedConcurrency;
+    }
+
+    public void setMaxEmbedConcurrency(int maxEmbedConcurrency)
+    {
+        this.maxEmbedConcurrency = maxEmbedConcurrency;
+        
+        bulkheads.clear();
+    }
+
+    /**
+     * Overrides the concurrency limit for individual models. Keys are model 
+     * names and values are the number of requests allowed in flight for that
+     * model, regardless of the type of request.
+     * 
+     * @return the per-model concurrency limits
+     */
+    public Map<String,Integer> getModelConcurrency()
+    {
+        return modelConcurrency;
+    }
+
+    public void setModelConcurrency(Map<String,Integer> modelConcurrency)
+    {
+        this.modelConcurrency = modelConcurrency;
+        
+        bulkheads.clear();
+    }
+
+    /**
+     * The number of requests allowed to wait for each model once the 
+     * concurrency limit is reached. Requests beyond this fail immediately.
+     * Defaults to 256.
+     * 
+     * @return the maximum depth of each wait queue
+     */
+    public int getMaxQueue()
+    {
+        return maxQueue;
+    }
+
+    public void setMaxQueue(int maxQueue)
+    {
+        this.maxQueue = maxQueue;
+        
+        bulkheads.clear();
+    }
+
+    /**
+     * The maximum time in milliseconds a request will wait in the queue before
+     * failing. Defaults to 60 seconds.
+     * 
+     * @return the queue timeout in milliseconds
+     */
+    public int getQueueTimeout()
+    {
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(int queueTimeout)
+    {
+        this.queueTimeout = queueTimeout;
+        
+        bulkheads.clear();
+    }
+    
+    Bulkhead getBulkhead(String api, JSONObject message)
+    {
+        String type;
+        String model;
+        int limit;
+        
+        switch(api)
+        {
+            case "chat":
+            case "generate":
+                type = "chat";
+                limit = maxConcurrency;
+                break;
+                
+            case "embed":
+                type = "embed";
+                limit = maxEmbedConcurrency;
+                break;
+                
+            default:
+                return null;
+        }
+        
+        model = message.getString("model");
+        
+        if(model == null) return null;
+        if(modelConcurrency != null && modelConcurrency.containsKey(model)) limit = modelConcurrency.get(model);
+        if(limit < 1) return null;
+        
+        final int permits = limit;
+        
+        return bulkheads.computeIfAbsent(type + ":" + model, key -> new Bulkhead(key, permits, maxQueue, queueTimeout));
+    }
+    
+    /**
+     * Reports the current state of each model's bulkhead, including the number
+     * of active requests, the depth of the wait queue, and the time spent 
+     * waiting. See {@link Bulkhead#getStatistics()}.
+     * 
+     * @return statistics for each bulkhead keyed by type and model
+     */
+    public JSONObject getBulkheadStatistics()
+    {
+        var statistics = new JSONObject();
+        
+        for(var bulkhead : bulkheads.values())
+        {
+            statistics.put(bulkhead.getName(), bulkhead.getStatistics());
+        }
+        
+        return statistics;
+    }
+    
+    /**
+     * The number of times an idempotent request is retried after a connection
+     * failure or a temporary server error. Defaults to 2. Set to 0 to disable
+     * retries.
+     * 
+     * @return the maximum number of retries
+     */
+    public int getMaxRetries()
+    {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries)
+    {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * The base delay in milliseconds before the first retry. The delay doubles
+     * with each further attempt and is randomized to keep clients from 
+     * retrying in lockstep. Defaults to 100ms.
+     * 
+     * @return the initial retry delay in milliseconds
+     */
+    public int getRetryBackoff()
+    {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(int retryBackoff)
+    {
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * The longest delay in milliseconds between retries. Defaults to 5 seconds.
+     * 
+     * @return the maximum retry delay in milliseconds
+     */
+    public int getMaxRetryBackoff()
+    {
+        return maxRetryBackoff;
+    }
+
+    public void setMaxRetryBackoff(int maxRetryBackoff)
+    {
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    /**
+     * The latency percentile after which an idempotent request is also sent to
+     * a second server. For example, 95 hedges the slowest 5% of requests at
+     * the cost of about 5% more load. Latency is tracked separately for each
+     * API and model. Requires more than one server. Defaults to 0, which 
+     * disables hedging.
+     * 
+     * @return the hedging percentile between 0 and 100
+     */
+    public double getHedgePercentile()
+    {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile)
+    {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * The shortest time in milliseconds to wait before hedging. Keeps quick 
+     * calls from being hedged over a few milliseconds of jitter. Defaults to 
+     * 20ms.
+     * 
+     * @return the minimum delay before a hedged request is sent
+     */
+    public int getMinHedgeDelay()
+    {
+        return minHedgeDelay;
+    }
+
+    public void setMinHedgeDelay(int minHedgeDelay)
+    {
+        this.minHedgeDelay = minHedgeDelay;
+    }
+    
+    /**
+     * Reports the number of retried requests, the number of hedged requests,
+     * and the number of times the hedge answered first
+     * 
+     * @return the retry and hedging statistics
+     */
+    public JSONObject getRetryStatistics()
+    {
+        var statistics = new JSONObject();
+        
+        statistics.put("retries", retries.get());
+        statistics.put("hedges", hedges.get());
+        statistics.put("hedgeWins", hedgeWins.get());
+        
+        return statistics;
+    }
+    
+    LatencyWindow getLatency(String key)
+    {
+        return latencies.computeIfAbsent(key, name -> new LatencyWindow(256));
+    }
+    
+    void retried()
+    {
+        retries.incrementAndGet();
+    }
+    
+    void hedged()
+    {
+        hedges.incrementAndGet();
+    }
+    
+    void hedgeWon()
+    {
+        hedgeWins.incrementAndGet();
+    }
+    
+    /**
+     * The percentage of failed requests in the window that opens a model's 
+     * circuit breaker on a server. Connection failures, timeouts, and server
+     * errors count as failures. Defaults to 50. Set to 0 to disable the
+     * circuit breakers.
+     * 
+     * @return the failure rate that opens the circuit
+     */
+    public int getCircuitFailureRate()
+    {
+        return circuitFailureRate;
+    }
+
+    public void setCircuitFailureRate(int circuitFailureRate)
+    {
+        this.circuitFailureRate = circuitFailureRate;
+        
+        resetCircuits();
+    }
+
+    /**
+     * The number of recent requests used to compute the failure rate. 
+     * Defaults to 20.
+     * 
+     * @return the size of the sliding window
+     */
+    public int getCircuitWindow()
+    {
+        return circuitWindow;
+    }
+
+    public void setCircuitWindow(int circuitWindow)
+    {
+        this.circuitWindow = circuitWindow;
+        
+        resetCircuits();
+    }
+
+    /**
+     * The number of requests that must be made before the circuit can open.
+     * Keeps a couple of early failures from opening the circuit. Defaults to
+     * 10.
+     * 
+     * @return the minimum number of requests
+     */
+    public int getCircuitMinimumCalls()
+    {
+        return circuitMinimumCalls;
+    }
+
+    public void setCircuitMinimumCalls(int circuitMinimumCalls)
+    {
+        this.circuitMinimumCalls = circuitMinimumCalls;
+        
+        resetCircuits();
+    }
+
+    /**
+     * How long in milliseconds an open circuit rejects requests before a trial
+     * request is let through. A server returning to rotation after a failed 
+     * health check is tried right away. Defaults to 30 seconds.
+     * 
+     * @return the open timeout in milliseconds
+     */
+    public int getCircuitOpenTimeout()
+    {
+        return circuitOpenTimeout;
+    }
+
+    public void setCircuitOpenTimeout(int circuitOpenTimeout)
+    {
+        this.circuitOpenTimeout = circuitOpenTimeout;
+        
+        resetCircuits();
+    }
+    
+    private void resetCircuits()
+    {
+        var endpoints = this.endpoints;
+        
+        if(endpoints == null) return;
+        
+        for(var endpoint : endpoints) endpoint.clearBreakers();
+    }
+    
+    /**
+     * Reports the state of every circuit breaker. See 
+     * {@link CircuitBreaker#getStatistics()}.
+     * 
+     * @return statistics for each breaker keyed by model and server
+     */
+    public JSONObject getCircuitStatistics()
+    {
+        var statistics = new JSONObject();
+        
+        for(var endpoint : getEndpoints())
+        {
+            for(var breaker : endpoint.getBreakers())
+            {
+                statistics.put(breaker.getName(), breaker.getStatistics());
+            }
+        }
+        
+        return statistics;
+    }
+    
+    /**
+     * Controls whether identical concurrent requests share a single request
+     * to the server. Requests are identical when their API and body match,
+     * including the model, prompt, options, and seed. Applies to embed, show,
+     * tags, and ps. Chat and generate requests are only coalesced when their
+     * options pin the output with a <code>seed</code> or a 
+     * <code>temperature</code> of 0. Defaults to true.
+     * 
+     * @return true if identical requests are coalesced
+     */
+    public boolean isCoalesce()
+    {
+        return coalesce;
+    }
+
+    public void setCoalesce(boolean coalesce)
+    {
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * The number of bytes of a coalesced response kept so that identical 
+     * requests can join it from the beginning. Once a response grows past
+     * this size, identical requests are sent to the server on their own. 
+     * Defaults to 1MB.
+     * 
+     * @return the maximum size of the replay buffer in bytes
+     */
+    public int getMaxReplaySize()
+    {
+        return flights.getMaxReplaySize();
+    }
+
+    public void setMaxReplaySize(int maxReplaySize)
+    {
+        flights.setMaxReplaySize(maxReplaySize);
+    }
+    
+    /**
+     * Reports the number of requests eligible for coalescing, the number sent
+     * to a server, and the number served by a request already in flight
+     * 
+     * @return the coalescing statistics
+     */
+    public JSONObject getCoalescingStatistics()
+    {
+        return flights.getStatistics();
+    }
+    
+    SingleFlight getFlights()
+    {
+        return flights;
+    }
+    
+    /**
+     * How long in milliseconds the answers to show, tags, and ps are reused
+     * before asking the server again. Models that don't exist are remembered
+     * for the same time. Pulling or deleting a model through the engine 
+     * forgets what was known about it. Loaded models are reused for no 
+     * longer than the health check interval since they change as requests 
+     * load and unload models. Set to 0 to disable caching. Defaults to 60 
+     * seconds.
+     * 
+     * @return the time to live of cached metadata
+     */
+    public int getMetadataTtl()
+    {
+        return (int)metadata.getTtl();
+    }
+
+    public void setMetadataTtl(int metadataTtl)
+    {
+        this.metadata.setTtl(metadataTtl);
+    }
+    
+    /**
+     * Reports the number of cached metadata entries and how often lookups 
+     * were answered from the cache
+     * 
+     * @return the metadata cache statistics
+     */
+    public JSONObject getMetadataStatistics()
+    {
+        return metadata.getStatistics();
+    }
+    
+    /**
+     * The name the engine's metrics are published under in JMX. Defaults to
+     * <code>ollama-</code> followed by a number unique to the engine.
+     * 
+     * @return the name of the engine
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    public synchronized void setName(String name)
+    {
+        this.name = name;
+        
+        // Published again under the new name on next use
+        metrics.unregister();
+    }
+
+    public boolean isJmx()
+    {
+        return jmx;
+    }
+
+    /**
+     * Publishes the engine's metrics over JMX while the engine is in use. 
+     * The metrics are unregistered when the engine is closed, so only enable
+     * this on engines that are closed when no longer needed. Defaults to 
+     * false.
+     * 
+     * @param jmx true to publish the metrics
+     */
+    public synchronized void setJmx(boolean jmx)
+    {
+        this.jmx = jmx;
+        
+        if(!jmx) metrics.unregister();
+        else if(client != null) getExecutor().execute(this::publish);
+    }
+    
+    /**
+     * The latency, throughput, error, and transfer metrics recorded for each
+     * model and server
+     * 
+     * @return the metrics for this engine
+     */
+    public OllamaMetrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    private Iterable<JSONObject> inspect(Iterable<JSONObject> records, Consumer<JSONObject> inspector)
+    {
+        return () -> {
+            var iterator = records.iterator();
+            
+            return new CloseableIterator<JSONObject>() {
+                @Override
+                public boolean hasNext()
+                {
+                    return iterator.hasNext();
+                }
 
-    public Ollama()
+                @Override
+                public JSONObject next()
+                {
+                    var record = iterator.next();
+                    
+                    inspector.accept(record);
+                    
+                    return record;
+                }
+
+                @Override
+                public void close() throws Exception
+                {
+                    if(iterator instanceof AutoCloseable closeable) closeable.close();
+                }
+            };
+        };
+    }
+    
+    private void forget(String model)
     {
+        metadata.invalidate("show:" + OllamaEndpoint.normalize(model));
+        metadata.invalidate("tags");
+        metadata.invalidate("ps");
     }
     
-    public Ollama(String baseUrl)
+    private Iterable<JSONObject> forgetOnSuccess(String model, Iterable<JSONObject> pull)
     {
-        this.baseUrl = baseUrl;
+        forget(model);
+        
+        return inspect(pull, record -> {
+            if("success".equals(record.getString("status"))) forget(model);
+        });
     }
     
-    public String getBaseUrl()
+    /**
+     * The warm-up manager that preloads models and keeps them resident on the
+     * servers
+     * 
+     * @return the model warmer for this engine
+     */
+    public synchronized ModelWarmer getWarmer()
     {
-        return baseUrl;
+        if(warmer == null) warmer = new ModelWarmer(this);
+        
+        return warmer;
     }
-
-    public void setBaseUrl(String baseUrl)
+    
+    /**
+     * The warmer if one has been created. Requests use this rather than 
+     * {@link #getWarmer()} so that they don't create one.
+     */
+    ModelWarmer getActiveWarmer()
     {
-        this.baseUrl = baseUrl;
+        return warmer;
+    }
+    
+    /**
+     * The provisioner that pulls missing models onto the servers in the 
+     * background
+     * 
+     * @return the model provisioner for this engine
+     */
+    public synchronized ModelProvisioner getProvisioner()
+    {
+        if(provisioner == null) provisioner = new ModelProvisioner(this);
+        
+        return provisioner;
+    }
+    
+    /**
+     * The batcher that combines concurrent single-text embedding requests 
+     * into one call to the server
+     * 
+     * @return the embedding batcher for this engine
+     */
+    public synchronized EmbeddingBatcher getBatcher()
+    {
+        if(batcher == null) batcher = new EmbeddingBatcher(this);
+        
+        return batcher;
+    }
+    
+    /**
+     * Loads a model on a specific server by sending a request with no input
+     */
+    void warm(OllamaEndpoint endpoint, String model, boolean embedding, Object keepAlive)
+    {
+        var message = new JSONObject();
+        var source = new OllamaRequest(this, embedding ? "embed" : "generate", "POST", message, endpoint);
+        var input = new JSONInput();
+        
+        message.put("model", model);
+        message.put("keep_alive", keepAlive);
+        
+        if(embedding) message.put("input", new JSONArray());
+        else message.put("stream", false);
+        
+        try(var iterator = input.read(source).iterator())
+        {
+            while(iterator.hasNext()) iterator.next();
+        }
+        catch(ConvirganceException e) { throw e; }
+        catch(Exception e) { throw new ConvirganceException(e); }
+    }
+    
+    /**
+     * Checks if a model is installed on a specific server
+     */
+    boolean hasModel(OllamaEndpoint endpoint, String model)
+    {
+        var message = new JSONObject();
+        var source = new OllamaRequest(this, "show", "POST", message, endpoint);
+        var input = new JSONInput();
+        
+        message.put("model", model);
+        
+        try(var iterator = input.read(source).iterator())
+        {
+            return !iterator.next().containsKey("error");
+        }
+        catch(OllamaResponseException e)
+        {
+            if(e.getStatusCode() == 404) return false;
+            
+            throw e;
+        }
+        catch(ConvirganceException e) { throw e; }
+        catch(Exception e) { throw new ConvirganceException(e); }
+    }
+    
+    /**
+     * Pulls a model onto a specific server, streaming the progress
+     */
+    Iterable<JSONObject> pull(OllamaEndpoint endpoint, String model)
+    {
+        var message = new JSONObject();
+        var source = new OllamaRequest(this, "pull", "POST", message, endpoint);
+        var input = new JSONInput();
+        
+        message.put("model", model);
+        message.put("stream", true);
+        
+        return forgetOnSuccess(model, input.read(source));
+    }
+    
+    private void publish()
+    {
+        // Starting the platform MBean server is slow, so it happens off the
+        // request thread and outside the lock
+        ManagementFactory.getPlatformMBeanServer();
+        
+        synchronized(this)
+        {
+            if(client != null && jmx) metrics.register(name);
+        }
+    }
+    
+    synchronized HttpClient getClient()
+    {
+        if(client != null) return client;
+        
+        client = HttpClient.newBuilder()
+                           .version(HttpClient.Version.HTTP_1_1)
+                           .connectTimeout(Duration.ofMillis(connectTimeout))
+                           .build();
+        
+        connections = new Semaphore(maxConnections, true);
+        
+        if(jmx) getExecutor().execute(this::publish);
+        
+        return client;
+    }
+    
+    synchronized Semaphore getConnections()
+    {
+        getClient();
+        
+        return connections;
+    }
+    
+    private synchronized void reset()
+    {
+        if(client == null) return;
+        
+        // Requests in flight are allowed to complete on the old client
+        client.shutdown();
+        
+        client = null;
+        connections = null;
+    }
+    
+    /**
+     * Shuts down the pooled HTTP client, aborting any requests still in flight.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if(warmer != null) warmer.cancel();
+        if(batcher != null) batcher.cancel();
+        if(scheduler != null) scheduler.shutdownNow();
+        if(defaultExecutor != null) defaultExecutor.shutdown();
+        if(client != null) client.shutdownNow();
+        
+        metrics.unregister();
+        
+        scheduler = null;
+        healthCheck = null;
+        endpoints = null;
+        defaultExecutor = null;
+        client = null;
+        connections = null;
+    }
+    
+    private <T> CompletableFuture<T> async(Supplier<T> task)
+    {
+        var deadline = Deadline.current();
+        
+        if(deadline == null) return CompletableFuture.supplyAsync(task, getExecutor());
+        
+        // Carry the caller's deadline over to the executor
+        return CompletableFuture.supplyAsync(() -> {
+            try(var scope = deadline.enter())
+            {
+                return task.get();
+            }
+        }, getExecutor());
+    }
+    
+    private JSONArray<JSONObject> collect(Iterable<JSONObject> results)
+    {
+        var records = new JSONArray<JSONObject>();
+        
+        for(var record : results) records.add(record);
+        
+        return records;
+    }
+    
+    /**
+     * Waits for an asynchronous call to complete, unwrapping any failure back
+     * into the exception the blocking call would have thrown.
+     * 
+     * @param <T> the type of result
+     * @param future the asynchronous call to wait for
+     * @return the result of the call
+     */
+    public static <T> T await(CompletableFuture<T> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch(CompletionException e)
+        {
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            
+            throw new ConvirganceException(e.getCause());
+        }
     }
     
     public Iterable<JSONObject> generate(JSONObject message)
     {
-        var source = new OllamaSource("generate", message);
+        var source = new OllamaRequest(this, "generate", message);
         var input = new JSONInput();
         
-        return input.read(source);
+        return inspect(input.read(source), source::completed);
     }
     
     public Iterable<JSONObject> generate(String model, String prompt, boolean stream)
@@ -103,12 +1214,48 @@ public class Ollama
         return generate(message);
     }
     
+    /**
+     * Runs the generate request in the background. All records returned by 
+     * the server are collected before the future completes.
+     * 
+     * @param message the complete request to send to the generate API
+     * @return a future that completes with the records from the server
+     */
+    public CompletableFuture<JSONArray<JSONObject>> generateAsync(JSONObject message)
+    {
+        return async(() -> collect(generate(message)));
+    }
+    
+    public CompletableFuture<JSONArray<JSONObject>> generateAsync(String model, String prompt)
+    {
+        return async(() -> collect(generate(model, prompt, false)));
+    }
+    
+    /**
+     * Streams a generate request to a reactive subscriber. The request is 
+     * sent when the subscriber first requests records and each response 
+     * chunk is delivered as it arrives. Cancelling the subscription closes 
+     * the connection so the server stops generating.
+     * 
+     * @param message the generate request, normally with stream set to true
+     * @return a publisher of response chunks
+     */
+    public Flow.Publisher<JSONObject> generatePublisher(JSONObject message)
+    {
+        return new IterablePublisher<>(generate(message), getExecutor());
+    }
+    
+    public Flow.Publisher<JSONObject> generatePublisher(String model, String prompt)
+    {
+        return new IterablePublisher<>(generate(model, prompt, true), getExecutor());
+    }
+    
     public Iterable<JSONObject> chat(JSONObject message)
     {
-        var source = new OllamaSource("chat", message);
+        var source = new OllamaRequest(this, "chat", message);
         var input = new JSONInput();
         
-        return input.read(source);
+        return inspect(input.read(source), source::completed);
     }
     
     public Iterable<JSONObject> chat(String model, JSONArray messages, boolean stream)
@@ -135,6 +1282,40 @@ public class Ollama
         return chat(message);
     }
     
+    /**
+     * Runs the chat request in the background. All records returned by the
+     * server are collected before the future completes.
+     * 
+     * @param message the complete request to send to the chat API
+     * @return a future that completes with the records from the server
+     */
+    public CompletableFuture<JSONArray<JSONObject>> chatAsync(JSONObject message)
+    {
+        return async(() -> collect(chat(message)));
+    }
+    
+    public CompletableFuture<JSONArray<JSONObject>> chatAsync(String model, JSONArray messages)
+    {
+        return async(() -> collect(chat(model, messages, false)));
+    }
+    
+    /**
+     * Streams a chat request to a reactive subscriber. See 
+     * {@link #generatePublisher(JSONObject)}.
+     * 
+     * @param message the chat request, normally with stream set to true
+     * @return a publisher of response chunks
+     */
+    public Flow.Publisher<JSONObject> chatPublisher(JSONObject message)
+    {
+        return new IterablePublisher<>(chat(message), getExecutor());
+    }
+    
+    public Flow.Publisher<JSONObject> chatPublisher(String model, JSONArray messages)
+    {
+        return new IterablePublisher<>(chat(model, messages, true), getExecutor());
+    }
+    
     public JSONObject constructMessage(String content, Role role)
     {
         var message = new JSONObject();
@@ -147,40 +1328,112 @@ public class Ollama
     
     public JSONArray getLoadedModels()
     {
-        var source = new OllamaSource("ps");
-        var input = new JSONInput();
-        var results = input.read(source);
+        var ttl = (healthCheckInterval > 0) ? Math.min(healthCheckInterval, metadata.getTtl()) : metadata.getTtl();
         
-        return results.iterator().next().getJSONArray("models");
+        return metadata.get("ps", ttl, () -> list("ps"));
     }
     
-    public JSONArray getInstalledModels()
+    private JSONArray list(String api)
     {
-        var source = new OllamaSource("tags");
+        var source = new OllamaRequest(this, api);
         var input = new JSONInput();
-        var results = input.read(source);
         
-        return results.iterator().next().getJSONArray("models");
+        try(var iterator = input.read(source).iterator())
+        {
+            return iterator.next().getJSONArray("models");
+        }
+        catch(ConvirganceException e) { throw e; }
+        catch(Exception e) { throw new ConvirganceException(e); }
+    }
+    
+    public CompletableFuture<JSONArray> getLoadedModelsAsync()
+    {
+        return async(this::getLoadedModels);
+    }
+    
+    public JSONArray getInstalledModels()
+    {
+        return metadata.get("tags", () -> list("tags"));
+    }
+    
+    public CompletableFuture<JSONArray> getInstalledModelsAsync()
+    {
+        return async(this::getInstalledModels);
     }
     
+    /**
+     * Looks up the details of a model, including its parameters, template,
+     * and <code>model_info</code>. Answers are cached for the metadata TTL
+     * and should not be modified.
+     * 
+     * @param name the name of the model
+     * @return the details or null if the model isn't installed
+     * @throws ConvirganceException if the server couldn't answer
+     */
     public JSONObject getModelDetails(String name)
+    {
+        return metadata.get("show:" + OllamaEndpoint.normalize(name), () -> show(name));
+    }
+    
+    private JSONObject show(String name)
     {
         var message = new JSONObject();
-        var source = new OllamaSource("show", message);
+        var source = new OllamaRequest(this, "show", message);
         var input = new JSONInput();
         
         message.put("model", name);
         
-        try
+        try(var iterator = input.read(source).iterator())
         {
-            return input.read(source).iterator().next();
+            return iterator.next();
         }
-        catch(ConvirganceException e)
+        catch(OllamaResponseException e)
         {
-            e.printStackTrace();
+            if(e.getStatusCode() == 404) return null;
             
-            return null;
+            throw e;
         }
+        catch(ConvirganceException e) { throw e; }
+        catch(Exception e) { throw new ConvirganceException(e); }
+    }
+    
+    private long getModelInfo(String name, String key)
+    {
+        var details = getModelDetails(name);
+        var info = (details == null) ? null : details.getJSONObject("model_info");
+        var architecture = (info == null) ? null : info.getString("general.architecture");
+        var value = (architecture == null) ? null : info.get(architecture + "." + key);
+        
+        return (value instanceof Number) ? ((Number)value).longValue() : 0;
+    }
+    
+    /**
+     * The maximum context the model was trained for, read from the cached
+     * model details
+     * 
+     * @param name the name of the model
+     * @return the context length in tokens or 0 if unknown
+     */
+    public int getContextLength(String name)
+    {
+        return (int)getModelInfo(name, "context_length");
+    }
+    
+    /**
+     * The size of the embeddings the model produces, read from the cached
+     * model details
+     * 
+     * @param name the name of the model
+     * @return the number of dimensions or 0 if unknown
+     */
+    public int getEmbeddingLength(String name)
+    {
+        return (int)getModelInfo(name, "embedding_length");
+    }
+    
+    public CompletableFuture<JSONObject> getModelDetailsAsync(String name)
+    {
+        return async(() -> getModelDetails(name));
     }
     
     public Iterable<JSONObject> pullModel(String name)
@@ -191,14 +1444,26 @@ public class Ollama
     public Iterable<JSONObject> pullModel(String name, boolean stream, boolean insecure)
     {
         var message = new JSONObject();
-        var source = new OllamaSource("pull", message);
+        var source = new OllamaRequest(this, "pull", message);
         var input = new JSONInput();
         
         message.put("model", name);
         message.put("stream", stream);
         message.put("insecure", insecure);
         
-        return input.read(source);
+        return forgetOnSuccess(name, input.read(source));
+    }
+    
+    /**
+     * Pulls the model in the background. The future completes once the pull
+     * has finished with the status records reported by the server.
+     * 
+     * @param name the name of the model to pull
+     * @return a future that completes when the model has been pulled
+     */
+    public CompletableFuture<JSONArray<JSONObject>> pullModelAsync(String name)
+    {
+        return async(() -> collect(pullModel(name)));
     }
     
     public void ensureModel(String name, boolean log)
@@ -216,11 +1481,13 @@ public class Ollama
     public boolean deleteModel(String name)
     {
         var message = new JSONObject();
-        var source = new OllamaSource("delete", "DELETE", message);
+        var source = new OllamaRequest(this, "delete", "DELETE", message);
         var input = new JSONInput();
         
         message.put("model", name);
         
+        if(provisioner != null) provisioner.reset(name);
+        
         try(var iterator = input.read(source).iterator())
         {
             if(!iterator.hasNext()) return true;
@@ -233,6 +1500,10 @@ public class Ollama
         {
             return false;
         }
+        finally
+        {
+            forget(name);
+        }
     }
     
     public JSONArray<Double> getEmbed(String model, String input)
@@ -244,7 +1515,7 @@ public class Ollama
     {
         var inputs = new JSONArray(List.of(input));
         var message = new JSONObject();
-        var source = new OllamaSource("embed", message);
+        var source = new OllamaRequest(this, "embed", message);
         var json = new JSONInput();
         
         message.put("model", model);
@@ -252,7 +1523,15 @@ public class Ollama
         
         try(var iterator = json.read(source).iterator())
         {
-            return iterator.next().getJSONArray("embeddings");
+            var response = iterator.next();
+            
+            source.completed(response);
+            
+            return response.getJSONArray("embeddings");
+        }
+        catch(ConvirganceException e)
+        {
+            throw e;
         }
         catch(Exception e)
         {
@@ -260,130 +1539,88 @@ public class Ollama
         }
     }
     
-    public static enum Role
+    private InputStream openEmbed(String model, String... input)
     {
-        system,
-        user, 
-        assistant, 
-        tool
+        var message = new JSONObject();
+        
+        message.put("model", model);
+        message.put("input", new JSONArray(List.of(input)));
+        
+        return new OllamaRequest(this, "embed", message).getInputStream();
     }
     
-    private class OllamaSource implements Source
+    /**
+     * Embeds a text into a primitive array. Unlike {@link #getEmbed(String, String)},
+     * the response is decoded without boxing each value, which keeps large
+     * embedding loads from churning through memory.
+     * 
+     * @param model the embedding model
+     * @param input the text to embed
+     * @return the embedding
+     */
+    public float[] getEmbedVector(String model, String input)
     {
-        private String api;
-        private String method;
-        private JSONObject message;
-
-        public OllamaSource(String api)
-        {
-            this(api, "GET");
-        }
-        
-        public OllamaSource(String api, JSONObject message)
-        {
-            this(api, "POST", message);
-        }
-        
-        public OllamaSource(String api, String method)
-        {
-            this(api, method, null);
-        }
-        
-        public OllamaSource(String api, String method, JSONObject message)
+        return getEmbedVectors(model, input)[0];
+    }
+    
+    public float[][] getEmbedVectors(String model, String... input)
+    {
+        try(var in = openEmbed(model, input))
         {
-            this.api = api;
-            this.method = method;
-            this.message = message;
+            return new EmbeddingDecoder(in).decode();
         }
-        
-        private URL getUrl(String path)
+        catch(ConvirganceException e)
         {
-            try
-            {
-                if(!path.startsWith("/")) path = "/" + path;
-
-                return new URI(baseUrl + path).toURL();
-            }
-            catch(URISyntaxException | MalformedURLException e) { throw new ConvirganceException(e); }
+            throw e;
         }
-        
-        private HttpURLConnection getConnection()
+        catch(Exception e)
         {
-            var url = getUrl(api);
-            
-            try
-            {
-                return (HttpURLConnection)url.openConnection();
-            }
-            catch(IOException e) { throw new ConvirganceException(e); }
+            throw new ConvirganceException(e);
         }
-        
-        private byte[] getData()
+    }
+    
+    /**
+     * Embeds texts into a caller supplied buffer. The embeddings are written 
+     * one after another starting at the offset, so the buffer must have room
+     * for the dimensions of the model times the number of inputs.
+     * 
+     * @param model the embedding model
+     * @param input the texts to embed
+     * @param buffer the buffer to write the embeddings into
+     * @param offset the position of the first value in the buffer
+     * @return the number of values written
+     */
+    public int getEmbedVectors(String model, String[] input, float[] buffer, int offset)
+    {
+        try(var in = openEmbed(model, input))
         {
-            if(message == null) return null;
-            
-            try
-            {
-                return message.toString().getBytes("UTF-8");
-            }
-            catch(UnsupportedEncodingException e) { throw new ConvirganceException(e); }
+            return new EmbeddingDecoder(in).decode(buffer, offset);
         }
-        
-        private void handleError(InputStream in)
+        catch(ConvirganceException e)
         {
-            if(in == null) return;
-            
-            var out = new ByteArrayOutputStream();
-            var data = new byte[4096];
-            
-            String result;
-            int count;
-            
-            try
-            {
-                while((count = in.read(data)) > 0)
-                {
-                    out.write(data, 0, count);
-                }
-                
-                result = new String(out.toByteArray(), "UTF-8");
-                
-                System.out.println(result);
-            }
-            catch(IOException e) { throw new ConvirganceException(e); }
+            throw e;
         }
-        
-        @Override
-        public InputStream getInputStream()
+        catch(Exception e)
         {
-            var connection = getConnection();
-            var data = getData();
-            
-            try
-            {
-                connection.setRequestMethod(method);
-                connection.setDoOutput(true);
-                connection.setDoInput(true);
-                
-                if(message != null)
-                {
-                    connection.setRequestProperty("Content-Type", "application/json"); 
-
-                    try(var out = connection.getOutputStream())
-                    {
-                        out.write(data, 0, data.length);
-                    }
-                }
-                
-                return connection.getInputStream();
-            }
-            catch(IOException e) 
-            { 
-                handleError(connection.getErrorStream());
-                
-                throw new ConvirganceException(e); 
-            }
+            throw new ConvirganceException(e);
         }
-        
+    }
+    
+    public CompletableFuture<JSONArray<Double>> embedAsync(String model, String input)
+    {
+        return async(() -> getEmbed(model, input));
+    }
+    
+    public CompletableFuture<JSONArray<JSONArray<Double>>> embedAsync(String model, String... input)
+    {
+        return async(() -> getEmbed(model, input));
+    }
+    
+    public static enum Role
+    {
+        system,
+        user, 
+        assistant, 
+        tool
     }
 }
@@ -0,0 +1,213 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * One Ollama server in the set of servers an engine balances requests across.
+ * Tracks the number of requests currently outstanding against the server and
+ * whether it is healthy enough to receive new requests. The models resident on
+ * the server are cached from the most recent <code>/api/ps</code> check so 
+ * that routing decisions never require a round trip. Each model served by the
+ * endpoint gets its own {@link CircuitBreaker} so that one failing model 
+ * doesn't take the whole server out of rotation.
+ *
+ * @author jbanes
+ */
+public class OllamaEndpoint
+{
+    private String baseUrl;
+    private volatile boolean healthy = true;
+    
+    private AtomicInteger outstanding = new AtomicInteger();
+    private AtomicLong requests = new AtomicLong();
+    private AtomicLong failures = new AtomicLong();
+    private volatile long lastChecked;
+    private volatile Set<String> loaded = ConcurrentHashMap.newKeySet();
+    private Map<String,CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public OllamaEndpoint(String baseUrl)
+    {
+        this.baseUrl = baseUrl.trim();
+        
+        if(this.baseUrl.endsWith("/")) this.baseUrl = this.baseUrl.substring(0, this.baseUrl.length()-1);
+    }
+
+    public String getBaseUrl()
+    {
+        return baseUrl;
+    }
+
+    /**
+     * Unhealthy endpoints receive no requests until a health check succeeds
+     * 
+     * @return true if the endpoint is accepting requests
+     */
+    public boolean isHealthy()
+    {
+        return healthy;
+    }
+
+    public int getOutstanding()
+    {
+        return outstanding.get();
+    }
+    
+    /**
+     * Ollama reports models by their full name. A request for a model without
+     * a tag is a request for the <code>latest</code> tag.
+     * 
+     * @param model the name of the model
+     * @return the name of the model including its tag
+     */
+    public static String normalize(String model)
+    {
+        if(model == null || model.contains(":")) return model;
+        
+        return model + ":latest";
+    }
+    
+    /**
+     * Checks the cached list of resident models for the requested model
+     * 
+     * @param model the name of the model
+     * @return true if the model was loaded on the server as of the last check
+     */
+    public boolean hasModel(String model)
+    {
+        return loaded.contains(normalize(model));
+    }
+    
+    public Set<String> getLoadedModels()
+    {
+        return Set.copyOf(loaded);
+    }
+    
+    void loaded(String model)
+    {
+        if(model != null) loaded.add(normalize(model));
+    }
+    
+    void loaded(JSONArray<JSONObject> models)
+    {
+        var names = ConcurrentHashMap.<String>newKeySet();
+        
+        for(var model : models) names.add(normalize(model.getString("name")));
+        
+        this.loaded = names;
+    }
+    
+    /**
+     * The circuit breaker for requests to a model on this server. Requests 
+     * that don't run a model share a breaker for the server itself.
+     */
+    CircuitBreaker getBreaker(String model, Function<String,CircuitBreaker> factory)
+    {
+        var key = (model == null) ? "" : normalize(model);
+        
+        return breakers.computeIfAbsent(key, name -> factory.apply(name.isEmpty() ? baseUrl : name + "@" + baseUrl));
+    }
+    
+    Collection<CircuitBreaker> getBreakers()
+    {
+        return breakers.values();
+    }
+    
+    void clearBreakers()
+    {
+        breakers.clear();
+    }
+    
+    void begin()
+    {
+        outstanding.incrementAndGet();
+        requests.incrementAndGet();
+    }
+    
+    void end()
+    {
+        outstanding.decrementAndGet();
+    }
+    
+    void fail()
+    {
+        if(healthy) System.err.println("Ollama endpoint " + baseUrl + " is unavailable. Removing from rotation.");
+        
+        failures.incrementAndGet();
+        
+        healthy = false;
+    }
+    
+    void recover()
+    {
+        if(healthy) return;
+        
+        System.err.println("Ollama endpoint " + baseUrl + " has recovered. Returning to rotation.");
+        
+        // The server is back, so there's no need to wait out the open timeout
+        for(var breaker : breakers.values()) breaker.probe();
+        
+        healthy = true;
+    }
+    
+    void checked(boolean success)
+    {
+        lastChecked = System.currentTimeMillis();
+        
+        if(success) recover();
+        else fail();
+    }
+    
+    public JSONObject getStatus()
+    {
+        var status = new JSONObject();
+        var circuits = new JSONObject();
+        
+        for(var entry : breakers.entrySet())
+        {
+            circuits.put(entry.getKey().isEmpty() ? "*" : entry.getKey(), entry.getValue().getState().name());
+        }
+        
+        status.put("baseUrl", baseUrl);
+        status.put("healthy", healthy);
+        status.put("outstanding", outstanding.get());
+        status.put("requests", requests.get());
+        status.put("failures", failures.get());
+        status.put("lastChecked", lastChecked);
+        status.put("loaded", new JSONArray(new HashSet<>(loaded)));
+        status.put("circuits", circuits);
+        
+        return status;
+    }
+}
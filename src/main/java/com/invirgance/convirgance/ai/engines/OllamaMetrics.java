@@ -0,0 +1,420 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Records what the engine sends to each Ollama server and how the servers
+ * perform. Metrics are kept per API, model, and server and include latency 
+ * histograms, model load times, prompt and generation throughput as reported
+ * by the server, errors, and bytes transferred.
+ * <br><br>
+ * The metrics are published over JMX under 
+ * <code>com.invirgance.convirgance.ai:type=Ollama</code> while the engine is 
+ * in use. Each attribute is named for its API, model, and server, such as
+ * <code>generate:llama3.2:latest@http://localhost:11434/api.latency.p99</code>.
+ * The <code>Snapshot</code> attribute holds all of the metrics as JSON.
+ *
+ * @author jbanes
+ */
+public class OllamaMetrics implements DynamicMBean
+{
+    private static final String DOMAIN = "com.invirgance.convirgance.ai";
+    
+    private Map<String,Series> series = new ConcurrentHashMap<>();
+    private ObjectName name;
+    
+    Series getSeries(String api, String model, OllamaEndpoint endpoint)
+    {
+        var name = OllamaEndpoint.normalize(model);
+        var url = (endpoint == null) ? null : endpoint.getBaseUrl();
+        var key = api + ((name == null) ? "" : ":" + name) + "@" + url;
+        
+        return series.computeIfAbsent(key, k -> new Series(k, api, name, url));
+    }
+    
+    /**
+     * Captures the current value of every metric
+     * 
+     * @return one record per API, model, and server
+     */
+    public JSONArray<JSONObject> getSnapshot()
+    {
+        var snapshot = new JSONArray<JSONObject>();
+        
+        for(var entry : series.values()) snapshot.add(entry.getSnapshot());
+        
+        return snapshot;
+    }
+    
+    /**
+     * Finds the metrics for a model
+     * 
+     * @param api the API name such as <code>chat</code>
+     * @param model the full model name including the tag
+     * @return the metrics summed across all servers or null if there are none
+     */
+    public JSONObject getSnapshot(String api, String model)
+    {
+        JSONObject total = null;
+        
+        for(var record : getSnapshot())
+        {
+            if(!api.equals(record.getString("api"))) continue;
+            if(model != null && !OllamaEndpoint.normalize(model).equals(record.getString("model"))) continue;
+            
+            total = (total == null) ? record : sum(total, record);
+        }
+        
+        return total;
+    }
+    
+    private JSONObject sum(JSONObject total, JSONObject record)
+    {
+        var result = new JSONObject();
+        
+        for(var key : total.keySet())
+        {
+            var left = total.get(key);
+            var right = record.get(key);
+            
+            // Histograms and rates don't add up, so only the counters are summed
+            if(left instanceof Long && right instanceof Long) result.put(key, (Long)left + (Long)right);
+            else if(!(left instanceof JSONObject) && !(left instanceof Double)) result.put(key, left);
+        }
+        
+        result.put("endpoint", null);
+        
+        return result;
+    }
+    
+    /**
+     * Clears all of the recorded metrics
+     */
+    public void reset()
+    {
+        series.clear();
+    }
+    
+    synchronized void register(String name)
+    {
+        if(this.name != null) return;
+        
+        try
+        {
+            this.name = new ObjectName(DOMAIN + ":type=Ollama,name=" + ObjectName.quote(name));
+            
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, this.name);
+        }
+        catch(JMException | SecurityException e)
+        {
+            // Metrics are still available from the engine
+            this.name = null;
+        }
+    }
+    
+    synchronized void unregister()
+    {
+        if(name == null) return;
+        
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        catch(JMException | SecurityException e) 
+        { 
+            // Already gone
+        }
+        
+        name = null;
+    }
+    
+    /**
+     * The name the metrics are published under
+     * 
+     * @return the JMX name or null if the metrics aren't published
+     */
+    public synchronized ObjectName getObjectName()
+    {
+        return name;
+    }
+    
+    private static void flatten(String prefix, JSONObject record, Map<String,Object> attributes)
+    {
+        for(var key : record.keySet())
+        {
+            var value = record.get(key);
+            
+            if(value instanceof JSONObject child) flatten(prefix + key + ".", child, attributes);
+            else if(value instanceof Number) attributes.put(prefix + key, value);
+        }
+    }
+    
+    private Map<String,Object> getAttributes()
+    {
+        var attributes = new TreeMap<String,Object>();
+        
+        for(var entry : series.values()) flatten(entry.key + ".", entry.getSnapshot(), attributes);
+        
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException
+    {
+        Object value;
+        
+        if(attribute.equals("Snapshot")) return getSnapshot().toString();
+        
+        value = getAttributes().get(attribute);
+        
+        if(value == null) throw new AttributeNotFoundException(attribute);
+        
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+    {
+        throw new AttributeNotFoundException(attribute.getName() + " is read only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names)
+    {
+        var list = new AttributeList();
+        var attributes = getAttributes();
+        
+        for(var name : names)
+        {
+            if(name.equals("Snapshot")) list.add(new Attribute(name, getSnapshot().toString()));
+            else if(attributes.containsKey(name)) list.add(new Attribute(name, attributes.get(name)));
+        }
+        
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes)
+    {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException
+    {
+        if(!action.equals("reset")) throw new ReflectionException(new NoSuchMethodException(action));
+        
+        reset();
+        
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        var attributes = new ArrayList<MBeanAttributeInfo>();
+        var operations = new MBeanOperationInfo[] { 
+            new MBeanOperationInfo("reset", "Clears all of the recorded metrics", null, "void", MBeanOperationInfo.ACTION) 
+        };
+        
+        attributes.add(new MBeanAttributeInfo("Snapshot", "java.lang.String", "All metrics as JSON", true, false, false));
+        
+        for(var entry : getAttributes().entrySet())
+        {
+            attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(), entry.getKey(), true, false, false));
+        }
+        
+        return new MBeanInfo(getClass().getName(), "Ollama engine metrics", attributes.toArray(MBeanAttributeInfo[]::new), null, operations, null);
+    }
+    
+    /**
+     * Counts latencies into buckets whose bounds grow roughly by half an 
+     * order of magnitude. Percentiles are reported as the upper bound of 
+     * their bucket.
+     */
+    static class Histogram
+    {
+        private static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 50000, 100000, 200000, 500000 };
+        
+        private AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+        private LongAdder count = new LongAdder();
+        private LongAdder total = new LongAdder();
+        private AtomicLong max = new AtomicLong();
+        
+        void record(long nanos)
+        {
+            var millis = nanos / 1000000.0;
+            var bucket = 0;
+            
+            while(bucket < BOUNDS.length && millis > BOUNDS[bucket]) bucket++;
+            
+            counts.incrementAndGet(bucket);
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+        
+        private double getPercentile(double percentile, long count)
+        {
+            var target = (long)Math.ceil(count * percentile / 100);
+            var seen = 0L;
+            var max = this.max.get() / 1000000.0;
+            
+            for(int i=0; i<counts.length(); i++)
+            {
+                seen += counts.get(i);
+                
+                if(seen >= target && seen > 0) return (i < BOUNDS.length) ? Math.min(BOUNDS[i], max) : max;
+            }
+            
+            return 0;
+        }
+        
+        JSONObject getSnapshot()
+        {
+            var snapshot = new JSONObject();
+            var buckets = new JSONObject();
+            var count = this.count.sum();
+            
+            snapshot.put("count", count);
+            snapshot.put("mean", (count > 0) ? total.sum() / 1000000.0 / count : 0.0);
+            snapshot.put("p50", getPercentile(50, count));
+            snapshot.put("p90", getPercentile(90, count));
+            snapshot.put("p99", getPercentile(99, count));
+            snapshot.put("max", max.get() / 1000000.0);
+            
+            for(int i=0; i<counts.length(); i++)
+            {
+                buckets.put((i < BOUNDS.length) ? String.valueOf(BOUNDS[i]) : "inf", counts.get(i));
+            }
+            
+            snapshot.put("buckets", buckets);
+            
+            return snapshot;
+        }
+    }
+    
+    static class Series
+    {
+        String key;
+        String api;
+        String model;
+        String endpoint;
+        
+        LongAdder requests = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder bytesSent = new LongAdder();
+        LongAdder bytesReceived = new LongAdder();
+        LongAdder promptTokens = new LongAdder();
+        LongAdder promptNanos = new LongAdder();
+        LongAdder evalTokens = new LongAdder();
+        LongAdder evalNanos = new LongAdder();
+        Map<String,LongAdder> failures = new ConcurrentHashMap<>();
+        
+        Histogram latency = new Histogram();
+        Histogram firstByte = new Histogram();
+        Histogram load = new Histogram();
+
+        public Series(String key, String api, String model, String endpoint)
+        {
+            this.key = key;
+            this.api = api;
+            this.model = model;
+            this.endpoint = endpoint;
+        }
+        
+        void failed(String reason)
+        {
+            errors.increment();
+            failures.computeIfAbsent(reason, key -> new LongAdder()).increment();
+        }
+        
+        /**
+         * Records the timings the server reports in its final response
+         */
+        void record(JSONObject response)
+        {
+            if(response.get("load_duration") instanceof Number value) load.record(value.longValue());
+            
+            if(response.get("prompt_eval_count") instanceof Number value) promptTokens.add(value.longValue());
+            if(response.get("prompt_eval_duration") instanceof Number value) promptNanos.add(value.longValue());
+            if(response.get("eval_count") instanceof Number value) evalTokens.add(value.longValue());
+            if(response.get("eval_duration") instanceof Number value) evalNanos.add(value.longValue());
+        }
+        
+        private double getRate(LongAdder tokens, LongAdder nanos)
+        {
+            var duration = nanos.sum();
+            
+            return (duration > 0) ? tokens.sum() * 1000000000.0 / duration : 0.0;
+        }
+        
+        JSONObject getSnapshot()
+        {
+            var snapshot = new JSONObject();
+            var failures = new JSONObject();
+            
+            for(var entry : this.failures.entrySet()) failures.put(entry.getKey(), entry.getValue().sum());
+            
+            snapshot.put("api", api);
+            snapshot.put("model", model);
+            snapshot.put("endpoint", endpoint);
+            snapshot.put("requests", requests.sum());
+            snapshot.put("errors", errors.sum());
+            snapshot.put("failures", failures);
+            snapshot.put("bytesSent", bytesSent.sum());
+            snapshot.put("bytesReceived", bytesReceived.sum());
+            snapshot.put("latency", latency.getSnapshot());
+            snapshot.put("firstByte", firstByte.getSnapshot());
+            snapshot.put("load", load.getSnapshot());
+            snapshot.put("promptTokens", promptTokens.sum());
+            snapshot.put("promptTokensPerSecond", getRate(promptTokens, promptNanos));
+            snapshot.put("evalTokens", evalTokens.sum());
+            snapshot.put("evalTokensPerSecond", getRate(evalTokens, evalNanos));
+            
+            return snapshot;
+        }
+    }
+}
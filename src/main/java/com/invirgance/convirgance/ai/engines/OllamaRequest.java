@@ -0,0 +1,728 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2025 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.Source;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A single call to the Ollama API, read as a {@link Source}. Opening the 
+ * stream runs the request through the engine: coalescing with identical 
+ * requests, the model's {@link Bulkhead} and the connection pool, the circuit
+ * breakers, server selection, retries with backoff, and hedging. The 
+ * {@link Deadline} entered when the request was created bounds every step.
+ * The returned stream hands the permits back once the response is read or
+ * closed.
+ *
+ * @author jbanes
+ */
+class OllamaRequest implements Source
+{
+    private Ollama engine;
+    private EndpointSelector selector;
+    
+    private String api;
+    private String method;
+    private JSONObject message;
+    private OllamaEndpoint endpoint;
+    private Deadline deadline = Deadline.current();
+    private volatile boolean bounded;
+    
+    private long started;
+    private volatile OllamaEndpoint served;
+
+    public OllamaRequest(Ollama engine, String api)
+    {
+        this(engine, api, "GET");
+    }
+    
+    public OllamaRequest(Ollama engine, String api, JSONObject message)
+    {
+        this(engine, api, "POST", message);
+    }
+    
+    public OllamaRequest(Ollama engine, String api, String method)
+    {
+        this(engine, api, method, null);
+    }
+    
+    public OllamaRequest(Ollama engine, String api, String method, JSONObject message)
+    {
+        this(engine, api, method, message, null);
+    }
+    
+    public OllamaRequest(Ollama engine, String api, String method, JSONObject message, OllamaEndpoint endpoint)
+    {
+        this.engine = engine;
+        this.selector = engine.getSelector();
+        this.api = api;
+        this.method = method;
+        this.message = message;
+        this.endpoint = endpoint;
+    }
+    
+    private URI getUri(OllamaEndpoint endpoint, String path)
+    {
+        try
+        {
+            if(!path.startsWith("/")) path = "/" + path;
+
+            return new URI(endpoint.getBaseUrl() + path);
+        }
+        catch(URISyntaxException e) { throw new ConvirganceException(e); }
+    }
+    
+    /**
+     * The model this request will run, if any. Management calls such as
+     * show and pull reference a model without loading it.
+     * 
+     * @return the name of the model or null
+     */
+    private String getModel()
+    {
+        if(message == null) return null;
+        if(!api.equals("chat") && !api.equals("generate") && !api.equals("embed")) return null;
+        
+        return message.getString("model");
+    }
+    
+    private OllamaMetrics.Series getSeries(OllamaEndpoint endpoint)
+    {
+        return engine.getMetrics().getSeries(api, getModel(), endpoint);
+    }
+    
+    /**
+     * Records the timings reported by the server once the response is done
+     */
+    public void completed(JSONObject record)
+    {
+        var endpoint = served; // Null when the response was shared by another request
+        
+        if(endpoint == null) return;
+        if(!record.containsKey("total_duration") && !record.getBoolean("done", false)) return;
+        
+        getSeries(endpoint).record(record);
+    }
+    
+    private String getFailure(Throwable error)
+    {
+        if(error instanceof HttpConnectTimeoutException || error instanceof ConnectException) return "connect";
+        if(error instanceof HttpTimeoutException) return "timeout";
+        if(error instanceof IOException) return "io";
+        
+        return "other";
+    }
+    
+    private HttpRequest getRequest(OllamaEndpoint endpoint)
+    {
+        var request = HttpRequest.newBuilder(getUri(endpoint, api));
+        var readTimeout = engine.getReadTimeout();
+        var timeout = (deadline == null) ? readTimeout : deadline.bound(readTimeout, api);
+        
+        // The client's timer can fire a moment before the deadline reads as expired
+        bounded = (deadline != null && (readTimeout <= 0 || timeout < readTimeout));
+        
+        if(timeout > 0) request.timeout(Duration.ofMillis(timeout));
+        
+        if(message == null) return request.method(method, BodyPublishers.noBody()).build();
+        
+        request.header("Content-Type", "application/json");
+        
+        // Serialized as the client sends it using chunked transfer encoding
+        return request.method(method, BodyPublishers.ofInputStream(() -> new JSONBodyStream(message, getSeries(endpoint).bytesSent))).build();
+    }
+    
+    private void handleError(InputStream in)
+    {
+        if(in == null) return;
+        
+        var out = new ByteArrayOutputStream();
+        var data = new byte[4096];
+        
+        String result;
+        int count;
+        
+        try(in)
+        {
+            while((count = in.read(data)) > 0)
+            {
+                out.write(data, 0, count);
+            }
+            
+            result = new String(out.toByteArray(), "UTF-8");
+            
+            System.out.println(result);
+        }
+        catch(IOException e) { throw new ConvirganceException(e); }
+    }
+    
+    private void acquire(Semaphore connections)
+    {
+        var connectTimeout = engine.getConnectTimeout();
+        var timeout = (deadline == null) ? connectTimeout : deadline.bound(connectTimeout, "connection");
+        
+        try
+        {
+            if(!connections.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+            {
+                if(deadline != null) deadline.check("connection");
+                
+                throw new ConvirganceException("Timed out waiting for a free connection to " + engine.getBaseUrl());
+            }
+        }
+        catch(InterruptedException e) 
+        { 
+            Thread.currentThread().interrupt();
+            
+            throw new ConvirganceException(e); 
+        }
+    }
+    
+    private boolean isIdempotent()
+    {
+        switch(api)
+        {
+            case "embed":
+            case "show":
+            case "tags":
+            case "ps":
+                return true;
+                
+            case "generate":
+                return !message.getBoolean("stream", true);
+                
+            default:
+                return false;
+        }
+    }
+    
+    private LatencyWindow getLatency()
+    {
+        var model = getModel();
+        var key = (model == null) ? api : api + ":" + model;
+        
+        return engine.getLatency(key);
+    }
+    
+    private long getHedgeDelay()
+    {
+        if(engine.getHedgePercentile() <= 0 || this.endpoint != null || !isIdempotent()) return -1;
+        if(engine.getEndpoints().size() < 2) return -1;
+        
+        var latency = getLatency().getPercentile(engine.getHedgePercentile());
+        
+        return (latency < 0) ? -1 : Math.max(latency, engine.getMinHedgeDelay());
+    }
+    
+    private long getBackoff(int attempt)
+    {
+        long delay = Math.min(engine.getMaxRetryBackoff(), (long)engine.getRetryBackoff() << Math.min(attempt, 20));
+        
+        // Half fixed, half random so retries spread out but still back off
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+    
+    private HttpResponse<InputStream> call(OllamaEndpoint endpoint) throws IOException, InterruptedException
+    {
+        var latency = (engine.getHedgePercentile() > 0) ? getLatency() : null;
+        var breaker = selector.getBreaker(endpoint, getModel());
+        var started = System.nanoTime();
+        HttpResponse<InputStream> response;
+        
+        if(breaker != null) breaker.acquire();
+        
+        endpoint.begin();
+        getSeries(endpoint).requests.increment();
+        
+        try
+        {
+            response = engine.getClient().send(getRequest(endpoint), BodyHandlers.ofInputStream());
+        }
+        catch(IOException | InterruptedException | RuntimeException e)
+        {
+            endpoint.end();
+            failed(breaker, e);
+            getSeries(endpoint).failed(getFailure(e));
+            
+            throw e;
+        }
+        
+        if(latency != null) latency.record(System.nanoTime() - started);
+        
+        return response;
+    }
+    
+    private CompletableFuture<HttpResponse<InputStream>> start(OllamaEndpoint endpoint)
+    {
+        var latency = getLatency();
+        var breaker = selector.getBreaker(endpoint, getModel());
+        var started = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> future;
+        
+        if(breaker != null) breaker.acquire();
+        
+        endpoint.begin();
+        getSeries(endpoint).requests.increment();
+        
+        try
+        {
+            future = engine.getClient().sendAsync(getRequest(endpoint), BodyHandlers.ofInputStream());
+        }
+        catch(RuntimeException e)
+        {
+            endpoint.end();
+            failed(breaker, e);
+            getSeries(endpoint).failed(getFailure(e));
+            
+            throw e;
+        }
+        
+        future.whenComplete((response, error) -> {
+            if(error == null) 
+            {
+                latency.record(System.nanoTime() - started);
+                return;
+            }
+            
+            endpoint.end();
+            failed(breaker, error);
+            
+            // Hedges that lost the race are cancelled rather than failed
+            if(!future.isCancelled()) getSeries(endpoint).failed(getFailure(error));
+        });
+        
+        return future;
+    }
+    
+    private void failed(CircuitBreaker breaker, Throwable error)
+    {
+        if(breaker == null) return;
+        
+        // Cancelled calls say nothing about the health of the server
+        if(error instanceof IOException) breaker.failure();
+        else breaker.release();
+    }
+    
+    private void answered(OllamaEndpoint endpoint, int status)
+    {
+        var breaker = selector.getBreaker(endpoint, getModel());
+        
+        if(breaker == null) return;
+        if(OllamaResponseException.isRetryable(status)) breaker.failure();
+        else breaker.success();
+    }
+    
+    private CircuitOpenException getCircuitOpenException(String model)
+    {
+        var endpoints = (this.endpoint != null) ? List.of(this.endpoint) : engine.getEndpoints();
+        var retryAfter = Long.MAX_VALUE;
+        CircuitBreaker breaker = null;
+        
+        for(var endpoint : endpoints)
+        {
+            breaker = selector.getBreaker(endpoint, model);
+            
+            if(breaker != null) retryAfter = Math.min(retryAfter, breaker.getRetryAfter());
+        }
+        
+        if(breaker == null) return new CircuitOpenException(((model == null) ? "requests" : model) + " on all servers", 0);
+        if(endpoints.size() == 1) return new CircuitOpenException(breaker.getName(), retryAfter);
+        
+        return new CircuitOpenException(((model == null) ? "requests" : model) + " on all servers", retryAfter);
+    }
+    
+    private void checkCircuit(String model)
+    {
+        if(engine.getCircuitFailureRate() < 1) return;
+        if(this.endpoint != null && selector.isPermitted(this.endpoint, model)) return;
+        if(this.endpoint == null && selector.select(model, List.of()) != null) return;
+        
+        throw getCircuitOpenException(model);
+    }
+    
+    private <T> T receive(CompletableFuture<T> future, long timeout) throws IOException, InterruptedException
+    {
+        try
+        {
+            if(timeout < 0) return future.get();
+            
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch(TimeoutException e)
+        {
+            return null;
+        }
+        catch(InterruptedException e)
+        {
+            future.cancel(true);
+            
+            throw e;
+        }
+        catch(ExecutionException e)
+        {
+            if(e.getCause() instanceof IOException cause) throw cause;
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            
+            throw new ConvirganceException(e.getCause());
+        }
+    }
+    
+    private InputStream accept(OllamaEndpoint endpoint, HttpResponse<InputStream> response, Runnable release)
+    {
+        var warmer = engine.getActiveWarmer();
+        var series = getSeries(endpoint);
+        var started = this.started;
+        
+        answered(endpoint, response.statusCode());
+        series.firstByte.record(System.nanoTime() - started);
+        
+        if(response.statusCode() >= 400)
+        {
+            endpoint.end();
+            series.failed("http " + response.statusCode());
+            handleError(response.body());
+
+            throw new OllamaResponseException("Server returned HTTP response code: " + response.statusCode() + " for URL: " + response.request().uri(), response.statusCode());
+        }
+        
+        endpoint.recover();
+        
+        endpoint.loaded(getModel()); // Serving the request loads the model
+        
+        if(warmer != null) warmer.used(getModel());
+        
+        served = endpoint;
+        
+        var stream = new ResponseStream(response.body(), series.bytesReceived, () -> {
+            series.latency.record(System.nanoTime() - started);
+            endpoint.end();
+            release.run();
+        });
+        
+        // The request timeout stops at the headers, so bound reading the body too
+        if(deadline != null) stream.abortAfter(engine.getScheduler(), deadline.getRemaining(), () -> new DeadlineExceededException(api, deadline.getBudget()));
+        
+        return stream;
+    }
+    
+    private InputStream send(OllamaEndpoint endpoint, Collection<OllamaEndpoint> tried, Runnable release) throws IOException, InterruptedException
+    {
+        var delay = getHedgeDelay();
+        var connections = engine.getConnections();
+        
+        CompletableFuture<HttpResponse<InputStream>> primary;
+        CompletableFuture<HttpResponse<InputStream>> hedge;
+        HttpResponse<InputStream> response;
+        OllamaEndpoint secondary;
+        
+        // Blocking sends avoid a hand off to the client's executor
+        if(delay < 0) return accept(endpoint, call(endpoint), release);
+        
+        primary = start(endpoint);
+        
+        if((response = receive(primary, delay)) != null) return accept(endpoint, response, release);
+        
+        secondary = selector.select(getModel(), tried);
+        
+        if(secondary == null || !connections.tryAcquire()) return accept(endpoint, receive(primary, -1), release);
+        
+        tried.add(secondary);
+        
+        try
+        {
+            hedge = start(secondary);
+        }
+        catch(RuntimeException e)
+        {
+            // The breaker is open or the request couldn't be sent. Either
+            // way the primary is still running, so wait for it instead.
+            connections.release();
+            
+            return accept(endpoint, receive(primary, -1), release);
+        }
+        
+        engine.hedged();
+        
+        return race(endpoint, primary, secondary, hedge, release);
+    }
+    
+    private InputStream race(OllamaEndpoint endpoint, CompletableFuture<HttpResponse<InputStream>> primary, OllamaEndpoint secondary, CompletableFuture<HttpResponse<InputStream>> hedge, Runnable release) throws IOException, InterruptedException
+    {
+        var winner = new CompletableFuture<OllamaEndpoint>();
+        var connections = engine.getConnections();
+        
+        CompletableFuture<HttpResponse<InputStream>> loser;
+        OllamaEndpoint chosen;
+        
+        // The first answer wins. If both fail, the last error is reported.
+        primary.whenComplete((response, error) -> {
+            if(error == null) winner.complete(endpoint);
+            else if(hedge.isCompletedExceptionally()) winner.completeExceptionally(error);
+        });
+        
+        hedge.whenComplete((response, error) -> {
+            if(error == null) winner.complete(secondary);
+            else if(primary.isCompletedExceptionally()) winner.completeExceptionally(error);
+        });
+        
+        try
+        {
+            chosen = receive(winner, -1);
+        }
+        catch(IOException | InterruptedException | RuntimeException e)
+        {
+            primary.cancel(true);
+            hedge.cancel(true);
+            connections.release();
+            
+            throw e;
+        }
+        
+        if(chosen == secondary) engine.hedgeWon();
+        
+        loser = (chosen == endpoint) ? hedge : primary;
+        
+        loser.cancel(true);
+        loser.whenComplete((response, error) -> {
+            // Answered before it could be cancelled, so discard the answer
+            var other = (chosen == endpoint) ? secondary : endpoint;
+            
+            if(error == null) 
+            {
+                try { response.body().close(); } catch(IOException e) { }
+                
+                answered(other, response.statusCode());
+                other.end();
+            }
+            
+            connections.release();
+        });
+        
+        return accept(chosen, receive((chosen == endpoint) ? primary : hedge, -1), release);
+    }
+    
+    private InputStream route(String model, Collection<OllamaEndpoint> tried, Runnable release) throws IOException, InterruptedException
+    {
+        OllamaEndpoint endpoint;
+        
+        while(true)
+        {
+            endpoint = (this.endpoint != null) ? this.endpoint : selector.select(model, tried);
+            
+            if(endpoint == null) throw getCircuitOpenException(model);
+
+            tried.add(endpoint);
+
+            try
+            {
+                return send(endpoint, tried, release);
+            }
+            catch(ConnectException | HttpConnectTimeoutException e)
+            {
+                // Nothing reached the server, so another server can safely take the request
+                endpoint.fail();
+
+                if(this.endpoint != null || selector.select(model, tried) == null) throw e;
+            }
+            catch(CircuitOpenException e)
+            {
+                // Another request took the trial call on this server
+                if(this.endpoint != null || selector.select(model, tried) == null) throw e;
+            }
+        }
+    }
+    
+    private boolean isCoalescable()
+    {
+        var options = (message == null) ? null : message.getJSONObject("options");
+        
+        switch(api)
+        {
+            // Sampled answers differ on each call. Callers asking the 
+            // same question expect their own answer, not a shared one.
+            case "chat":
+            case "generate":
+                if(options == null) return false;
+                if(options.get("seed") != null) return true;
+                
+                return (options.get("temperature") instanceof Number temperature && temperature.doubleValue() == 0);
+                
+            case "embed":
+            case "show":
+            case "tags":
+            case "ps":
+                return true;
+                
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    public InputStream getInputStream()
+    {
+        // Requests pinned to a server, such as warm ups, must reach that server.
+        // Requests with a deadline can't wait on a flight bound by another's.
+        if(!engine.isCoalesce() || this.endpoint != null || deadline != null || !isCoalescable()) return open();
+        
+        return engine.getFlights().open(SingleFlight.getKey(api, message), this::open);
+    }
+    
+    private InputStream open()
+    {
+        var model = getModel();
+        var warmer = engine.getActiveWarmer();
+        var bulkhead = (message == null) ? null : engine.getBulkhead(api, message);
+        var connections = engine.getConnections();
+        var tried = new ArrayList<OllamaEndpoint>();
+        var held = false;
+        
+        long delay;
+        
+        started = System.nanoTime();
+        
+        if(warmer != null && message != null) message = warmer.apply(model, message);
+        if(deadline != null) deadline.check(api);
+        
+        checkCircuit(model); // Fail fast rather than queue for a server that is down
+        
+        Runnable release = () -> {
+            connections.release();
+            
+            if(bulkhead != null) bulkhead.release();
+        };
+        
+        acquire(bulkhead, connections);
+        
+        held = true;
+        
+        try
+        {
+            for(int attempt=0; ; attempt++)
+            {
+                try
+                {
+                    return route(model, tried, release);
+                }
+                catch(IOException | OllamaResponseException e)
+                {
+                    if(attempt >= engine.getMaxRetries() || !isIdempotent()) throw e;
+                    if(e instanceof HttpTimeoutException && !(e instanceof HttpConnectTimeoutException)) throw e; // The read timeout bounds the whole call
+                    if(e instanceof OllamaResponseException response && !response.isRetryable()) throw e;
+                    
+                    delay = getBackoff(attempt);
+                    
+                    if(deadline != null && delay >= deadline.getRemaining()) throw e; // No time left to retry
+                    
+                    // Let other requests use the permits while backing off
+                    release.run();
+                    
+                    held = false;
+                    
+                    Thread.sleep(delay);
+                    engine.retried();
+                    
+                    // Prefer a server that hasn't failed yet, but start over once all have
+                    if(selector.select(model, tried) == null) tried.clear();
+                    
+                    acquire(bulkhead, connections);
+                    
+                    held = true;
+                }
+            }
+        }
+        catch(IOException e) 
+        { 
+            if(held) release.run();
+            
+            if(deadline != null) deadline.check(api);
+            if(bounded && e instanceof HttpTimeoutException && !(e instanceof HttpConnectTimeoutException)) throw new DeadlineExceededException(api, deadline.getBudget());
+            
+            throw new ConvirganceException(e); 
+        }
+        catch(InterruptedException e) 
+        { 
+            if(held) release.run();
+            
+            Thread.currentThread().interrupt();
+            
+            throw new ConvirganceException(e); 
+        }
+        catch(RuntimeException e)
+        {
+            if(held) release.run();
+            
+            throw e;
+        }
+    }
+    
+    private void acquire(Bulkhead bulkhead, Semaphore connections)
+    {
+        try
+        {
+            if(bulkhead != null && deadline != null) bulkhead.acquire(deadline.bound(engine.getQueueTimeout(), "queue"));
+            else if(bulkhead != null) bulkhead.acquire();
+        }
+        catch(ConvirganceException e)
+        {
+            if(deadline != null) deadline.check("queue");
+            
+            throw e;
+        }
+        
+        try
+        {
+            acquire(connections);
+        }
+        catch(RuntimeException e)
+        {
+            if(bulkhead != null) bulkhead.release();
+            
+            throw e;
+        }
+    }
+}
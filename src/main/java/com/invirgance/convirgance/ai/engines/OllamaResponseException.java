@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+
+/**
+ * Thrown when the Ollama server answers a request with an HTTP error
+ *
+ * @author jbanes
+ */
+public class OllamaResponseException extends ConvirganceException
+{
+    private int statusCode;
+
+    public OllamaResponseException(String message, int statusCode)
+    {
+        super(message);
+        
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+    
+    /**
+     * Checks if the error is likely to be temporary. Timeouts, rate limiting,
+     * and server errors may succeed if the request is sent again.
+     * 
+     * @return true if the request can be retried
+     */
+    public boolean isRetryable()
+    {
+        return isRetryable(statusCode);
+    }
+    
+    static boolean isRetryable(int statusCode)
+    {
+        return (statusCode == 408 || statusCode == 429 || statusCode >= 500);
+    }
+}
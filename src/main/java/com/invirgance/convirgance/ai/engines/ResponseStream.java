@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a response body so that the resources held by the request (connection
+ * permits, etc.) are handed back as soon as the body is either fully read or
+ * closed, whichever happens first. Streams that are abandoned without being
+ * closed release their resources when garbage collected.
+ * 
+ * @author jbanes
+ */
+class ResponseStream extends FilterInputStream
+{
+    private static final Cleaner cleaner = Cleaner.create();
+    
+    private Cleaner.Cleanable release;
+    private volatile RuntimeException failure;
+    private volatile Future<?> timer;
+    private LongAdder received;
+
+    public ResponseStream(InputStream in, Runnable release)
+    {
+        this(in, null, release);
+    }
+    
+    /**
+     * @param in the response body
+     * @param received counts the bytes read from the body, or null
+     * @param release returns the resources held by the request
+     */
+    public ResponseStream(InputStream in, LongAdder received, Runnable release)
+    {
+        super(in);
+        
+        this.received = received;
+        this.release = cleaner.register(this, release);
+    }
+    
+    private void release()
+    {
+        if(timer != null) timer.cancel(false);
+        
+        release.clean(); // Only ever runs once
+    }
+    
+    /**
+     * Aborts the stream if it is still open after the delay
+     * 
+     * @param scheduler runs the abort
+     * @param delay milliseconds to wait
+     * @param failure creates the error reported to the reader
+     */
+    public void abortAfter(ScheduledExecutorService scheduler, long delay, Supplier<RuntimeException> failure)
+    {
+        timer = scheduler.schedule(() -> abort(failure.get()), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes the stream from any thread, causing blocked and future reads to
+     * fail with the given error
+     * 
+     * @param failure the error to report to the reader
+     */
+    public void abort(RuntimeException failure)
+    {
+        this.failure = failure;
+        
+        try
+        {
+            close();
+        }
+        catch(IOException e)
+        {
+            // Already failing with a better error
+        }
+    }
+    
+    private IOException fail(IOException e)
+    {
+        if(failure != null) throw aborted();
+        
+        // The body is unusable. Another thread closing the stream may still 
+        // be tearing down the connection, so hand the permits back now rather
+        // than leaving the reader to return before they are released.
+        release();
+        
+        return e;
+    }
+    
+    private RuntimeException aborted()
+    {
+        release(); // Don't leave the reader racing the abort for the permits
+        
+        return failure;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        int value;
+        
+        if(failure != null) throw aborted();
+        
+        try
+        {
+            value = super.read();
+        }
+        catch(IOException e)
+        {
+            throw fail(e);
+        }
+        
+        if(value < 0 && failure != null) throw aborted();
+        if(value < 0) release();
+        else if(received != null) received.increment();
+        
+        return value;
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length) throws IOException
+    {
+        int count;
+        
+        if(failure != null) throw aborted();
+        
+        try
+        {
+            count = super.read(data, offset, length);
+        }
+        catch(IOException e)
+        {
+            throw fail(e);
+        }
+        
+        if(count < 0 && failure != null) throw aborted();
+        if(count < 0) release();
+        else if(received != null) received.add(count);
+        
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            release();
+        }
+    }
+}
@@ -0,0 +1,461 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical requests that are in flight at the same time. The first
+ * caller for a key makes the request. The response is copied into a shared 
+ * buffer and every caller, including the first, reads its own replay of the
+ * buffer. Whichever caller runs out of buffered data first reads the next 
+ * chunk from the server, so no extra thread is needed and a caller that stops
+ * reading doesn't hold up the others. Callers that join while the response is
+ * still streaming see it from the beginning. The request is cancelled once
+ * every caller has closed its stream.
+ * <br><br>
+ * Replaying from the beginning means keeping the whole response. Once a
+ * response grows past {@link #getMaxReplaySize()}, the flight stops accepting
+ * new callers, who make a request of their own instead, and data every
+ * remaining caller has read is discarded.
+ *
+ * @author jbanes
+ */
+class SingleFlight
+{
+    private Map<String,Flight> flights = new ConcurrentHashMap<>();
+    
+    private int maxReplaySize = 1024 * 1024;
+    
+    private AtomicLong requests = new AtomicLong();
+    private AtomicLong upstream = new AtomicLong();
+    private AtomicLong coalesced = new AtomicLong();
+    
+    /**
+     * Produces a key that is identical for identical requests regardless of
+     * the order in which their keys were added
+     * 
+     * @param api the API being called
+     * @param message the body of the request
+     * @return the key for the request
+     */
+    public static String getKey(String api, Object message)
+    {
+        var key = new StringBuilder(api).append(' ');
+        
+        append(key, message);
+        
+        return key.toString();
+    }
+    
+    private static void append(StringBuilder key, Object value)
+    {
+        boolean first = true;
+        
+        if(value instanceof Map map)
+        {
+            key.append('{');
+            
+            for(var name : new TreeSet<String>(map.keySet()))
+            {
+                if(!first) key.append(',');
+                
+                append(key, name);
+                key.append(':');
+                append(key, map.get(name));
+                
+                first = false;
+            }
+            
+            key.append('}');
+        }
+        else if(value instanceof Iterable iterable)
+        {
+            key.append('[');
+            
+            for(var item : iterable)
+            {
+                if(!first) key.append(',');
+                
+                append(key, item);
+                
+                first = false;
+            }
+            
+            key.append(']');
+        }
+        else if(value instanceof String string)
+        {
+            key.append('"').append(string.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        else
+        {
+            key.append(value);
+        }
+    }
+    
+    /**
+     * The number of bytes of a response kept so that new callers can join the
+     * request. Defaults to 1MB.
+     * 
+     * @return the maximum size of the replay buffer in bytes
+     */
+    public int getMaxReplaySize()
+    {
+        return maxReplaySize;
+    }
+
+    public void setMaxReplaySize(int maxReplaySize)
+    {
+        this.maxReplaySize = maxReplaySize;
+    }
+    
+    /**
+     * Joins the request in flight for the key or makes the request if there 
+     * is none
+     * 
+     * @param key identifies identical requests
+     * @param request makes the request and returns the response
+     * @return a stream of the response for this caller
+     */
+    public InputStream open(String key, Supplier<InputStream> request)
+    {
+        var flight = new Flight(key, maxReplaySize);
+        Flight existing;
+        InputStream replay;
+        InputStream in;
+        
+        requests.incrementAndGet();
+        
+        while((existing = flights.putIfAbsent(key, flight)) != null)
+        {
+            if((replay = existing.join()) != null)
+            {
+                coalesced.incrementAndGet();
+                
+                return existing.await(replay);
+            }
+            
+            flights.remove(key, existing); // Cancelled or too long to replay, so start over
+        }
+        
+        upstream.incrementAndGet();
+        replay = flight.join();
+        
+        try
+        {
+            in = request.get();
+        }
+        catch(RuntimeException e)
+        {
+            flights.remove(key, flight);
+            flight.started.completeExceptionally(e);
+            
+            throw e;
+        }
+        
+        flight.upstream = in;
+        flight.started.complete(null);
+        
+        return replay;
+    }
+    
+    public int getInFlight()
+    {
+        return flights.size();
+    }
+    
+    /**
+     * Reports the number of coalescable requests, how many of them reached 
+     * the server, and how many were served by a request already in flight
+     * 
+     * @return the coalescing statistics
+     */
+    public JSONObject getStatistics()
+    {
+        var statistics = new JSONObject();
+        
+        statistics.put("requests", requests.get());
+        statistics.put("upstream", upstream.get());
+        statistics.put("coalesced", coalesced.get());
+        statistics.put("inFlight", flights.size());
+        
+        return statistics;
+    }
+    
+    private class Flight
+    {
+        private String key;
+        private int limit;
+        private CompletableFuture<Void> started = new CompletableFuture<>();
+        private InputStream upstream;
+        
+        private byte[] buffer = new byte[8192];
+        private byte[] chunk = new byte[8192];
+        private boolean pumping;
+        private long base;
+        private int size;
+        private boolean done;
+        private IOException error;
+        private List<Replay> readers = new ArrayList<>();
+        private boolean cancelled;
+        private boolean sealed;
+
+        public Flight(String key, int limit)
+        {
+            this.key = key;
+            this.limit = limit;
+        }
+        
+        public synchronized Replay join()
+        {
+            Replay replay;
+            
+            if(cancelled || sealed) return null;
+            
+            replay = new Replay();
+            
+            readers.add(replay);
+            
+            return replay;
+        }
+        
+        public InputStream await(InputStream replay)
+        {
+            try
+            {
+                started.join();
+            }
+            catch(CompletionException e)
+            {
+                try { replay.close(); } catch(IOException ignore) { }
+                
+                if(e.getCause() instanceof RuntimeException cause) throw cause;
+                
+                throw new ConvirganceException(e.getCause());
+            }
+            
+            return replay;
+        }
+        
+        private void leave(Replay replay)
+        {
+            boolean cancel;
+            
+            synchronized(this)
+            {
+                readers.remove(replay);
+                cancel = (readers.isEmpty() && !done);
+                
+                if(cancel) cancelled = true;
+            }
+            
+            if(!cancel) return;
+            
+            // Nobody is listening any more, so stop the request
+            flights.remove(key, this);
+            
+            try
+            {
+                if(upstream != null) upstream.close();
+            }
+            catch(IOException e) { }
+        }
+        
+        private void append(byte[] data, int count)
+        {
+            boolean seal;
+            
+            synchronized(this)
+            {
+                if(sealed) discard();
+                
+                if(size + count > buffer.length)
+                {
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+                }
+
+                System.arraycopy(data, 0, buffer, size, count);
+
+                size += count;
+                pumping = false;
+                seal = (!sealed && base + size > limit);
+                
+                if(seal) sealed = true;
+
+                notifyAll();
+            }
+            
+            // New callers would need the data that is about to be discarded
+            if(seal) flights.remove(key, this);
+        }
+        
+        private void discard()
+        {
+            var position = base + size;
+            int count;
+            
+            for(var reader : readers) position = Math.min(position, reader.position);
+            
+            count = (int)(position - base);
+            
+            // Only worth the copy once it frees a good part of the buffer
+            if(count < buffer.length / 2) return;
+            
+            System.arraycopy(buffer, count, buffer, 0, size - count);
+            
+            base += count;
+            size -= count;
+        }
+        
+        private void finish(IOException error)
+        {
+            // New callers must make a new request from here on
+            flights.remove(key, this);
+            
+            synchronized(this)
+            {
+                this.done = true;
+                this.error = error;
+                this.pumping = false;
+                
+                notifyAll();
+            }
+            
+            try
+            {
+                upstream.close();
+            }
+            catch(IOException e) { }
+        }
+        
+        private int read(long position, byte[] data, int offset, int length) throws IOException
+        {
+            int count;
+            
+            while(true)
+            {
+                synchronized(this)
+                {
+                    try
+                    {
+                        while(position >= base + size && !done && pumping) wait();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+
+                        throw new InterruptedIOException();
+                    }
+                    
+                    if(position < base + size)
+                    {
+                        length = (int)Math.min(length, base + size - position);
+
+                        System.arraycopy(buffer, (int)(position - base), data, offset, length);
+
+                        return length;
+                    }
+                    
+                    if(done)
+                    {
+                        if(error != null) throw new IOException(error.getMessage(), error);
+
+                        return -1;
+                    }
+                    
+                    pumping = true;
+                }
+                
+                // This caller is furthest ahead, so it reads the next chunk
+                try
+                {
+                    count = upstream.read(chunk);
+                }
+                catch(IOException | RuntimeException e)
+                {
+                    finish((e instanceof IOException) ? (IOException)e : new IOException(e));
+                    
+                    throw e;
+                }
+                
+                if(count < 0) finish(null);
+                else append(chunk, count);
+            }
+        }
+        
+        private class Replay extends InputStream
+        {
+            private volatile long position;
+            private boolean closed;
+
+            @Override
+            public int read() throws IOException
+            {
+                var data = new byte[1];
+                
+                return (read(data, 0, 1) < 0) ? -1 : (data[0] & 0xFF);
+            }
+
+            @Override
+            public int read(byte[] data, int offset, int length) throws IOException
+            {
+                int count;
+                
+                if(closed) throw new IOException("Stream closed");
+                if(length == 0) return 0;
+                
+                count = Flight.this.read(position, data, offset, length);
+                
+                if(count > 0) position += count;
+                
+                return count;
+            }
+
+            @Override
+            public void close()
+            {
+                if(closed) return;
+                
+                closed = true;
+                
+                leave(this);
+            }
+        }
+    }
+}
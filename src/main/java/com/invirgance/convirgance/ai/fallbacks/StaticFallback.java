@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.fallbacks;
+
+import com.invirgance.convirgance.ai.Fallback;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.wiring.annotation.Wiring;
+
+/**
+ * Answers with a fixed response while the model is unavailable
+ *
+ * @author jbanes
+ */
+@Wiring("static-fallback")
+public class StaticFallback implements Fallback
+{
+    private String response = "The assistant is temporarily unavailable. Please try again later.";
+
+    public String getResponse()
+    {
+        return response;
+    }
+
+    public void setResponse(String response)
+    {
+        this.response = response;
+    }
+    
+    @Override
+    public Iterable<JSONObject> getFallback(JSONObject parameters, JSONObject message)
+    {
+        var records = new JSONArray<JSONObject>();
+        var record = new JSONObject();
+        var content = new JSONObject();
+        
+        record.put("model", message.getString("model"));
+        record.put("done", true);
+        record.put("fallback", true);
+        
+        // Chat requests carry a message list and expect a message back
+        if(message.containsKey("messages"))
+        {
+            content.put("role", "assistant");
+            content.put("content", response);
+            
+            record.put("message", content);
+        }
+        else
+        {
+            record.put("response", response);
+        }
+        
+        records.add(record);
+        
+        return records;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import java.util.Arrays;
+
+/**
+ * Matching documents in the order they were found, kept in primitive arrays
+ *
+ * @author jbanes
+ */
+class Hits
+{
+    protected int[] indices;
+    protected double[] distances;
+    protected int[] words;
+    protected int size;
+    protected int total;
+    protected int limit;
+    protected int maxResults;
+
+    public Hits(int limit, int maxResults)
+    {
+        this.limit = limit;
+        this.maxResults = maxResults;
+    }
+    
+    protected void append(int index, double distance, int words)
+    {
+        if(indices == null)
+        {
+            indices = new int[16];
+            distances = new double[16];
+            this.words = new int[16];
+        }
+        else if(size >= indices.length)
+        {
+            indices = Arrays.copyOf(indices, size << 1);
+            distances = Arrays.copyOf(distances, size << 1);
+            this.words = Arrays.copyOf(this.words, size << 1);
+        }
+        
+        indices[size] = index;
+        distances[size] = distance;
+        this.words[size] = words;
+        size++;
+        
+        total += words;
+    }
+    
+    /**
+     * @return false once no more documents will be accepted
+     */
+    public boolean add(int index, double distance, int words)
+    {
+        append(index, distance, words);
+        
+        if(limit > 0 && total > limit) return false;
+        if(maxResults > 0 && size >= maxResults) return false;
+        
+        return true;
+    }
+    
+    public void sort()
+    {
+    }
+}
@@ -0,0 +1,621 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.ai.VectorStore;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.wiring.annotation.Wiring;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds approximate matches using a Hierarchical Navigable Small World graph
+ * (Malkov &amp; Yashunin). Each document is linked to its nearest neighbors 
+ * on a random number of layers, with fewer documents on each layer up. A 
+ * search walks down from the sparse top layer and explores the bottom layer 
+ * from wherever it lands, so only a small fraction of the documents are 
+ * compared. Results can differ slightly from the exact scan done by 
+ * {@link MemoryVectorStore}; raising <code>efSearch</code> trades speed for
+ * recall.
+ * <br><br>
+ * Embeddings are normalized when registered and kept back to back in a single
+ * <code>float[]</code>, so cosine distance is one minus the dot product.
+ * Documents can be added at any time. Searches run concurrently with each 
+ * other while additions are made one at a time.
+ *
+ * @author jbanes
+ */
+@Wiring
+public class HnswVectorStore implements VectorStore
+{
+    private static final SimilarityKernel kernel = SimilarityKernel.getInstance();
+    private static final int MAX_LEVEL = 16;
+    
+    private float[] vectors = new float[0];
+    private String[] documents = new String[16];
+    private int[] words = new int[16];
+    private int[][][] links = new int[16][][];
+    private int dimensions;
+    private int count;
+    private int entry = -1;
+    private int top = -1;
+    
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private float[] scratch;
+    
+    // Fixed seed so the same documents always build the same graph
+    private Random random = new Random(0x4E5357);
+    
+    private double threshold = 0.4;
+    private String model = "nomic-embed-text";
+    private int limit = 600;
+    private int maxResults;
+    private int m = 16;
+    private int efConstruction = 200;
+    private int efSearch = 64;
+
+    public HnswVectorStore()
+    {
+    }
+
+    /**
+     * To be included in results, the cosine distance must be within this range.
+     * See {@link MemoryVectorStore#getThreshold()}.
+     * 
+     * @return The currently configured threshold
+     */
+    public double getThreshold()
+    {
+        return threshold;
+    }
+
+    public void setThreshold(double distance)
+    {
+        this.threshold = distance;
+    }
+
+    @Override
+    public String getModel()
+    {
+        return model;
+    }
+
+    public void setModel(String model)
+    {
+        this.model = model;
+    }
+
+    /**
+     * The budget of words across all documents returned, spent on the closest
+     * matches first. Defaults to 600. Zero or less means no limit.
+     * 
+     * @return the word budget for the results
+     */
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public void setLimit(int limit)
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * The most documents to return regardless of the word budget. Defaults
+     * to zero, meaning no limit other than the number of candidates the 
+     * search explores.
+     * 
+     * @return the maximum number of matches returned
+     */
+    public int getMaxResults()
+    {
+        return maxResults;
+    }
+
+    public void setMaxResults(int maxResults)
+    {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * The number of neighbors each document is linked to on each layer. The 
+     * bottom layer allows twice this many. Higher values improve recall on 
+     * high dimensional embeddings at the cost of memory and build time. 
+     * Defaults to 16. Can only be changed while the store is empty.
+     * 
+     * @return the number of links per document per layer
+     */
+    public int getM()
+    {
+        return m;
+    }
+
+    public void setM(int m)
+    {
+        if(m < 2) throw new ConvirganceException("M must be at least 2");
+        
+        lock.writeLock().lock();
+        
+        try
+        {
+            if(count > 0) throw new ConvirganceException("M cannot be changed once documents are registered");
+            
+            this.m = m;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The number of candidates considered when linking a new document. 
+     * Higher values build a better graph more slowly. Defaults to 200.
+     * 
+     * @return the candidate list size used while building
+     */
+    public int getEfConstruction()
+    {
+        return efConstruction;
+    }
+
+    public void setEfConstruction(int efConstruction)
+    {
+        if(efConstruction < 1) throw new ConvirganceException("efConstruction must be at least 1");
+        
+        this.efConstruction = efConstruction;
+    }
+
+    /**
+     * The number of candidates explored by a search. Higher values find more
+     * of the true nearest matches but take longer. Never less than 
+     * <code>maxResults</code>. Defaults to 64.
+     * 
+     * @return the candidate list size used while searching
+     */
+    public int getEfSearch()
+    {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch)
+    {
+        if(efSearch < 1) throw new ConvirganceException("efSearch must be at least 1");
+        
+        this.efSearch = efSearch;
+    }
+    
+    public int getCount()
+    {
+        return count;
+    }
+
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    private static float[] normalize(float[] embed)
+    {
+        var vector = embed.clone();
+        var magnitude = kernel.magnitude(vector);
+        
+        if(magnitude > 0) for(int i=0; i<vector.length; i++) vector[i] /= magnitude;
+        
+        return vector;
+    }
+    
+    private float distance(float[] query, int node)
+    {
+        return 1.0f - kernel.dotProduct(query, vectors, node * dimensions);
+    }
+    
+    private int randomLevel()
+    {
+        var level = -Math.log(1.0 - random.nextDouble()) / Math.log(m);
+        
+        return Math.min((int)level, MAX_LEVEL);
+    }
+    
+    private void ensureCapacity(int needed)
+    {
+        var capacity = documents.length;
+        
+        if(needed <= capacity && (long)needed * dimensions <= vectors.length) return;
+        
+        while(capacity < needed) capacity += capacity >> 1;
+        
+        vectors = Arrays.copyOf(vectors, Math.multiplyExact(capacity, dimensions));
+        documents = Arrays.copyOf(documents, capacity);
+        words = Arrays.copyOf(words, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+    
+    @Override
+    public void register(JSONArray<Double> embed, String document)
+    {
+        register(MemoryVectorStore.toArray(embed), document);
+    }
+    
+    /**
+     * Adds a document, linking it into the graph. The array is copied.
+     * 
+     * @param embed the embedding of the document
+     * @param document the text of the document
+     */
+    @Override
+    public void register(float[] embed, String document)
+    {
+        var vector = normalize(embed);
+        var wordCount = MemoryVectorStore.countWords(document);
+        var node = 0;
+        var level = 0;
+        var current = 0;
+        
+        lock.writeLock().lock();
+        
+        try
+        {
+            if(count == 0 && dimensions == 0) dimensions = embed.length;
+            if(embed.length != dimensions) throw new ConvirganceException("Vector size mismatches: " + embed.length + " != " + dimensions);
+            
+            ensureCapacity(count + 1);
+            
+            if(scratch == null || scratch.length != dimensions) scratch = new float[dimensions];
+            
+            node = count;
+            level = randomLevel();
+            
+            System.arraycopy(vector, 0, vectors, node * dimensions, dimensions);
+            
+            documents[node] = document;
+            words[node] = wordCount;
+            links[node] = new int[level + 1][];
+            
+            // The first slot of each list holds the number of links
+            for(int i=0; i<=level; i++) links[node][i] = new int[1 + getCapacity(i)];
+            
+            count++;
+            
+            if(entry < 0)
+            {
+                entry = node;
+                top = level;
+                
+                return;
+            }
+            
+            current = entry;
+            
+            for(int i=top; i>level; i--) current = descend(vector, current, i);
+            
+            for(int i=Math.min(level, top); i>=0; i--)
+            {
+                current = link(node, vector, current, i);
+            }
+            
+            if(level > top)
+            {
+                entry = node;
+                top = level;
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private int getCapacity(int level)
+    {
+        return (level == 0) ? m * 2 : m;
+    }
+    
+    /**
+     * Connects a new node on one layer and returns the closest node found,
+     * which is where the search on the next layer down starts.
+     */
+    private int link(int node, float[] vector, int start, int level)
+    {
+        var results = search(vector, start, efConstruction, level);
+        var ids = new int[results.size()];
+        var distances = new float[results.size()];
+        var size = results.drain(ids, distances);
+        var selected = select(ids, distances, size, m);
+        var list = links[node][level];
+        
+        for(int i=0; i<selected; i++)
+        {
+            list[++list[0]] = ids[i];
+            
+            connect(ids[i], node, level);
+        }
+        
+        return ids[0];
+    }
+    
+    /**
+     * Adds a link from <code>from</code> back to <code>to</code>. When the 
+     * list is full, the links are chosen again from the old ones plus the new.
+     */
+    private void connect(int from, int to, int level)
+    {
+        var list = links[from][level];
+        var capacity = list.length - 1;
+        var ids = new int[capacity + 1];
+        var distances = new float[capacity + 1];
+        var queue = new NodeQueue(capacity + 1, false);
+        var size = 0;
+        
+        if(list[0] < capacity)
+        {
+            list[++list[0]] = to;
+            return;
+        }
+        
+        System.arraycopy(vectors, from * dimensions, scratch, 0, dimensions);
+        
+        queue.push(to, distance(scratch, to));
+        
+        for(int i=1; i<=list[0]; i++) queue.push(list[i], distance(scratch, list[i]));
+        
+        size = queue.drain(ids, distances);
+        list[0] = select(ids, distances, size, capacity);
+        
+        System.arraycopy(ids, 0, list, 1, list[0]);
+    }
+    
+    /**
+     * The neighbor selection heuristic from the paper. Walking from closest
+     * to farthest, a candidate is kept only if it is closer to the new node
+     * than to any candidate already kept. This spreads links out in different
+     * directions rather than crowding them into one cluster. Keeps the 
+     * selected candidates at the front of <code>ids</code>.
+     */
+    private int select(int[] ids, float[] distances, int size, int max)
+    {
+        var selected = 0;
+        var keep = true;
+        
+        if(size <= max) return size;
+        
+        for(int i=0; i<size && selected<max; i++)
+        {
+            keep = true;
+            
+            System.arraycopy(vectors, ids[i] * dimensions, scratch, 0, dimensions);
+            
+            for(int j=0; j<selected && keep; j++)
+            {
+                if(distance(scratch, ids[j]) < distances[i]) keep = false;
+            }
+            
+            if(!keep) continue;
+            
+            ids[selected] = ids[i];
+            distances[selected] = distances[i];
+            selected++;
+        }
+        
+        return selected;
+    }
+    
+    /**
+     * Greedily moves toward the query on an upper layer
+     */
+    private int descend(float[] query, int node, int level)
+    {
+        var best = distance(query, node);
+        var changed = true;
+        var distance = 0.0f;
+        
+        int[] list;
+        
+        while(changed)
+        {
+            changed = false;
+            list = links[node][level];
+            
+            for(int i=1; i<=list[0]; i++)
+            {
+                distance = distance(query, list[i]);
+                
+                if(distance < best)
+                {
+                    best = distance;
+                    node = list[i];
+                    changed = true;
+                }
+            }
+        }
+        
+        return node;
+    }
+    
+    /**
+     * Best-first search of one layer. Returns up to <code>ef</code> of the 
+     * closest nodes found with the farthest on top.
+     */
+    private NodeQueue search(float[] query, int start, int ef, int level)
+    {
+        var visited = this.visited.get().reset(count);
+        var candidates = new NodeQueue(ef, false);
+        var results = new NodeQueue(ef + 1, true);
+        var distance = distance(query, start);
+        var node = 0;
+        
+        int[] list;
+        
+        visited.visit(start);
+        candidates.push(start, distance);
+        results.push(start, distance);
+        
+        while(!candidates.isEmpty())
+        {
+            if(candidates.peekDistance() > results.peekDistance() && results.size() >= ef) break;
+            
+            node = candidates.pop();
+            list = links[node][level];
+            
+            for(int i=1; i<=list[0]; i++)
+            {
+                if(!visited.visit(list[i])) continue;
+                
+                distance = distance(query, list[i]);
+                
+                if(results.size() < ef || distance < results.peekDistance())
+                {
+                    candidates.push(list[i], distance);
+                    results.push(list[i], distance);
+                    
+                    if(results.size() > ef) results.pop();
+                }
+            }
+        }
+        
+        return results;
+    }
+    
+    @Override
+    public String match(JSONArray<Double> embed)
+    {
+        return match(MemoryVectorStore.toArray(embed));
+    }
+    
+    public String match(float[] embed)
+    {
+        var matches = matches(embed);
+        
+        if(!matches.isEmpty()) return matches.get(0).getString("document");
+        
+        return null;
+    }
+    
+    /**
+     * Returns a list of matches inside the threshold, sorted by distance. See
+     * {@link MemoryVectorStore#matches(JSONArray)}.
+     * 
+     * @param embed the embedding to search for
+     * @return the matching documents
+     */
+    @Override
+    public JSONArray<JSONObject> matches(JSONArray<Double> embed)
+    {
+        return matches(MemoryVectorStore.toArray(embed));
+    }
+    
+    @Override
+    public JSONArray<JSONObject> matches(float[] embed)
+    {
+        var matches = new JSONArray<JSONObject>();
+        var query = normalize(embed);
+        var threshold = this.threshold;
+        var limit = this.limit;
+        var maxResults = this.maxResults;
+        var match = new JSONObject();
+        var total = 0;
+        var node = 0;
+        var size = 0;
+        
+        NodeQueue results;
+        int[] ids;
+        float[] distances;
+        
+        lock.readLock().lock();
+        
+        try
+        {
+            if(count > 0 && embed.length != dimensions) throw new ConvirganceException("Vector size mismatches: " + embed.length + " != " + dimensions);
+            if(count == 0) return matches;
+            
+            node = entry;
+            
+            for(int i=top; i>0; i--) node = descend(query, node, i);
+            
+            results = search(query, node, Math.max(efSearch, maxResults), 0);
+            ids = new int[results.size()];
+            distances = new float[results.size()];
+            size = results.drain(ids, distances);
+            
+            for(int i=0; i<size; i++)
+            {
+                if(distances[i] > threshold) break;
+                if(maxResults > 0 && i >= maxResults) break;
+                if(limit > 0 && total > limit) break;
+                
+                match = new JSONObject();
+                total += words[ids[i]];
+                
+                match.put("distance", (double)distances[i]);
+                match.put("words", words[ids[i]]);
+                match.put("document", documents[ids[i]]);
+                matches.add(match);
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        return matches;
+    }
+    
+    /**
+     * Tracks the nodes a search has seen. Rather than clearing the array for
+     * each search, a new generation number marks the nodes seen this time.
+     */
+    private static class Visited
+    {
+        private int[] generations = new int[0];
+        private int generation;
+        
+        public Visited reset(int size)
+        {
+            if(generations.length < size) generations = Arrays.copyOf(generations, Math.max(size, generations.length + (generations.length >> 1)));
+            
+            if(++generation == 0)
+            {
+                Arrays.fill(generations, 0);
+                generation = 1;
+            }
+            
+            return this;
+        }
+        
+        public boolean visit(int node)
+        {
+            if(generations[node] == generation) return false;
+            
+            generations[node] = generation;
+            
+            return true;
+        }
+    }
+}
@@ -0,0 +1,810 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.ai.VectorStore;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.wiring.annotation.Wiring;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds approximate matches using an inverted file (IVF-flat) index. The 
+ * embeddings are clustered with k-means and each document is filed under its
+ * nearest centroid. A search compares the query against the centroids and 
+ * only scans the documents in the nearest <code>probes</code> lists. This 
+ * gives up a little recall for a large drop in latency and is far cheaper to
+ * build than the graph in {@link HnswVectorStore}, which suits corpora that 
+ * are loaded in bulk.
+ * <br><br>
+ * Training happens in the background on the configured {@link ForkJoinPool}
+ * once <code>trainingSize</code> documents are registered, and again each 
+ * time enough new documents arrive. Until the first training completes, 
+ * searches fall back to an exact scan. Documents registered against a 
+ * trained index are filed under their nearest centroid straight away.
+ *
+ * @author jbanes
+ */
+@Wiring
+public class IvfVectorStore implements VectorStore
+{
+    private static final SimilarityKernel kernel = SimilarityKernel.getInstance();
+    
+    private float[] vectors = new float[0];
+    private String[] documents = new String[16];
+    private int[] words = new int[16];
+    private int dimensions;
+    private int count;
+    
+    private Index index;
+    private int trained;
+    private CompletableFuture<Void> training;
+    
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private double threshold = 0.4;
+    private String model = "nomic-embed-text";
+    private int limit = 600;
+    private int maxResults;
+    private int lists;
+    private int probes = 8;
+    private int iterations = 10;
+    private int trainingSize = 10000;
+    private int retrainThreshold;
+    private long seed = 0x495646;
+    private ForkJoinPool pool;
+
+    public IvfVectorStore()
+    {
+    }
+
+    /**
+     * To be included in results, the cosine distance must be within this range.
+     * See {@link MemoryVectorStore#getThreshold()}.
+     * 
+     * @return The currently configured threshold
+     */
+    public double getThreshold()
+    {
+        return threshold;
+    }
+
+    public void setThreshold(double distance)
+    {
+        this.threshold = distance;
+    }
+
+    @Override
+    public String getModel()
+    {
+        return model;
+    }
+
+    public void setModel(String model)
+    {
+        this.model = model;
+    }
+
+    /**
+     * The budget of words across all documents returned, spent on the closest
+     * matches first. Defaults to 600. Zero or less means no limit.
+     * 
+     * @return the word budget for the results
+     */
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public void setLimit(int limit)
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * The most documents to return regardless of the word budget. Defaults
+     * to zero, meaning no limit.
+     * 
+     * @return the maximum number of matches returned
+     */
+    public int getMaxResults()
+    {
+        return maxResults;
+    }
+
+    public void setMaxResults(int maxResults)
+    {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * The number of clusters to train. Defaults to zero, which picks the 
+     * square root of the number of documents at the time of training. Takes
+     * effect at the next training.
+     * 
+     * @return the number of inverted lists, or zero to size automatically
+     */
+    public int getLists()
+    {
+        return lists;
+    }
+
+    public void setLists(int lists)
+    {
+        this.lists = lists;
+    }
+
+    /**
+     * The number of lists scanned by each search, nearest centroid first. 
+     * Higher values improve recall at the cost of latency. Defaults to 8.
+     * 
+     * @return the number of lists probed
+     */
+    public int getProbes()
+    {
+        return probes;
+    }
+
+    public void setProbes(int probes)
+    {
+        if(probes < 1) throw new ConvirganceException("Probes must be at least 1");
+        
+        this.probes = probes;
+    }
+
+    /**
+     * The number of k-means iterations run when training. Defaults to 10.
+     * 
+     * @return the number of iterations
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    public void setIterations(int iterations)
+    {
+        this.iterations = iterations;
+    }
+
+    /**
+     * The number of documents needed before the index is first trained. 
+     * Defaults to 10,000. Zero or less disables automatic training; call
+     * {@link #train()} instead.
+     * 
+     * @return the number of documents that triggers the first training
+     */
+    public int getTrainingSize()
+    {
+        return trainingSize;
+    }
+
+    public void setTrainingSize(int trainingSize)
+    {
+        this.trainingSize = trainingSize;
+    }
+
+    /**
+     * The number of documents registered since the last training that 
+     * triggers another one in the background. Defaults to zero, which 
+     * retrains each time the store doubles in size.
+     * 
+     * @return the number of new documents before retraining
+     */
+    public int getRetrainThreshold()
+    {
+        return retrainThreshold;
+    }
+
+    public void setRetrainThreshold(int retrainThreshold)
+    {
+        this.retrainThreshold = retrainThreshold;
+    }
+
+    /**
+     * Seeds the choice of starting centroids and training sample so that the 
+     * same documents always train the same index.
+     * 
+     * @return the random seed used for training
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * The pool training runs on. Defaults to the common pool.
+     * 
+     * @return the pool used to train the index
+     */
+    public ForkJoinPool getPool()
+    {
+        return (pool == null) ? ForkJoinPool.commonPool() : pool;
+    }
+
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+    
+    public int getCount()
+    {
+        return count;
+    }
+
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+    
+    /**
+     * The number of inverted lists in the current index
+     * 
+     * @return the number of lists, or zero if the index hasn't been trained
+     */
+    public int getTrainedLists()
+    {
+        var index = this.index;
+        
+        return (index == null) ? 0 : index.lists;
+    }
+    
+    public boolean isTrained()
+    {
+        return (index != null);
+    }
+    
+    private static float[] normalize(float[] embed)
+    {
+        var vector = embed.clone();
+        var magnitude = kernel.magnitude(vector);
+        
+        if(magnitude > 0) for(int i=0; i<vector.length; i++) vector[i] /= magnitude;
+        
+        return vector;
+    }
+    
+    private void ensureCapacity(int needed)
+    {
+        var capacity = documents.length;
+        
+        if(needed <= capacity && (long)needed * dimensions <= vectors.length) return;
+        
+        while(capacity < needed) capacity += capacity >> 1;
+        
+        vectors = Arrays.copyOf(vectors, Math.multiplyExact(capacity, dimensions));
+        documents = Arrays.copyOf(documents, capacity);
+        words = Arrays.copyOf(words, capacity);
+    }
+    
+    @Override
+    public void register(JSONArray<Double> embed, String document)
+    {
+        register(MemoryVectorStore.toArray(embed), document);
+    }
+    
+    /**
+     * Adds a document, filing it under its nearest centroid if the index has
+     * been trained. May start training in the background. The array is copied.
+     * 
+     * @param embed the embedding of the document
+     * @param document the text of the document
+     */
+    @Override
+    public void register(float[] embed, String document)
+    {
+        var vector = normalize(embed);
+        var wordCount = MemoryVectorStore.countWords(document);
+        var retrain = false;
+        
+        lock.writeLock().lock();
+        
+        try
+        {
+            if(count == 0 && dimensions == 0) dimensions = embed.length;
+            if(embed.length != dimensions) throw new ConvirganceException("Vector size mismatches: " + embed.length + " != " + dimensions);
+            
+            ensureCapacity(count + 1);
+            
+            System.arraycopy(vector, 0, vectors, count * dimensions, dimensions);
+            
+            documents[count] = document;
+            words[count] = wordCount;
+            
+            if(index != null) index.add(count, index.nearest(vector));
+            
+            count++;
+            
+            if(index == null) retrain = (trainingSize > 0 && count >= trainingSize);
+            else retrain = (count - trained >= (retrainThreshold > 0 ? retrainThreshold : trained));
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        
+        if(retrain) retrain();
+    }
+    
+    /**
+     * Starts training the index in the background unless a training is 
+     * already running, in which case that one is returned.
+     * 
+     * @return completes once the new index is in use
+     */
+    public synchronized CompletableFuture<Void> retrain()
+    {
+        if(training != null && !training.isDone()) return training;
+        
+        training = CompletableFuture.runAsync(this::build, getPool());
+        
+        return training;
+    }
+    
+    /**
+     * Trains the index and waits for it to be in use
+     */
+    public void train()
+    {
+        var future = retrain();
+        
+        try
+        {
+            future.join();
+        }
+        catch(RuntimeException e)
+        {
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            
+            throw e;
+        }
+    }
+    
+    private void build()
+    {
+        float[] vectors;
+        int size;
+        int dimensions;
+        Index index;
+        
+        // Registered vectors never move within an array, so the snapshot can
+        // be read without the lock while new documents are added
+        lock.readLock().lock();
+        
+        try
+        {
+            vectors = this.vectors;
+            size = this.count;
+            dimensions = this.dimensions;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        if(size == 0) return;
+        
+        index = new KMeans(vectors, size, dimensions).train();
+        
+        lock.writeLock().lock();
+        
+        try
+        {
+            // File anything registered while training ran
+            for(int i=size; i<count; i++) index.add(i, index.nearest(Arrays.copyOfRange(this.vectors, i * dimensions, (i + 1) * dimensions)));
+            
+            this.index = index;
+            this.trained = size;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public String match(JSONArray<Double> embed)
+    {
+        return match(MemoryVectorStore.toArray(embed));
+    }
+    
+    public String match(float[] embed)
+    {
+        var matches = matches(embed);
+        
+        if(!matches.isEmpty()) return matches.get(0).getString("document");
+        
+        return null;
+    }
+    
+    /**
+     * Returns a list of matches inside the threshold, sorted by distance. See
+     * {@link MemoryVectorStore#matches(JSONArray)}.
+     * 
+     * @param embed the embedding to search for
+     * @return the matching documents
+     */
+    @Override
+    public JSONArray<JSONObject> matches(JSONArray<Double> embed)
+    {
+        return matches(MemoryVectorStore.toArray(embed));
+    }
+    
+    @Override
+    public JSONArray<JSONObject> matches(float[] embed)
+    {
+        var matches = new JSONArray<JSONObject>();
+        var query = normalize(embed);
+        var hits = new RankedHits(limit, maxResults);
+        var threshold = this.threshold;
+        var match = new JSONObject();
+        var nearest = new NodeQueue(probes + 1, true);
+        var list = 0;
+        
+        int[] members;
+        
+        lock.readLock().lock();
+        
+        try
+        {
+            if(count > 0 && embed.length != dimensions) throw new ConvirganceException("Vector size mismatches: " + embed.length + " != " + dimensions);
+            
+            if(index == null)
+            {
+                scan(query, hits, threshold, null, count);
+            }
+            else
+            {
+                for(int i=0; i<index.lists; i++)
+                {
+                    nearest.push(i, 1.0f - kernel.dotProduct(query, index.centroids, i * dimensions));
+                    
+                    if(nearest.size() > probes) nearest.pop();
+                }
+                
+                while(!nearest.isEmpty())
+                {
+                    list = nearest.pop();
+                    members = index.members[list];
+                    
+                    scan(query, hits, threshold, members, index.sizes[list]);
+                }
+            }
+            
+            hits.sort();
+            
+            for(int i=0; i<hits.size; i++)
+            {
+                match = new JSONObject();
+
+                match.put("distance", hits.distances[i]);
+                match.put("words", hits.words[i]);
+                match.put("document", documents[hits.indices[i]]);
+                matches.add(match);
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        
+        return matches;
+    }
+    
+    private void scan(float[] query, Hits hits, double threshold, int[] members, int size)
+    {
+        var distance = 0.0;
+        var node = 0;
+        
+        for(int i=0; i<size; i++)
+        {
+            node = (members == null) ? i : members[i];
+            distance = 1.0 - kernel.dotProduct(query, vectors, node * dimensions);
+            
+            if(distance <= threshold) hits.add(node, distance, words[node]);
+        }
+    }
+    
+    private static class Index
+    {
+        private float[] centroids;
+        private int lists;
+        private int dimensions;
+        private int[][] members;
+        private int[] sizes;
+
+        public Index(float[] centroids, int lists, int dimensions)
+        {
+            this.centroids = centroids;
+            this.lists = lists;
+            this.dimensions = dimensions;
+            this.members = new int[lists][];
+            this.sizes = new int[lists];
+            
+            for(int i=0; i<lists; i++) members[i] = new int[16];
+        }
+        
+        public int nearest(float[] vector)
+        {
+            var best = 0;
+            var similarity = Float.NEGATIVE_INFINITY;
+            var value = 0.0f;
+            
+            for(int i=0; i<lists; i++)
+            {
+                value = kernel.dotProduct(vector, centroids, i * dimensions);
+                
+                if(value > similarity)
+                {
+                    similarity = value;
+                    best = i;
+                }
+            }
+            
+            return best;
+        }
+        
+        public void add(int node, int list)
+        {
+            if(sizes[list] >= members[list].length) members[list] = Arrays.copyOf(members[list], sizes[list] << 1);
+            
+            members[list][sizes[list]++] = node;
+        }
+    }
+    
+    /**
+     * Spherical k-means: centroids are kept at unit length so that the 
+     * nearest centroid is the one with the largest dot product. Each 
+     * iteration assigns a sample of the documents in parallel, with every 
+     * task summing its own share before the results are combined.
+     */
+    private class KMeans
+    {
+        private float[] vectors;
+        private int size;
+        private int dimensions;
+        private int lists;
+        private int[] sample;
+        private float[] centroids;
+        private int grain;
+        private Random random = new Random(seed);
+
+        public KMeans(float[] vectors, int size, int dimensions)
+        {
+            this.vectors = vectors;
+            this.size = size;
+            this.dimensions = dimensions;
+            this.lists = (IvfVectorStore.this.lists > 0) ? IvfVectorStore.this.lists : (int)Math.round(Math.sqrt(size));
+            this.lists = Math.max(1, Math.min(this.lists, size));
+        }
+        
+        public Index train()
+        {
+            var order = new int[size];
+            var swap = 0;
+            var other = 0;
+            var iterations = IvfVectorStore.this.iterations;
+            var assignments = new int[size];
+            
+            Partial partial;
+            Index index;
+            
+            for(int i=0; i<size; i++) order[i] = i;
+            
+            // A random sample of up to 256 documents per list is plenty to
+            // place the centroids
+            sample = Arrays.copyOf(order, Math.min(size, lists * 256));
+            
+            for(int i=0; i<sample.length; i++)
+            {
+                other = i + random.nextInt(size - i);
+                swap = order[i];
+                order[i] = order[other];
+                order[other] = swap;
+                sample[i] = order[i];
+            }
+            
+            centroids = new float[lists * dimensions];
+            grain = Math.max(256, sample.length / (getPool().getParallelism() * 4));
+            
+            for(int i=0; i<lists; i++) System.arraycopy(vectors, sample[i] * dimensions, centroids, i * dimensions, dimensions);
+            
+            for(int i=0; i<iterations; i++)
+            {
+                partial = getPool().invoke(new Step(0, sample.length));
+                
+                update(partial);
+            }
+            
+            index = new Index(centroids, lists, dimensions);
+            grain = Math.max(256, size / (getPool().getParallelism() * 4));
+            
+            getPool().invoke(new Assign(assignments, 0, size));
+            
+            for(int i=0; i<size; i++) index.add(i, assignments[i]);
+            
+            return index;
+        }
+        
+        private void update(Partial partial)
+        {
+            var offset = 0;
+            var magnitude = 0.0;
+            
+            for(int i=0; i<lists; i++)
+            {
+                offset = i * dimensions;
+                
+                // Restart an empty cluster from a random document
+                if(partial.counts[i] == 0)
+                {
+                    System.arraycopy(vectors, sample[random.nextInt(sample.length)] * dimensions, centroids, offset, dimensions);
+                    continue;
+                }
+                
+                magnitude = 0.0;
+                
+                for(int j=0; j<dimensions; j++) magnitude += partial.sums[offset + j] * partial.sums[offset + j];
+                
+                magnitude = Math.sqrt(magnitude);
+                
+                for(int j=0; j<dimensions; j++) centroids[offset + j] = (float)(partial.sums[offset + j] / magnitude);
+            }
+        }
+        
+        private int nearest(float[] vector)
+        {
+            var best = 0;
+            var similarity = Float.NEGATIVE_INFINITY;
+            var value = 0.0f;
+            
+            for(int i=0; i<lists; i++)
+            {
+                value = kernel.dotProduct(vector, centroids, i * dimensions);
+                
+                if(value > similarity)
+                {
+                    similarity = value;
+                    best = i;
+                }
+            }
+            
+            return best;
+        }
+        
+        private class Partial
+        {
+            private float[] sums = new float[lists * dimensions];
+            private int[] counts = new int[lists];
+            
+            public Partial add(Partial other)
+            {
+                for(int i=0; i<sums.length; i++) sums[i] += other.sums[i];
+                for(int i=0; i<counts.length; i++) counts[i] += other.counts[i];
+                
+                return this;
+            }
+        }
+        
+        private class Step extends RecursiveTask<Partial>
+        {
+            private int start;
+            private int end;
+
+            public Step(int start, int end)
+            {
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            protected Partial compute()
+            {
+                var middle = (start + end) >>> 1;
+                var list = 0;
+                var offset = 0;
+                
+                Partial partial;
+                float[] vector;
+                Step left;
+                
+                if(end - start > grain)
+                {
+                    left = new Step(start, middle);
+                    
+                    left.fork();
+                    
+                    return new Step(middle, end).compute().add(left.join());
+                }
+                
+                partial = new Partial();
+                vector = new float[dimensions];
+                
+                for(int i=start; i<end; i++)
+                {
+                    System.arraycopy(vectors, sample[i] * dimensions, vector, 0, dimensions);
+                    
+                    list = nearest(vector);
+                    offset = list * dimensions;
+                    
+                    for(int j=0; j<dimensions; j++) partial.sums[offset + j] += vector[j];
+                    
+                    partial.counts[list]++;
+                }
+                
+                return partial;
+            }
+        }
+        
+        private class Assign extends RecursiveAction
+        {
+            private int[] assignments;
+            private int start;
+            private int end;
+
+            public Assign(int[] assignments, int start, int end)
+            {
+                this.assignments = assignments;
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            protected void compute()
+            {
+                var middle = (start + end) >>> 1;
+                
+                float[] vector;
+                
+                if(end - start > grain)
+                {
+                    invokeAll(new Assign(assignments, start, middle), new Assign(assignments, middle, end));
+                    return;
+                }
+                
+                vector = new float[dimensions];
+                
+                for(int i=start; i<end; i++)
+                {
+                    System.arraycopy(vectors, i * dimensions, vector, 0, dimensions);
+                    
+                    assignments[i] = nearest(vector);
+                }
+            }
+        }
+    }
+}
@@ -28,19 +28,47 @@ import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
 import com.invirgance.convirgance.wiring.annotation.Wiring;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
+ * Keeps embeddings in memory and finds matches by cosine similarity. The 
+ * embeddings are stored back to back in a single <code>float[]</code> with 
+ * the magnitude of each computed when it is registered, so a search is one 
+ * pass over the block without allocating anything for documents that don't
+ * match. The arithmetic is done by {@link SimilarityKernel#getInstance()}, 
+ * which uses SIMD instructions when the Vector API module is enabled. Large
+ * stores are split into segments that are scanned in parallel on a 
+ * {@link ForkJoinPool}.
  *
  * @author jbanes
  */
 @Wiring
 public class MemoryVectorStore implements VectorStore
 {
-    private JSONArray<JSONObject> documents = new JSONArray<>();
+    private static final SimilarityKernel kernel = SimilarityKernel.getInstance();
+    
+    private float[] vectors = new float[0];
+    private float[] norms = new float[16];
+    private String[] documents = new String[16];
+    private int[] words = new int[16];
+    private int dimensions;
+    private int count;
+    
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
     
     private double threshold = 0.4;
     private String model = "nomic-embed-text";
     private int limit = 600;
+    private int maxResults;
+    private boolean ranked = true;
+    
+    private ForkJoinPool pool;
+    private int parallelThreshold = 50000;
+    private int segmentSize = 8192;
 
     public MemoryVectorStore()
     {
@@ -81,6 +109,13 @@ public class MemoryVectorStore implements VectorStore
         this.model = model;
     }
 
+    /**
+     * The budget of words across all documents returned. Matches are added 
+     * until the total goes over the limit, so the document that crosses it
+     * is still included. Defaults to 600. Zero or less means no limit.
+     * 
+     * @return the word budget for the results
+     */
     public int getLimit()
     {
         return limit;
@@ -90,8 +125,115 @@ public class MemoryVectorStore implements VectorStore
     {
         this.limit = limit;
     }
+
+    /**
+     * The most documents to return regardless of the word budget. Defaults
+     * to zero, meaning no limit.
+     * 
+     * @return the maximum number of matches returned
+     */
+    public int getMaxResults()
+    {
+        return maxResults;
+    }
+
+    public void setMaxResults(int maxResults)
+    {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * When true, the default, the closest matches are kept and the word 
+     * budget is applied in order of distance. When false, the budget is 
+     * applied in the order documents were registered and the scan stops 
+     * once it is spent, so better matches registered later can be missed.
+     * 
+     * @return true if the budget is applied to the ranked matches
+     */
+    public boolean isRanked()
+    {
+        return ranked;
+    }
+
+    public void setRanked(boolean ranked)
+    {
+        this.ranked = ranked;
+    }
+    
+    /**
+     * The pool used to scan large stores in parallel. Defaults to the common
+     * pool.
+     * 
+     * @return the pool searches are split across
+     */
+    public ForkJoinPool getPool()
+    {
+        return (pool == null) ? ForkJoinPool.commonPool() : pool;
+    }
+
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Stores with at least this many documents are scanned in parallel, one
+     * segment per task. Smaller stores are scanned on the calling thread 
+     * because splitting up the work costs more than it saves. Defaults to 
+     * 50,000. Zero or less disables parallel scans.
+     * 
+     * @return the number of documents before scans go parallel
+     */
+    public int getParallelThreshold()
+    {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold)
+    {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * The number of documents scored by each task in a parallel scan. 
+     * Defaults to 8,192.
+     * 
+     * @return the number of documents in a segment
+     */
+    public int getSegmentSize()
+    {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize)
+    {
+        if(segmentSize < 1) throw new ConvirganceException("Segment size must be at least 1");
+        
+        this.segmentSize = segmentSize;
+    }
+    
+    /**
+     * The number of documents registered
+     * 
+     * @return the number of documents
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * The size of the embeddings in the store. Set by the first embedding 
+     * registered.
+     * 
+     * @return the number of dimensions or zero if the store is empty
+     */
+    public int getDimensions()
+    {
+        return dimensions;
+    }
     
-    private int countWords(String document)
+    static int countWords(String document)
     {
         int count = 0;
         int characters = 0;
@@ -115,16 +257,70 @@ public class MemoryVectorStore implements VectorStore
         return count;
     }
     
+    static float[] toArray(JSONArray<Double> embed)
+    {
+        var vector = new float[embed.size()];
+        
+        for(int i=0; i<vector.length; i++) vector[i] = (float)embed.getDouble(i);
+        
+        return vector;
+    }
+    
+    private void ensureCapacity(int needed)
+    {
+        var capacity = documents.length;
+        
+        if(needed <= capacity && (long)needed * dimensions <= vectors.length) return;
+        
+        while(capacity < needed) capacity += capacity >> 1;
+        
+        vectors = Arrays.copyOf(vectors, Math.multiplyExact(capacity, dimensions));
+        norms = Arrays.copyOf(norms, capacity);
+        documents = Arrays.copyOf(documents, capacity);
+        words = Arrays.copyOf(words, capacity);
+    }
+    
     @Override
     public void register(JSONArray<Double> embed, String document)
     {
-        var record = new JSONObject();
+        register(toArray(embed), document);
+    }
+    
+    /**
+     * Adds a document using an embedding decoded straight into a 
+     * <code>float[]</code>, such as one from 
+     * {@link com.invirgance.convirgance.ai.engines.Ollama#getEmbedVector(String, String)}.
+     * The array is copied.
+     * 
+     * @param embed the embedding of the document
+     * @param document the text of the document
+     */
+    @Override
+    public void register(float[] embed, String document)
+    {
+        var wordCount = countWords(document);
+        var norm = (float)computeMagnitude(embed);
         
-        record.put("embed", embed);
-        record.put("document", document);
-        record.put("words", countWords(document));
+        lock.writeLock().lock();
         
-        this.documents.add(record);
+        try
+        {
+            if(count == 0 && dimensions == 0) dimensions = embed.length;
+            if(embed.length != dimensions) throw new ConvirganceException("Vector size mismatches: " + embed.length + " != " + dimensions);
+            
+            ensureCapacity(count + 1);
+            
+            System.arraycopy(embed, 0, vectors, count * dimensions, dimensions);
+            
+            norms[count] = norm;
+            documents[count] = document;
+            words[count] = wordCount;
+            count++;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
     }
     
     /**
@@ -144,6 +340,22 @@ public class MemoryVectorStore implements VectorStore
         return null;
     }
     
+    /**
+     * Returns the closest match or null if all potential matches are outside
+     * the threshold. See {@link #match(JSONArray)}.
+     * 
+     * @param embed the embedding to search for
+     * @return the closest document
+     */
+    public String match(float[] embed)
+    {
+        var matches = matches(embed);
+        
+        if(!matches.isEmpty()) return matches.get(0).getString("document");
+        
+        return null;
+    }
+    
     /**
      * Returns a list of matches inside the threshold, sorted by distance. Records
      * returned contain <code>distance</code> for the distance calculation and
@@ -153,30 +365,67 @@ public class MemoryVectorStore implements VectorStore
      */
     @Override
     public JSONArray<JSONObject> matches(JSONArray<Double> embed)
+    {
+        return matches(toArray(embed));
+    }
+    
+    /**
+     * Returns a list of matches inside the threshold, sorted by distance. See
+     * {@link #matches(JSONArray)}.
+     * 
+     * @param embed the embedding to search for
+     * @return the matching documents
+     */
+    @Override
+    public JSONArray<JSONObject> matches(float[] embed)
     {
         var matches = new JSONArray<JSONObject>();
+        var query = new Query(embed);
+        var size = this.segmentSize;
         var match = new JSONObject();
-        var distance = 0.0;
-        var words = 0;
         
-        for(var record : this.documents)
+        Hits[] segments;
+        Hits hits;
+        
+        lock.readLock().lock();
+        
+        try
         {
-            distance = 1.0 - computeCosineSimilarity(embed, record.getJSONArray("embed"));
-
-            if(distance <= this.threshold)
+            if(count > 0 && embed.length != dimensions) throw new ConvirganceException("Vector size mismatches: " + embed.length + " != " + dimensions);
+            
+            if(parallelThreshold > 0 && count >= parallelThreshold && count > size)
             {
-                match = new JSONObject();
-                words += record.getInt("words");
+                segments = new Hits[(count + size - 1) / size];
                 
-                match.put("distance", distance);
-                match.put("words", record.getInt("words"));
-                match.put("document", record.get("document"));
-                matches.add(match);
+                getPool().invoke(new Scan(query, segments, size, 0, segments.length));
             }
+            else
+            {
+                segments = new Hits[]{ scan(query, 0, count) };
+            }
+            
+            hits = (segments.length == 1) ? segments[0] : merge(query, segments);
+            
+            if(query.ranked) hits.sort();
             
-            if(limit > 0 && words > limit) break;
+            // Records are only built for the documents being returned
+            for(int i=0; i<hits.size; i++)
+            {
+                match = new JSONObject();
+
+                match.put("distance", hits.distances[i]);
+                match.put("words", hits.words[i]);
+                match.put("document", documents[hits.indices[i]]);
+                matches.add(match);
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
         }
         
+        if(query.ranked) return matches;
+        
         matches.sort((JSONObject left, JSONObject right) -> {
             double leftDistance = left.getDouble("distance");
             double rightDistance = right.getDouble("distance");
@@ -191,17 +440,81 @@ public class MemoryVectorStore implements VectorStore
         return matches;
     }
     
+    private Hits scan(Query query, int start, int end)
+    {
+        var hits = query.newHits();
+        var distance = 0.0;
+        
+        for(int i=start; i<end; i++)
+        {
+            distance = 1.0 - kernel.dotProduct(query.embed, vectors, i * dimensions) / (query.magnitude * norms[i]);
+
+            // Stops once nothing further in the segment can be kept
+            if(distance <= query.threshold && !hits.add(i, distance, words[i])) break;
+        }
+        
+        return hits;
+    }
+    
+    // Segments are combined in document order so that a scan order cutoff 
+    // lands in the same place as a sequential scan
+    private Hits merge(Query query, Hits[] segments)
+    {
+        var hits = query.newHits();
+        
+        for(var segment : segments)
+        {
+            for(int i=0; i<segment.size; i++)
+            {
+                if(!hits.add(segment.indices[i], segment.distances[i], segment.words[i])) return hits;
+            }
+        }
+        
+        return hits;
+    }
+    
+    /**
+     * Computes the dot product of a vector and a vector stored at an offset
+     * in a larger block, using the fastest {@link SimilarityKernel} available
+     * 
+     * @param a the vector
+     * @param block the block holding the other vector
+     * @param offset the position of the other vector in the block
+     * @return the dot product
+     */
+    public static float computeDotProduct(float[] a, float[] block, int offset)
+    {
+        return kernel.dotProduct(a, block, offset);
+    }
+    
+    public static double computeMagnitude(float[] vector)
+    {
+        return kernel.magnitude(vector);
+    }
+    
+    public static double computeCosineSimilarity(float[] a, float[] b)
+    {
+        if(a.length != b.length) throw new ConvirganceException("Vector size mismatches: " + a.length + " != " + b.length);
+        
+        return kernel.cosineSimilarity(a, b, 0);
+    }
+    
+    public static double computeEuclidianDistance(float[] a, float[] b)
+    {
+        if(a.length != b.length) throw new ConvirganceException("Vector size mismatches: " + a.length + " != " + b.length);
+        
+        return Math.sqrt(kernel.squaredDistance(a, b, 0));
+    }
+    
     public static double computeDotProduct(JSONArray<Double> a, JSONArray<Double> b)
     {
-        var products = new double[a.size()];
         var sum = 0.0;
         
         if(a.size() != b.size()) throw new ConvirganceException("Vector size mismatches: " + a.size() + " != " + b.size());
         
         for(int i=0; i<a.size(); i++)
         {
-            products[i] = a.getDouble(i) * b.getDouble(i);
-            sum += products[i];
+            sum += a.getDouble(i) * b.getDouble(i);
         }
         
         return sum;
@@ -209,13 +522,11 @@ public class MemoryVectorStore implements VectorStore
     
     public static double computeMagnitude(JSONArray<Double> vector)
     {
-        var squared = new double[vector.size()];
         var sum = 0.0;
         
         for(int i=0; i<vector.size(); i++)
         {
-            squared[i] = Math.pow(vector.getDouble(i), 2);
-            sum += squared[i];
+            sum += vector.getDouble(i) * vector.getDouble(i);
         }
         
         return Math.sqrt(sum);
@@ -224,26 +535,79 @@ public class MemoryVectorStore implements VectorStore
     public static double computeCosineSimilarity(JSONArray<Double> a, JSONArray<Double> b)
     {
         var product = computeDotProduct(a, b);
-        var magnitudes = new double[]{ computeMagnitude(a), computeMagnitude(b) };
         
-        return (product / (magnitudes[0] * magnitudes[1]));
+        return (product / (computeMagnitude(a) * computeMagnitude(b)));
     }
     
     public static double computeEuclidianDistance(JSONArray<Double> a, JSONArray<Double> b)
     {
-        var squared = new double[a.size()];
-        var distances = new double[a.size()];
         var sum = 0.0;
+        var distance = 0.0;
         
         if(a.size() != b.size()) throw new ConvirganceException("Vector size mismatches: " + a.size() + " != " + b.size());
 
         for(int i=0; i<a.size(); i++)
         {
-            distances[i] = a.getDouble(i) - b.getDouble(i);
-            squared[i] = Math.pow(distances[i], 2);
-            sum += squared[i];
+            distance = a.getDouble(i) - b.getDouble(i);
+            sum += distance * distance;
         }
         
         return Math.sqrt(sum);
     }
+    
+    private class Query
+    {
+        private float[] embed;
+        private float magnitude;
+        private double threshold = MemoryVectorStore.this.threshold;
+        private int limit = MemoryVectorStore.this.limit;
+        private int maxResults = MemoryVectorStore.this.maxResults;
+        private boolean ranked = MemoryVectorStore.this.ranked;
+
+        public Query(float[] embed)
+        {
+            this.embed = embed;
+            this.magnitude = (float)computeMagnitude(embed);
+        }
+        
+        public Hits newHits()
+        {
+            return ranked ? new RankedHits(limit, maxResults) : new Hits(limit, maxResults);
+        }
+    }
+    
+    private class Scan extends RecursiveAction
+    {
+        private Query query;
+        private Hits[] segments;
+        private int size;
+        private int start;
+        private int end;
+
+        public Scan(Query query, Hits[] segments, int size, int start, int end)
+        {
+            this.query = query;
+            this.segments = segments;
+            this.size = size;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            var middle = (start + end) >>> 1;
+            
+            if(end - start == 1)
+            {
+                segments[start] = scan(query, start * size, Math.min(count, (start + 1) * size));
+                return;
+            }
+            
+            invokeAll(
+                new Scan(query, segments, size, start, middle),
+                new Scan(query, segments, size, middle, end)
+            );
+        }
+    }
 }
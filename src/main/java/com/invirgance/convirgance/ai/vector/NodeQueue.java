@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import java.util.Arrays;
+
+/**
+ * A growable binary heap of node ids keyed by distance, held in primitive 
+ * arrays. Either the closest or the farthest node is on top.
+ *
+ * @author jbanes
+ */
+class NodeQueue
+{
+    private int[] ids;
+    private float[] distances;
+    private int size;
+    private boolean farthest;
+
+    /**
+     * @param capacity the initial capacity
+     * @param farthest true to keep the farthest node on top, false for the closest
+     */
+    public NodeQueue(int capacity, boolean farthest)
+    {
+        this.ids = new int[Math.max(capacity, 4)];
+        this.distances = new float[ids.length];
+        this.farthest = farthest;
+    }
+    
+    public int size()
+    {
+        return size;
+    }
+    
+    public boolean isEmpty()
+    {
+        return (size == 0);
+    }
+    
+    public int peek()
+    {
+        return ids[0];
+    }
+    
+    public float peekDistance()
+    {
+        return distances[0];
+    }
+    
+    private boolean isAbove(int left, int right)
+    {
+        return farthest ? distances[left] > distances[right] : distances[left] < distances[right];
+    }
+    
+    private void swap(int left, int right)
+    {
+        var id = ids[left];
+        var distance = distances[left];
+        
+        ids[left] = ids[right];
+        distances[left] = distances[right];
+        ids[right] = id;
+        distances[right] = distance;
+    }
+    
+    public void push(int id, float distance)
+    {
+        var position = size;
+        var parent = 0;
+        
+        if(size >= ids.length)
+        {
+            ids = Arrays.copyOf(ids, size << 1);
+            distances = Arrays.copyOf(distances, size << 1);
+        }
+        
+        ids[size] = id;
+        distances[size] = distance;
+        size++;
+        
+        while(position > 0)
+        {
+            parent = (position - 1) >>> 1;
+            
+            if(!isAbove(position, parent)) return;
+            
+            swap(position, parent);
+            position = parent;
+        }
+    }
+    
+    public int pop()
+    {
+        var id = ids[0];
+        var position = 0;
+        var child = 0;
+        
+        size--;
+        swap(0, size);
+        
+        while((child = (position << 1) + 1) < size)
+        {
+            if(child + 1 < size && isAbove(child + 1, child)) child++;
+            if(!isAbove(child, position)) break;
+            
+            swap(position, child);
+            position = child;
+        }
+        
+        return id;
+    }
+    
+    public void clear()
+    {
+        size = 0;
+    }
+    
+    /**
+     * Empties the queue into the arrays provided, closest first
+     * 
+     * @param ids receives the node ids
+     * @param distances receives the distances
+     * @return the number of nodes drained
+     */
+    public int drain(int[] ids, float[] distances)
+    {
+        var count = size;
+        var index = 0;
+        
+        for(int i=0; i<count; i++)
+        {
+            index = farthest ? count - i - 1 : i;
+            distances[index] = this.distances[0];
+            ids[index] = pop();
+        }
+        
+        return count;
+    }
+}
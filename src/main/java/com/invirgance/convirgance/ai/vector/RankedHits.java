@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+/**
+ * A max-heap of the best documents seen so far, worst on top. The worst 
+ * is dropped whenever the rest already fill the word budget or there are
+ * more than <code>maxResults</code>. Ties go to the earlier document.
+ *
+ * @author jbanes
+ */
+class RankedHits extends Hits
+{
+    public RankedHits(int limit, int maxResults)
+    {
+        super(limit, maxResults);
+    }
+    
+    private boolean isWorse(int left, int right)
+    {
+        if(distances[left] != distances[right]) return distances[left] > distances[right];
+        
+        return indices[left] > indices[right];
+    }
+    
+    private boolean isFull()
+    {
+        if(maxResults > 0 && size >= maxResults) return true;
+        if(limit > 0 && total > limit) return true;
+        
+        return false;
+    }
+    
+    private void swap(int left, int right)
+    {
+        var index = indices[left];
+        var distance = distances[left];
+        var count = words[left];
+        
+        indices[left] = indices[right];
+        distances[left] = distances[right];
+        words[left] = words[right];
+        
+        indices[right] = index;
+        distances[right] = distance;
+        words[right] = count;
+    }
+    
+    private void siftUp(int position)
+    {
+        var parent = 0;
+        
+        while(position > 0)
+        {
+            parent = (position - 1) >>> 1;
+            
+            if(!isWorse(position, parent)) return;
+            
+            swap(position, parent);
+            position = parent;
+        }
+    }
+    
+    private void siftDown(int position, int end)
+    {
+        var child = 0;
+        
+        while((child = (position << 1) + 1) < end)
+        {
+            if(child + 1 < end && isWorse(child + 1, child)) child++;
+            if(!isWorse(child, position)) return;
+            
+            swap(position, child);
+            position = child;
+        }
+    }
+    
+    private void removeWorst()
+    {
+        total -= words[0];
+        size--;
+        
+        swap(0, size);
+        siftDown(0, size);
+    }
+    
+    @Override
+    public boolean add(int index, double distance, int words)
+    {
+        // Can't displace anything when it ranks below the current worst
+        if(isFull() && (distance > distances[0] || (distance == distances[0] && index > indices[0]))) return true;
+        
+        append(index, distance, words);
+        siftUp(size - 1);
+        
+        while(size > 1 && ((maxResults > 0 && size > maxResults) || (limit > 0 && total - this.words[0] > limit)))
+        {
+            removeWorst();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Heap sorts in place, leaving the best match first
+     */
+    @Override
+    public void sort()
+    {
+        for(int end=size-1; end>0; end--)
+        {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+/**
+ * Plain loops that work on any JVM
+ *
+ * @author jbanes
+ */
+final class ScalarKernel extends SimilarityKernel
+{
+    @Override
+    public String getName()
+    {
+        return "scalar";
+    }
+
+    @Override
+    public float dotProduct(float[] a, float[] block, int offset)
+    {
+        var sum = 0.0f;
+        
+        for(int i=0; i<a.length; i++) sum += a[i] * block[offset + i];
+        
+        return sum;
+    }
+
+    @Override
+    public float squaredDistance(float[] a, float[] block, int offset)
+    {
+        var sum = 0.0f;
+        var difference = 0.0f;
+        
+        for(int i=0; i<a.length; i++)
+        {
+            difference = a[i] - block[offset + i];
+            sum += difference * difference;
+        }
+        
+        return sum;
+    }
+
+    @Override
+    public float cosineSimilarity(float[] a, float[] block, int offset)
+    {
+        var product = 0.0f;
+        var left = 0.0f;
+        var right = 0.0f;
+        var value = 0.0f;
+        
+        for(int i=0; i<a.length; i++)
+        {
+            value = block[offset + i];
+            product += a[i] * value;
+            left += a[i] * a[i];
+            right += value * value;
+        }
+        
+        return (float)(product / Math.sqrt((double)left * right));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels built on the incubating Vector API. The main loops keep two
+ * accumulators so consecutive fused multiply-adds don't wait on each other,
+ * and whatever doesn't fill a full vector is finished with scalar code.
+ * Loaded reflectively by {@link SimilarityKernel} so that nothing touches
+ * <code>jdk.incubator.vector</code> unless the module is present.
+ *
+ * @author jbanes
+ */
+final class SimdKernel extends SimilarityKernel
+{
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    
+    @Override
+    public String getName()
+    {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public float dotProduct(float[] a, float[] block, int offset)
+    {
+        var length = SPECIES.length();
+        var first = FloatVector.zero(SPECIES);
+        var second = FloatVector.zero(SPECIES);
+        var sum = 0.0f;
+        int i = 0;
+        
+        for(; i<SPECIES.loopBound(a.length) - length; i += length * 2)
+        {
+            first = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, block, offset + i), first);
+            second = FloatVector.fromArray(SPECIES, a, i + length).fma(FloatVector.fromArray(SPECIES, block, offset + i + length), second);
+        }
+        
+        for(; i<SPECIES.loopBound(a.length); i += length)
+        {
+            first = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, block, offset + i), first);
+        }
+        
+        sum = first.add(second).reduceLanes(VectorOperators.ADD);
+        
+        for(; i<a.length; i++) sum += a[i] * block[offset + i];
+        
+        return sum;
+    }
+
+    @Override
+    public float squaredDistance(float[] a, float[] block, int offset)
+    {
+        var length = SPECIES.length();
+        var first = FloatVector.zero(SPECIES);
+        var second = FloatVector.zero(SPECIES);
+        var difference = FloatVector.zero(SPECIES);
+        var sum = 0.0f;
+        var value = 0.0f;
+        int i = 0;
+        
+        for(; i<SPECIES.loopBound(a.length) - length; i += length * 2)
+        {
+            difference = FloatVector.fromArray(SPECIES, a, i).sub(FloatVector.fromArray(SPECIES, block, offset + i));
+            first = difference.fma(difference, first);
+            difference = FloatVector.fromArray(SPECIES, a, i + length).sub(FloatVector.fromArray(SPECIES, block, offset + i + length));
+            second = difference.fma(difference, second);
+        }
+        
+        for(; i<SPECIES.loopBound(a.length); i += length)
+        {
+            difference = FloatVector.fromArray(SPECIES, a, i).sub(FloatVector.fromArray(SPECIES, block, offset + i));
+            first = difference.fma(difference, first);
+        }
+        
+        sum = first.add(second).reduceLanes(VectorOperators.ADD);
+        
+        for(; i<a.length; i++)
+        {
+            value = a[i] - block[offset + i];
+            sum += value * value;
+        }
+        
+        return sum;
+    }
+
+    @Override
+    public float cosineSimilarity(float[] a, float[] block, int offset)
+    {
+        var product = FloatVector.zero(SPECIES);
+        var left = FloatVector.zero(SPECIES);
+        var right = FloatVector.zero(SPECIES);
+        var va = FloatVector.zero(SPECIES);
+        var vb = FloatVector.zero(SPECIES);
+        var sum = 0.0f;
+        var leftSum = 0.0f;
+        var rightSum = 0.0f;
+        int i = 0;
+        
+        for(; i<SPECIES.loopBound(a.length); i += SPECIES.length())
+        {
+            va = FloatVector.fromArray(SPECIES, a, i);
+            vb = FloatVector.fromArray(SPECIES, block, offset + i);
+            product = va.fma(vb, product);
+            left = va.fma(va, left);
+            right = vb.fma(vb, right);
+        }
+        
+        sum = product.reduceLanes(VectorOperators.ADD);
+        leftSum = left.reduceLanes(VectorOperators.ADD);
+        rightSum = right.reduceLanes(VectorOperators.ADD);
+        
+        for(; i<a.length; i++)
+        {
+            sum += a[i] * block[offset + i];
+            leftSum += a[i] * a[i];
+            rightSum += block[offset + i] * block[offset + i];
+        }
+        
+        return (float)(sum / Math.sqrt((double)leftSum * rightSum));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+/**
+ * The similarity math used to search embeddings, over primitive arrays. Two
+ * implementations exist: one built on the incubating Java Vector API that uses
+ * every lane the CPU offers, and a plain scalar loop used when the
+ * <code>jdk.incubator.vector</code> module isn't enabled. The JVM must be
+ * started with <code>--add-modules jdk.incubator.vector</code> for the former.
+ * Setting the system property <code>convirgance.vector.simd</code> to 
+ * <code>false</code> forces the scalar implementation.
+ * <br><br>
+ * Each method compares the whole of <code>a</code> against the same number of
+ * values in <code>block</code> starting at <code>offset</code>, which allows 
+ * a store to keep its vectors back to back in one array.
+ *
+ * @author jbanes
+ */
+public abstract class SimilarityKernel
+{
+    private static final SimilarityKernel scalar = new ScalarKernel();
+    private static final SimilarityKernel preferred = load();
+    
+    private static SimilarityKernel load()
+    {
+        if(!Boolean.parseBoolean(System.getProperty("convirgance.vector.simd", "true"))) return scalar;
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return scalar;
+        
+        try
+        {
+            return (SimilarityKernel)Class.forName(SimilarityKernel.class.getPackageName() + ".SimdKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        }
+        catch(ReflectiveOperationException | LinkageError e)
+        {
+            return scalar;
+        }
+    }
+    
+    /**
+     * The fastest kernel available in this JVM
+     * 
+     * @return the SIMD kernel if the Vector API is enabled, otherwise the scalar kernel
+     */
+    public static SimilarityKernel getInstance()
+    {
+        return preferred;
+    }
+    
+    /**
+     * The portable kernel. Useful as a reference for comparing results.
+     * 
+     * @return the scalar kernel
+     */
+    public static SimilarityKernel getScalar()
+    {
+        return scalar;
+    }
+    
+    /**
+     * A short description of the implementation such as <code>scalar</code>
+     * or <code>simd-256</code>.
+     * 
+     * @return the name of the kernel
+     */
+    public abstract String getName();
+    
+    public abstract float dotProduct(float[] a, float[] block, int offset);
+    
+    /**
+     * The square of the L2 (Euclidean) distance. Take the square root for the 
+     * actual distance; ranking by the square gives the same order.
+     * 
+     * @param a the vector
+     * @param block the block holding the other vector
+     * @param offset the position of the other vector in the block
+     * @return the squared distance
+     */
+    public abstract float squaredDistance(float[] a, float[] block, int offset);
+    
+    /**
+     * Computes the cosine similarity in a single pass, without needing the
+     * magnitudes to have been computed ahead of time.
+     * 
+     * @param a the vector
+     * @param block the block holding the other vector
+     * @param offset the position of the other vector in the block
+     * @return the cosine similarity between -1.0 and 1.0
+     */
+    public abstract float cosineSimilarity(float[] a, float[] block, int offset);
+    
+    public float magnitude(float[] vector)
+    {
+        return (float)Math.sqrt(dotProduct(vector, vector, 0));
+    }
+    
+    @Override
+    public String toString()
+    {
+        return getName();
+    }
+}
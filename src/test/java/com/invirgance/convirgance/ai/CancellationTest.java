@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai;
+
+import com.invirgance.convirgance.ai.engines.OllamaStub;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.web.servlet.ServiceState;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class CancellationTest
+{
+    @AfterEach
+    public void tearDown()
+    {
+        ServiceState.release();
+    }
+    
+    private static void waitForAbort(OllamaStub stub) throws InterruptedException
+    {
+        var end = System.currentTimeMillis() + 5000;
+        
+        while(stub.getAborted() < 1 && System.currentTimeMillis() < end) Thread.sleep(10);
+    }
+    
+    private static int getActive(OllamaChatModel model)
+    {
+        var statistics = model.getEngine().getBulkheadStatistics();
+        var active = 0;
+        
+        for(var name : statistics.keySet()) active += statistics.getJSONObject(name).getInt("active");
+        
+        return active;
+    }
+    
+    @Test
+    public void testCancelStream() throws Exception
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var cancellation = Cancellation.install();
+            var count = 0;
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setChat("Tell me a long story");
+            model.setStream(true);
+            
+            stub.setTokens(1000);
+            stub.setTokenDelay(10);
+            
+            for(var record : model.getBinding(new JSONObject()))
+            {
+                assertNotNull(record.getString("response"));
+                
+                // The client goes away part way through the answer
+                if(++count == 3) cancellation.cancel();
+            }
+            
+            waitForAbort(stub);
+            
+            assertEquals(3, count);
+            assertEquals(1, stub.getAborted());
+            assertTrue(stub.getStreamed() < 100);
+            assertEquals(0, getActive(model));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testCancelWhileWaiting() throws Exception
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var cancellation = Cancellation.install();
+            var start = System.currentTimeMillis();
+            var count = 0;
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setChat("Think hard about this");
+            model.setStream(true);
+            
+            stub.setTokens(5);
+            stub.setTokenDelay(2000);
+            
+            // Cancelled from another thread while blocked on the first token
+            CompletableFuture.runAsync(() -> {
+                try { Thread.sleep(200); } catch(InterruptedException e) { }
+                
+                cancellation.cancel();
+            });
+            
+            for(var record : model.getBinding(new JSONObject())) count++;
+            
+            assertEquals(0, count);
+            assertTrue(System.currentTimeMillis() - start < 1500);
+            assertEquals(0, getActive(model));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testCancelledBeforeStart()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var cancellation = Cancellation.install();
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setChat("Hello");
+            
+            var binding = model.getBinding(new JSONObject());
+            
+            cancellation.cancel();
+            
+            assertFalse(binding.iterator().hasNext());
+            assertEquals(0, stub.getRequests("generate"));
+            
+            // Requests without a cancellation are unaffected
+            ServiceState.release();
+            
+            assertEquals("Hello", model.getBinding(new JSONObject()).iterator().next().getString("response"));
+            
+            model.getEngine().close();
+        }
+    }
+}
@@ -23,7 +23,13 @@
  */
 package com.invirgance.convirgance.ai;
 
+import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.ai.advisors.OllamaConversationAdvisor;
+import com.invirgance.convirgance.ai.engines.CircuitOpenException;
+import com.invirgance.convirgance.ai.engines.DeadlineExceededException;
+import com.invirgance.convirgance.ai.engines.ModelNotReadyException;
+import com.invirgance.convirgance.ai.engines.OllamaStub;
+import com.invirgance.convirgance.ai.fallbacks.StaticFallback;
 import com.invirgance.convirgance.ai.tools.ComputeTool;
 import com.invirgance.convirgance.ai.vector.MemoryVectorStore;
 import com.invirgance.convirgance.ai.vector.StringDocument;
@@ -32,6 +38,10 @@ import com.invirgance.convirgance.json.JSONObject;
 import com.invirgance.convirgance.web.http.HttpRequest;
 import com.invirgance.convirgance.web.servlet.ServiceState;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -251,6 +261,349 @@ public class OllamaChatModelTest
         }
     }
     
+    @Test
+    public void testFallback()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var fallback = new StaticFallback();
+            var parameters = new JSONObject();
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setChat("Why is the sky blue?");
+            model.getEngine().setMaxRetries(0);
+            model.getEngine().setCircuitMinimumCalls(2);
+            
+            stub.setFault("generate", 2, 500);
+            
+            for(int i=0; i<2; i++)
+            {
+                assertThrows(ConvirganceException.class, () -> model.getBinding(parameters).iterator().next());
+            }
+            
+            // Fails fast without a fallback
+            assertThrows(CircuitOpenException.class, () -> model.getBinding(parameters).iterator().next());
+            
+            model.setFallback(fallback);
+            
+            for(var record : model.getBinding(parameters))
+            {
+                assertEquals(fallback.getResponse(), record.getString("response"));
+                assertTrue(record.getBoolean("fallback"));
+            }
+            
+            assertEquals(2, stub.getRequests("generate"));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testBatchedEmbeddings()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var store = new MemoryVectorStore();
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.getEngine().getBatcher().setWindow(100);
+            model.setEmbeddings(store);
+            model.setDocuments(List.of(new StringDocument("One", "Two", "Three"), new StringDocument("Four", "Five")));
+            
+            // All five chunks are embedded with a single call
+            assertEquals(1, stub.getRequests("embed"));
+            assertEquals(5, stub.getLastRequest("embed").getJSONArray("input").size());
+            assertEquals("Three", store.match(OllamaStub.embed("Three")));
+            
+            // The query is embedded directly instead of waiting for a batch
+            model.setChat("Three");
+            model.getBinding(new JSONObject()).iterator().next();
+            
+            assertEquals(2, stub.getRequests("embed"));
+            assertEquals(5L, model.getEngine().getBatcher().getStatistics().getLong("requests"));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testLargeCorpus()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var store = new MemoryVectorStore();
+            var chunks = new String[2000];
+            
+            for(int i=0; i<chunks.length; i++) chunks[i] = "Chunk " + i;
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.getEngine().setMaxEmbedConcurrency(2);
+            model.getEngine().setMaxQueue(2);
+            model.getEngine().getBatcher().setMaxBatchSize(8);
+            model.setEmbeddings(store);
+            
+            // 250 batches queued at once would overflow the wait queue
+            model.setDocuments(List.of(new StringDocument(chunks)));
+            
+            assertEquals(2000, store.getCount());
+            assertEquals(250, stub.getRequests("embed"));
+            assertEquals("Chunk 1234", store.match(OllamaStub.embed("Chunk 1234")));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testPublisher() throws Exception
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var records = new CopyOnWriteArrayList<JSONObject>();
+            var done = new CompletableFuture<Void>();
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setChat("Why is the sky blue?");
+            model.setStream(true);
+            
+            stub.setTokens(3);
+            
+            model.getPublisher(new JSONObject()).subscribe(new Flow.Subscriber<JSONObject>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription)
+                {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(JSONObject record)
+                {
+                    records.add(record);
+                }
+
+                @Override
+                public void onError(Throwable error)
+                {
+                    done.completeExceptionally(error);
+                }
+
+                @Override
+                public void onComplete()
+                {
+                    done.complete(null);
+                }
+            });
+            
+            done.get(5, TimeUnit.SECONDS);
+            
+            assertEquals(4, records.size());
+            assertEquals("Hello", records.get(0).getString("response"));
+            assertTrue(records.get(3).getBoolean("done"));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testPull()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var parameters = new JSONObject();
+            
+            stub.setInstalledModels();
+            stub.setPullDelay(500);
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.getEngine().getProvisioner().setLog(false);
+            model.setChat("Why is the sky blue?");
+            model.setReadyTimeout(50);
+            model.setPull(true);
+            
+            // Wiring doesn't wait on the download
+            assertFalse(model.isReady());
+            assertThrows(ModelNotReadyException.class, () -> model.getBinding(parameters));
+            
+            model.setFallback(new StaticFallback());
+            
+            assertTrue(model.getBinding(parameters).iterator().next().getBoolean("fallback"));
+            
+            // Waits out the rest of the pull
+            model.setReadyTimeout(0);
+            
+            assertEquals("Hello", model.getBinding(parameters).iterator().next().getString("response"));
+            assertTrue(model.isReady());
+            assertEquals("ready", model.getStatus().getString("model"));
+            assertNull(model.getStatus().get("error"));
+            assertEquals(1, stub.getRequests("pull"));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testPullDocuments() throws Exception
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var store = new MemoryVectorStore();
+            
+            stub.setInstalledModels();
+            stub.setPullDelay(500);
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.getEngine().getProvisioner().setLog(false);
+            model.setPull(true);
+            model.setEmbeddings(store);
+            model.setDocuments(List.of(new StringDocument("One", "Two", "Three")));
+            
+            // Neither setter waits on the download of the embedding model
+            assertFalse(model.isReady());
+            assertEquals("loading", model.getStatus().getString("documents"));
+            assertEquals(0, store.getCount());
+            
+            for(int i=0; i<200 && !model.isReady(); i++) Thread.sleep(50);
+            
+            assertTrue(model.isReady());
+            assertEquals("loaded", model.getStatus().getString("documents"));
+            assertEquals(3, store.getCount());
+            assertEquals("Two", store.match(OllamaStub.embed("Two")));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testLoadFailure() throws Exception
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var store = new MemoryVectorStore();
+            
+            stub.setInstalledModels();
+            stub.setFault("embed", 1, 400);
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.getEngine().getProvisioner().setLog(false);
+            model.setPull(true);
+            model.setEmbeddings(store);
+            model.setDocuments(List.of(new StringDocument("One", "Two", "Three")));
+            
+            for(int i=0; i<200 && model.getStatus().getString("documents").equals("loading"); i++) Thread.sleep(50);
+            
+            // The failure is reported rather than leaving the model loading
+            assertFalse(model.isReady());
+            assertEquals("failed", model.getStatus().getString("documents"));
+            assertEquals("ready", model.getStatus().getString("embeddingModel"));
+            assertNotNull(model.getStatus().getString("error"));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testStubTool()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var parameters = new JSONObject();
+            var calls = new JSONArray<JSONObject>();
+            
+            calls.add(new JSONObject("{\"function\": {\"name\": \"add\", \"arguments\": {\"arg0\": \"3\", \"arg1\": \"2\"}}}"));
+            
+            stub.setToolCalls(calls);
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setTools(List.of(new ComputeTool()));
+            model.setChat("What is 3 + 2?");
+            
+            for(var record : model.getBinding(parameters))
+            {
+                assertEquals("The answer is 5.0", record.getJSONObject("message").getString("content"));
+            }
+            
+            // One call to request the tool and one with the result
+            assertEquals(2, stub.getRequests("chat"));
+            assertEquals("tool", stub.getLastRequest("chat").getJSONArray("messages").getJSONObject(1).getString("role"));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testTimeout()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var fallback = new StaticFallback();
+            var parameters = new JSONObject();
+            var start = System.currentTimeMillis();
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setChat("Why is the sky blue?");
+            model.setTimeout(200);
+            
+            stub.setDelay(1000);
+            
+            assertThrows(DeadlineExceededException.class, () -> model.getBinding(parameters).iterator().next());
+            assertTrue(System.currentTimeMillis() - start < 800);
+            
+            // Degrades to the fallback once one is set
+            model.setFallback(fallback);
+            
+            assertTrue(model.getBinding(parameters).iterator().next().getBoolean("fallback"));
+            
+            model.getEngine().close();
+        }
+    }
+    
+    @Test
+    public void testDroppedConnection()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var model = new OllamaChatModel();
+            var fallback = new StaticFallback();
+            var parameters = new JSONObject();
+            
+            model.setBaseUrl(stub.getBaseUrl());
+            model.setChat("Why is the sky blue?");
+            model.setStream(true);
+            model.setFallback(fallback);
+            model.getEngine().setMaxRetries(0);
+            
+            stub.setTokens(3);
+            
+            // Dropped before the first record is answered by the fallback
+            stub.setDropAfter(0);
+            
+            var iterator = model.getBinding(parameters).iterator();
+            
+            assertTrue(iterator.hasNext());
+            assertTrue(iterator.next().getBoolean("fallback"));
+            assertFalse(iterator.hasNext());
+            
+            // Dropped after the model started answering is passed on
+            stub.setDropAfter(2);
+            
+            var records = model.getBinding(parameters).iterator();
+            
+            assertFalse(records.next().getBoolean("fallback", false));
+            assertFalse(records.next().getBoolean("fallback", false));
+            assertThrows(ConvirganceException.class, () -> records.hasNext());
+            
+            model.getEngine().close();
+        }
+    }
+    
     public class RequestMock
     {
         private JSONObject session = new JSONObject();
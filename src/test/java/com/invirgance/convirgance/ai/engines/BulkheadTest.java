@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class BulkheadTest
+{
+    @Test
+    public void testQueueFull()
+    {
+        var bulkhead = new Bulkhead("test", 1, 0, 1000);
+        
+        bulkhead.acquire();
+        
+        assertThrows(ConvirganceException.class, () -> bulkhead.acquire());
+        assertEquals(1, bulkhead.getStatistics().getInt("rejected"));
+        
+        bulkhead.release();
+        bulkhead.acquire();
+        bulkhead.release();
+        
+        assertEquals(2, bulkhead.getStatistics().getInt("acquired"));
+    }
+    
+    @Test
+    public void testTimeout()
+    {
+        var bulkhead = new Bulkhead("test", 1, 10, 100);
+        var start = System.currentTimeMillis();
+        
+        bulkhead.acquire();
+        
+        assertThrows(ConvirganceException.class, () -> bulkhead.acquire());
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(1, bulkhead.getStatistics().getInt("timeouts"));
+        assertEquals(0, bulkhead.getQueueDepth());
+        assertTrue(bulkhead.getStatistics().getDouble("maxWait") >= 100);
+    }
+    
+    @Test
+    public void testEmbeddingsDoNotStarveChat()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var embeddings = new ArrayList<CompletableFuture<?>>();
+            long start;
+            
+            instance.setMaxEmbedConcurrency(1);
+            Ollama.await(instance.generateAsync("llama3.2", "Warm up"));
+            stub.setDelay(300);
+            
+            for(int i=0; i<5; i++) embeddings.add(instance.embedAsync("nomic-embed-text", "Chunk " + i));
+            
+            start = System.currentTimeMillis();
+            
+            Ollama.await(instance.generateAsync("llama3.2", "Are you there?"));
+            
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertTrue(instance.getBulkheadStatistics().getJSONObject("embed:nomic-embed-text").getInt("queueDepth") > 0);
+            
+            CompletableFuture.allOf(embeddings.toArray(CompletableFuture[]::new)).join();
+            
+            assertEquals(0, instance.getBulkheadStatistics().getJSONObject("embed:nomic-embed-text").getInt("active"));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ai.engines.CircuitBreaker.State;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class CircuitBreakerTest
+{
+    @Test
+    public void testStates() throws Exception
+    {
+        var breaker = new CircuitBreaker("test", 50, 10, 4, 100, 1);
+        
+        // Not enough calls to judge yet
+        for(int i=0; i<3; i++)
+        {
+            breaker.acquire();
+            breaker.failure();
+        }
+        
+        assertEquals(State.CLOSED, breaker.getState());
+        
+        breaker.acquire();
+        breaker.failure();
+        
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted());
+        assertThrows(CircuitOpenException.class, () -> breaker.acquire());
+        
+        Thread.sleep(120);
+        
+        // One trial call at a time
+        assertTrue(breaker.isCallPermitted());
+        breaker.acquire();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, () -> breaker.acquire());
+        
+        breaker.failure();
+        assertEquals(State.OPEN, breaker.getState());
+        
+        Thread.sleep(120);
+        
+        // Cancelled trials give back their slot
+        breaker.acquire();
+        breaker.release();
+        breaker.acquire();
+        breaker.success();
+        
+        assertEquals(State.CLOSED, breaker.getState());
+        
+        // Successes dilute failures in the window
+        for(int i=0; i<10; i++)
+        {
+            breaker.acquire();
+            
+            if(i % 4 == 0) breaker.failure();
+            else breaker.success();
+        }
+        
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(30.0, breaker.getStatistics().getDouble("failureRate"), 0.01);
+        assertEquals(2L, breaker.getStatistics().getLong("rejected"));
+    }
+    
+    @Test
+    public void testFastFail()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            long start;
+            
+            instance.setMaxRetries(0);
+            instance.setCircuitMinimumCalls(5);
+            stub.setDelay(50);
+            stub.setFault("embed", 100, 500);
+            
+            for(int i=0; i<5; i++)
+            {
+                assertThrows(OllamaResponseException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            }
+            
+            start = System.currentTimeMillis();
+            
+            for(int i=0; i<100; i++)
+            {
+                assertThrows(CircuitOpenException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            }
+            
+            // Rejected without waiting on the server
+            assertTrue(System.currentTimeMillis() - start < 500);
+            assertEquals(5, stub.getRequests("embed"));
+            assertEquals("OPEN", instance.getCircuitStatistics().getJSONObject("nomic-embed-text:latest@" + stub.getBaseUrl()).getString("state"));
+            
+            // Other models on the same server are unaffected
+            assertEquals("Hello", instance.generate("llama3.2", "Hello", false).iterator().next().getString("response"));
+        }
+    }
+    
+    @Test
+    public void testRecovery() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            instance.setMaxRetries(0);
+            instance.setCircuitMinimumCalls(2);
+            instance.setCircuitOpenTimeout(100);
+            stub.setFault("embed", 2, 503);
+            
+            for(int i=0; i<2; i++)
+            {
+                assertThrows(OllamaResponseException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            }
+            
+            assertThrows(CircuitOpenException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            
+            Thread.sleep(120);
+            
+            // The trial call succeeds and closes the circuit
+            assertEquals(OllamaStub.embed("Hello"), instance.getEmbed("nomic-embed-text", "Hello"));
+            assertEquals(OllamaStub.embed("Hello"), instance.getEmbed("nomic-embed-text", "Hello"));
+        }
+    }
+    
+    @Test
+    public void testFailover()
+    {
+        try(var good = new OllamaStub(); var bad = new OllamaStub(); var instance = new Ollama())
+        {
+            instance.setMaxRetries(0);
+            instance.setCircuitMinimumCalls(2);
+            instance.setBaseUrls(List.of(good.getBaseUrl(), bad.getBaseUrl()));
+            bad.setFault("embed", 100, 500);
+            
+            for(int i=0; i<10; i++)
+            {
+                try
+                {
+                    instance.getEmbed("nomic-embed-text", "Hello");
+                }
+                catch(OllamaResponseException e) { }
+            }
+            
+            // Once the bad server's circuit opens, everything goes to the good one
+            assertEquals(2, bad.getRequests("embed"));
+            
+            for(int i=0; i<10; i++) instance.getEmbed("nomic-embed-text", "Hello");
+            
+            assertEquals(2, bad.getRequests("embed"));
+        }
+    }
+}
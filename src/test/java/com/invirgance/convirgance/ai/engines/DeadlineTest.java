@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class DeadlineTest
+{
+    private static int getActive(Ollama instance)
+    {
+        var statistics = instance.getBulkheadStatistics();
+        var active = 0;
+        
+        for(var name : statistics.keySet()) active += statistics.getJSONObject(name).getInt("active");
+        
+        return active;
+    }
+    
+    private static void drain(Iterable<JSONObject> records)
+    {
+        for(var record : records) assertNotNull(record);
+    }
+    
+    @Test
+    public void testBudget() throws Exception
+    {
+        var deadline = new Deadline(100);
+        
+        assertTrue(deadline.getRemaining() <= 100);
+        assertTrue(deadline.bound(1000, "test") <= 100);
+        assertEquals(10, deadline.bound(10, "test"));
+        assertNull(Deadline.current());
+        
+        try(var scope = deadline.enter())
+        {
+            assertSame(deadline, Deadline.current());
+            
+            try(var inner = new Deadline(50).enter())
+            {
+                assertNotSame(deadline, Deadline.current());
+            }
+            
+            assertSame(deadline, Deadline.current());
+        }
+        
+        assertNull(Deadline.current());
+        
+        Thread.sleep(120);
+        
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.getRemaining());
+        assertEquals("test", assertThrows(DeadlineExceededException.class, () -> deadline.check("test")).getStage());
+    }
+    
+    @Test
+    public void testRounding() throws Exception
+    {
+        for(int i=0; i<20; i++)
+        {
+            var deadline = new Deadline(20);
+            
+            Thread.sleep(deadline.getRemaining());
+            
+            assertTrue(deadline.isExpired());
+        }
+    }
+    
+    @Test
+    public void testRequest()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var start = System.currentTimeMillis();
+            
+            stub.setDelay(1000);
+            
+            try(var scope = new Deadline(200).enter())
+            {
+                var error = assertThrows(DeadlineExceededException.class, () -> drain(instance.generate("llama3.2", "Hi", false)));
+                
+                assertEquals("generate", error.getStage());
+            }
+            
+            assertTrue(System.currentTimeMillis() - start < 800);
+            assertEquals(0, getActive(instance));
+            
+            // Asynchronous calls inherit the caller's deadline
+            try(var scope = new Deadline(200).enter())
+            {
+                var future = instance.generateAsync("llama3.2", "Hello");
+                
+                assertThrows(DeadlineExceededException.class, () -> Ollama.await(future));
+            }
+        }
+    }
+    
+    @Test
+    public void testReadTimeout()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            stub.setDelay(500);
+            instance.setReadTimeout(10000);
+            
+            // The client's read timeout is set from the deadline and can fire
+            // just before the deadline itself reads as expired
+            for(int i=0; i<10; i++)
+            {
+                var prompt = "Hi " + i;
+                
+                try(var scope = new Deadline(50).enter())
+                {
+                    var error = assertThrows(DeadlineExceededException.class, () -> drain(instance.generate("llama3.2", prompt, false)));
+                    
+                    assertEquals("generate", error.getStage());
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testQueue()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var start = System.currentTimeMillis();
+            CompletableFuture<?> busy;
+            
+            stub.setDelay(1000);
+            instance.setMaxConcurrency(1);
+            
+            busy = instance.generateAsync("llama3.2", "Take the only permit");
+            
+            while(getActive(instance) < 1 && System.currentTimeMillis() - start < 5000) Thread.onSpinWait();
+            
+            try(var scope = new Deadline(200).enter())
+            {
+                var error = assertThrows(DeadlineExceededException.class, () -> drain(instance.generate("llama3.2", "Hi", false)));
+                
+                assertEquals("queue", error.getStage());
+            }
+            
+            assertTrue(System.currentTimeMillis() - start < 800);
+            
+            busy.join();
+        }
+    }
+    
+    @Test
+    public void testStream()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var start = System.currentTimeMillis();
+            Iterable<JSONObject> records;
+            
+            stub.setTokens(100);
+            stub.setTokenDelay(50);
+            
+            try(var scope = new Deadline(300).enter())
+            {
+                records = instance.generate("llama3.2", "Tell me a long story", true);
+            }
+            
+            // The deadline still applies while the body is read
+            assertThrows(DeadlineExceededException.class, () -> drain(records));
+            assertTrue(System.currentTimeMillis() - start < 1500);
+            assertEquals(0, getActive(instance));
+        }
+    }
+    
+    @Test
+    public void testRetry()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var start = System.currentTimeMillis();
+            
+            stub.setFault("embed", 5, 503);
+            instance.setRetryBackoff(1000);
+            
+            // Not enough time is left to back off and try again
+            try(var scope = new Deadline(300).enter())
+            {
+                assertThrows(OllamaResponseException.class, () -> instance.getEmbed("nomic-embed-text", "Hi"));
+            }
+            
+            assertTrue(System.currentTimeMillis() - start < 300);
+            assertEquals(1, stub.getRequests("embed"));
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class EmbeddingBatcherTest
+{
+    private static float[] toArray(JSONArray<Double> embed)
+    {
+        var vector = new float[embed.size()];
+        
+        for(int i=0; i<vector.length; i++) vector[i] = (float)embed.getDouble(i);
+        
+        return vector;
+    }
+    
+    @Test
+    public void testBatching()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var batcher = instance.getBatcher();
+            var futures = new ArrayList<CompletableFuture<JSONArray<Double>>>();
+            
+            batcher.setWindow(50);
+            
+            for(int i=0; i<20; i++) futures.add(batcher.queue("nomic-embed-text", "Text " + i));
+            
+            futures.add(batcher.queue("mxbai-embed-large", "Other model"));
+            
+            for(int i=0; i<20; i++) assertEquals(OllamaStub.embed("Text " + i), futures.get(i).join());
+            
+            assertEquals(OllamaStub.embed("Other model"), futures.get(20).join());
+            assertEquals(2, stub.getRequests("embed"));
+            
+            assertEquals(21L, batcher.getStatistics().getLong("requests"));
+            assertEquals(2L, batcher.getStatistics().getLong("batches"));
+            assertEquals(20L, batcher.getStatistics().getLong("largestBatch"));
+            assertEquals(10.5, batcher.getStatistics().getDouble("averageBatchSize"));
+            assertTrue(batcher.getStatistics().getDouble("maxWait") >= 40);
+            assertEquals(0, batcher.getStatistics().getInt("pending"));
+        }
+    }
+    
+    @Test
+    public void testMaxBatchSize()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var batcher = instance.getBatcher();
+            var futures = new ArrayList<CompletableFuture<JSONArray<Double>>>();
+            var start = System.currentTimeMillis();
+            
+            batcher.setWindow(10000);
+            batcher.setMaxBatchSize(8);
+            
+            for(int i=0; i<16; i++) futures.add(batcher.queue("nomic-embed-text", "Text " + i));
+            
+            // Full batches go out without waiting for the window
+            for(int i=0; i<16; i++) assertEquals(OllamaStub.embed("Text " + i), futures.get(i).join());
+            
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertEquals(2, stub.getRequests("embed"));
+            assertEquals(8, stub.getLastRequest("embed").getJSONArray("input").size());
+            assertEquals(8L, batcher.getStatistics().getLong("largestBatch"));
+            
+            // Without a window every request is sent on its own
+            batcher.setWindow(0);
+            
+            assertEquals(OllamaStub.embed("Alone"), batcher.getEmbed("nomic-embed-text", "Alone"));
+            assertEquals(3, stub.getRequests("embed"));
+            assertEquals(1, stub.getLastRequest("embed").getJSONArray("input").size());
+        }
+    }
+    
+    @Test
+    public void testVectors()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var batcher = instance.getBatcher();
+            var vectors = new ArrayList<CompletableFuture<float[]>>();
+            CompletableFuture<JSONArray<Double>> boxed;
+            
+            batcher.setWindow(50);
+            
+            for(int i=0; i<4; i++) vectors.add(batcher.queueVector("nomic-embed-text", "Text " + i));
+            
+            for(int i=0; i<4; i++) assertArrayEquals(toArray(OllamaStub.embed("Text " + i)), vectors.get(i).join());
+            
+            assertEquals(1, stub.getRequests("embed"));
+            
+            // Mixed batches still give each caller the type it asked for
+            vectors.clear();
+            vectors.add(batcher.queueVector("nomic-embed-text", "Vector"));
+            boxed = batcher.queue("nomic-embed-text", "Boxed");
+            
+            assertArrayEquals(toArray(OllamaStub.embed("Vector")), vectors.get(0).join());
+            assertEquals(OllamaStub.embed("Boxed"), boxed.join());
+            assertEquals(2, stub.getRequests("embed"));
+        }
+    }
+    
+    @Test
+    public void testFailure()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var batcher = instance.getBatcher();
+            var futures = new ArrayList<CompletableFuture<JSONArray<Double>>>();
+            
+            batcher.setWindow(100);
+            stub.setFault("embed", 1, 400);
+            
+            for(int i=0; i<4; i++) futures.add(batcher.queue("nomic-embed-text", "Text " + i));
+            
+            // Every caller in the batch sees the error
+            for(var future : futures)
+            {
+                assertThrows(OllamaResponseException.class, () -> Ollama.await(future));
+            }
+            
+            assertEquals(1, stub.getRequests("embed"));
+            assertEquals(OllamaStub.embed("Text 0"), batcher.getEmbed("nomic-embed-text", "Text 0"));
+        }
+    }
+    
+    @Test
+    public void testDeadline()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var batcher = instance.getBatcher();
+            var start = System.currentTimeMillis();
+            CompletableFuture<float[]> first;
+            CompletableFuture<float[]> second;
+            
+            batcher.setWindow(20);
+            stub.setDelay(5000);
+            
+            try(var scope = new Deadline(100).enter())
+            {
+                first = batcher.queueVector("nomic-embed-text", "Text 0");
+            }
+            
+            try(var scope = new Deadline(200).enter())
+            {
+                second = batcher.queueVector("nomic-embed-text", "Text 1");
+            }
+            
+            // The call is abandoned once the longest deadline expires
+            assertThrows(DeadlineExceededException.class, () -> Ollama.await(first));
+            assertThrows(DeadlineExceededException.class, () -> Ollama.await(second));
+            assertTrue(System.currentTimeMillis() - start < 2500);
+            assertEquals(1, stub.getRequests("embed"));
+        }
+    }
+    
+    @Test
+    public void testClose()
+    {
+        var stub = new OllamaStub();
+        var instance = new Ollama(stub.getBaseUrl());
+        var batcher = instance.getBatcher();
+        
+        batcher.setWindow(10000);
+        
+        var future = batcher.queue("nomic-embed-text", "Never sent");
+        
+        instance.close();
+        stub.close();
+        
+        assertThrows(ConvirganceException.class, () -> Ollama.await(future));
+        assertEquals(0, stub.getRequests("embed"));
+    }
+}
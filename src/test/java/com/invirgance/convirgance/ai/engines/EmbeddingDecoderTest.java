@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.JSONInput;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.Source;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class EmbeddingDecoderTest
+{
+    private static InputStream stream(String json)
+    {
+        return new ByteArrayInputStream(json.getBytes());
+    }
+    
+    private static byte[] createResponse(int count, int dimensions)
+    {
+        var random = new Random(42);
+        var embeddings = new JSONArray<JSONArray<Double>>();
+        var response = new JSONObject();
+        JSONArray<Double> embedding;
+        
+        for(int i=0; i<count; i++)
+        {
+            embedding = new JSONArray<>();
+            
+            for(int j=0; j<dimensions; j++) embedding.add((double)(float)random.nextGaussian() / 10);
+            
+            embeddings.add(embedding);
+        }
+        
+        response.put("model", "nomic-embed-text");
+        response.put("embeddings", embeddings);
+        response.put("total_duration", 14143917);
+        response.put("load_duration", 1019500);
+        response.put("prompt_eval_count", 8);
+        
+        return response.toString().getBytes();
+    }
+    
+    @Test
+    public void testDecode() throws Exception
+    {
+        var json = "{\"model\": \"a \\\"quoted\\\" name\", \"options\": {\"list\": [1, {\"x\": \"]\"}], \"flag\": true}, "
+                 + "\"embeddings\": [[0.5, -1.25e-2, 3E2, 0, -0.0001234567891234567891], [1.0, 2.5, -3, 4e+1, 0.000001]], "
+                 + "\"total_duration\": 123, \"missing\": null}\n";
+        var decoder = new EmbeddingDecoder(stream(json));
+        var embeddings = decoder.decode();
+        
+        assertEquals(2, embeddings.length);
+        assertEquals(2, decoder.getRows());
+        assertArrayEquals(new float[]{0.5f, -0.0125f, 300f, 0f, -0.0001234567891234567891f}, embeddings[0]);
+        assertArrayEquals(new float[]{1f, 2.5f, -3f, 40f, 0.000001f}, embeddings[1]);
+        
+        assertEquals(0, new EmbeddingDecoder(stream("{\"embeddings\": []}")).decode().length);
+        assertThrows(ConvirganceException.class, () -> new EmbeddingDecoder(stream("{\"error\": \"model not found\"}")).decode());
+        assertThrows(ConvirganceException.class, () -> new EmbeddingDecoder(stream("{\"embeddings\": [[1, 2")).decode());
+    }
+    
+    @Test
+    public void testAccuracy() throws Exception
+    {
+        var response = createResponse(4, 768);
+        var expected = new JSONObject(new String(response)).getJSONArray("embeddings");
+        var embeddings = new EmbeddingDecoder(new ByteArrayInputStream(response)).decode();
+        
+        for(int i=0; i<embeddings.length; i++)
+        {
+            for(int j=0; j<embeddings[i].length; j++)
+            {
+                assertEquals(((Number)expected.getJSONArray(i).get(j)).floatValue(), embeddings[i][j]);
+            }
+        }
+    }
+    
+    @Test
+    public void testBuffer() throws Exception
+    {
+        var buffer = new float[7];
+        var json = "{\"embeddings\": [[1, 2, 3], [4, 5, 6]]}";
+        
+        assertEquals(6, new EmbeddingDecoder(stream(json)).decode(buffer, 1));
+        assertArrayEquals(new float[]{0, 1, 2, 3, 4, 5, 6}, buffer);
+        assertThrows(ConvirganceException.class, () -> new EmbeddingDecoder(stream(json)).decode(buffer, 2));
+    }
+    
+    @Test
+    public void testEngine()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var expected = OllamaStub.embed("Why is the sky blue?");
+            var vector = instance.getEmbedVector("nomic-embed-text", "Why is the sky blue?");
+            var buffer = new float[16];
+            
+            assertEquals(expected.size(), vector.length);
+            
+            for(int i=0; i<vector.length; i++) assertEquals(expected.get(i).floatValue(), vector[i]);
+            
+            assertEquals(16, instance.getEmbedVectors("nomic-embed-text", new String[]{"One", "Two"}, buffer, 0));
+            assertEquals(OllamaStub.embed("Two").get(0).floatValue(), buffer[8]);
+            assertEquals(2, instance.getEmbedVectors("nomic-embed-text", "One", "Two").length);
+        }
+    }
+    
+    @Test
+    public void testAllocation() throws Exception
+    {
+        var threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        var thread = Thread.currentThread().threadId();
+        var response = createResponse(16, 768);
+        var iterations = 200;
+        var boxedIterations = 20;
+        var json = new JSONInput();
+        Source source = () -> new ByteArrayInputStream(response);
+        
+        long start;
+        long decoder;
+        long boxed;
+        
+        // Warm up both paths before measuring
+        for(int i=0; i<iterations; i++) new EmbeddingDecoder(new ByteArrayInputStream(response)).decode();
+        
+        for(int i=0; i<boxedIterations; i++)
+        {
+            for(var record : json.read(source)) record.getJSONArray("embeddings");
+        }
+        
+        start = threads.getThreadAllocatedBytes(thread);
+        
+        for(int i=0; i<iterations; i++) new EmbeddingDecoder(new ByteArrayInputStream(response)).decode();
+        
+        decoder = (threads.getThreadAllocatedBytes(thread) - start) / iterations;
+        start = threads.getThreadAllocatedBytes(thread);
+        
+        for(int i=0; i<boxedIterations; i++)
+        {
+            for(var record : json.read(source)) record.getJSONArray("embeddings");
+        }
+        
+        boxed = (threads.getThreadAllocatedBytes(thread) - start) / boxedIterations;
+        
+        // The vectors themselves plus the read buffer and some slack
+        assertTrue(decoder < 16 * 768 * 4 + 24 * 1024);
+        assertTrue(decoder * 4 < boxed);
+    }
+}
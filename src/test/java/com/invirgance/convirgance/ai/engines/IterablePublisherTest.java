@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class IterablePublisherTest
+{
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException
+    {
+        var end = System.currentTimeMillis() + 5000;
+        
+        while(!condition.getAsBoolean() && System.currentTimeMillis() < end) Thread.sleep(10);
+    }
+    
+    @Test
+    public void testBackPressure() throws Exception
+    {
+        var publisher = new IterablePublisher<>(List.of(1, 2, 3, 4, 5), Executors.newVirtualThreadPerTaskExecutor());
+        var subscriber = new Collector<Integer>();
+        var invalid = new Collector<Integer>();
+        
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+        
+        waitFor(() -> subscriber.records.size() >= 2);
+        Thread.sleep(50);
+        
+        // Nothing more is read until it's asked for
+        assertEquals(List.of(1, 2), subscriber.records);
+        assertFalse(subscriber.done.isDone());
+        
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.done.get(5, TimeUnit.SECONDS);
+        
+        assertEquals(List.of(1, 2, 3, 4, 5), subscriber.records);
+        
+        // Invalid requests are reported as errors
+        publisher.subscribe(invalid);
+        invalid.subscription.request(0);
+        
+        assertInstanceOf(IllegalArgumentException.class, assertThrows(Exception.class, () -> invalid.done.get(5, TimeUnit.SECONDS)).getCause());
+    }
+    
+    @Test
+    public void testStreaming() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var subscriber = new Collector<JSONObject>();
+            var response = new StringBuilder();
+            
+            stub.setTokens(5);
+            instance.generatePublisher("llama3.2", "Why is the sky blue?").subscribe(subscriber);
+            
+            subscriber.subscription.request(Long.MAX_VALUE);
+            subscriber.done.get(5, TimeUnit.SECONDS);
+            
+            for(var record : subscriber.records) response.append(record.getString("response"));
+            
+            assertEquals(6, subscriber.records.size());
+            assertEquals("Hello 1 2 3 4", response.toString());
+            assertTrue(subscriber.records.get(5).getBoolean("done"));
+            
+            subscriber = new Collector<>();
+            
+            instance.chatPublisher("llama3.2", new JSONArray(List.of(instance.constructMessage("Hi", Ollama.Role.user)))).subscribe(subscriber);
+            
+            subscriber.subscription.request(Long.MAX_VALUE);
+            subscriber.done.get(5, TimeUnit.SECONDS);
+            
+            assertEquals("Hello", subscriber.records.get(0).getJSONObject("message").getString("content"));
+            assertEquals(6, subscriber.records.size());
+        }
+    }
+    
+    @Test
+    public void testCancel() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var subscriber = new Collector<JSONObject>();
+            
+            stub.setTokens(1000);
+            stub.setTokenDelay(10);
+            instance.generatePublisher("llama3.2", "Tell me a long story").subscribe(subscriber);
+            
+            subscriber.subscription.request(3);
+            
+            waitFor(() -> subscriber.records.size() >= 3);
+            subscriber.subscription.cancel();
+            
+            // The server notices the client is gone and stops generating
+            waitFor(() -> stub.getAborted() > 0);
+            
+            assertEquals(1, stub.getAborted());
+            assertTrue(stub.getStreamed() < 100);
+            assertEquals(3, subscriber.records.size());
+            assertFalse(subscriber.done.isDone());
+            
+            for(var name : instance.getBulkheadStatistics().keySet())
+            {
+                assertEquals(0, instance.getBulkheadStatistics().getJSONObject(name).getInt("active"));
+            }
+        }
+    }
+    
+    private static class Collector<T> implements Flow.Subscriber<T>
+    {
+        List<T> records = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item)
+        {
+            records.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            done.complete(null);
+        }
+    }
+}
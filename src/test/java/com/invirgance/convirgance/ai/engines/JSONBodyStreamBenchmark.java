@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares serializing a chat request with <code>toString().getBytes()</code>
+ * against streaming it through {@link JSONBodyStream}. The sizes cover a short
+ * exchange, a conversation with retrieved documents, and a long conversation
+ * filling a large context window. Run with <code>-prof gc</code> to see the 
+ * allocation rate as well as the time. Launch it through <code>main()</code> 
+ * from the test classpath.
+ *
+ * @author jbanes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JSONBodyStreamBenchmark
+{
+    private static final String PARAGRAPH = "The sky appears blue because molecules in the atmosphere scatter shorter wavelengths of sunlight more than longer ones. \"Rayleigh scattering\" explains it.\n\tSee also: ☀️ and 🌈 — naïve café façade.\n";
+    
+    @Param({"4:2", "20:10", "60:40"})
+    public String size;
+    
+    private JSONObject message;
+    private byte[] buffer = new byte[16384];
+    
+    @Setup
+    public void setup()
+    {
+        var parts = size.split(":");
+        var turns = Integer.parseInt(parts[0]);
+        var documents = Integer.parseInt(parts[1]);
+        var messages = new JSONArray<JSONObject>();
+        var system = new StringBuilder("Use the following documents to answer questions.\n<DOCUMENTS>");
+        var turn = new JSONObject();
+        
+        for(int i=0; i<documents; i++) system.append(PARAGRAPH.repeat(8)).append("\n------\n");
+        
+        system.append("</DOCUMENTS>");
+        
+        turn.put("role", "system");
+        turn.put("content", system.toString());
+        messages.add(turn);
+        
+        for(int i=0; i<turns; i++)
+        {
+            turn = new JSONObject();
+            
+            turn.put("role", (i % 2 == 0) ? "user" : "assistant");
+            turn.put("content", PARAGRAPH.repeat(4));
+            messages.add(turn);
+        }
+        
+        message = new JSONObject();
+        
+        message.put("model", "llama3.2");
+        message.put("stream", true);
+        message.put("messages", messages);
+        message.put("options", new JSONObject("{\"temperature\": 0.7, \"num_ctx\": 32768}"));
+    }
+    
+    @Benchmark
+    public int materialize()
+    {
+        return message.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+    
+    @Benchmark
+    public int stream()
+    {
+        var total = 0;
+        var count = 0;
+        
+        try(var stream = new JSONBodyStream(message))
+        {
+            while((count = stream.read(buffer, 0, buffer.length)) > 0) total += count;
+        }
+        
+        return total;
+    }
+    
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(JSONBodyStreamBenchmark.class.getSimpleName()).build()).run();
+    }
+}
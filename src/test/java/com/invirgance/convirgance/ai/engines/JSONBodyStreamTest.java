@@ -0,0 +1,205 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class JSONBodyStreamTest
+{
+    private static final String PARAGRAPH = "The sky appears blue because molecules in the atmosphere scatter shorter wavelengths of sunlight more than longer ones. \"Rayleigh scattering\" explains it.\n\tSee also: ☀️ and 🌈 — naïve café façade.\n";
+    
+    private String read(JSONBodyStream stream) throws Exception
+    {
+        var out = new ByteArrayOutputStream();
+        var data = new byte[1000]; // Deliberately smaller than the internal buffers
+        int count;
+        
+        while((count = stream.read(data)) > 0) out.write(data, 0, count);
+        
+        return out.toString("UTF-8");
+    }
+    
+    private JSONObject createMessage(int turns, int documents)
+    {
+        var message = new JSONObject();
+        var messages = new JSONArray<JSONObject>();
+        var system = new StringBuilder("Use the following documents to answer questions.\n<DOCUMENTS>");
+        var turn = new JSONObject();
+        
+        for(int i=0; i<documents; i++) system.append(PARAGRAPH.repeat(8)).append("\n------\n");
+        
+        system.append("</DOCUMENTS>");
+        
+        turn.put("role", "system");
+        turn.put("content", system.toString());
+        messages.add(turn);
+        
+        for(int i=0; i<turns; i++)
+        {
+            turn = new JSONObject();
+            
+            turn.put("role", (i % 2 == 0) ? "user" : "assistant");
+            turn.put("content", PARAGRAPH.repeat(4));
+            messages.add(turn);
+        }
+        
+        message.put("model", "llama3.2");
+        message.put("stream", true);
+        message.put("messages", messages);
+        message.put("options", new JSONObject("{\"temperature\": 0.7, \"num_ctx\": 32768, \"stop\": [\"<|end|>\"], \"seed\": null}"));
+        
+        return message;
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        var message = new JSONObject();
+        var control = "Bell\u0007 escape\u001b quote\" slash\\ unicode   🙂";
+        
+        message.put("string", control);
+        message.put("integer", 42);
+        message.put("double", 0.015223487);
+        message.put("negative", -1.5e-7);
+        message.put("infinite", Double.POSITIVE_INFINITY);
+        message.put("boolean", true);
+        message.put("empty", new JSONArray());
+        message.put("nested", new JSONObject("{\"a\": [1, [2, {\"b\": null}], {}], \"c\": \"d\"}"));
+        message.put("null", null);
+        message.put("long", "🙂".repeat(10000)); // Surrogate pairs straddling buffer boundaries
+        
+        var result = new JSONObject(read(new JSONBodyStream(message)));
+        
+        assertEquals(control, result.getString("string"));
+        assertEquals(42, result.getInt("integer"));
+        assertEquals(0.015223487, result.getDouble("double"));
+        assertEquals(-1.5e-7, result.getDouble("negative"));
+        assertNull(result.get("infinite"));
+        assertTrue(result.getBoolean("boolean"));
+        assertEquals(message.get("nested"), result.get("nested"));
+        assertEquals(message.getString("long"), result.getString("long"));
+        assertTrue(result.containsKey("null"));
+        assertTrue(result.getJSONArray("empty").isEmpty());
+        
+        message = createMessage(20, 10);
+        
+        assertEquals(message, new JSONObject(read(new JSONBodyStream(message))));
+    }
+    
+    @Test
+    public void testMalformed() throws Exception
+    {
+        var message = new JSONObject();
+        
+        message.put("prompt", "abc\uD83D");
+        message.put("middle", "a\uDE00b" + "x".repeat(5000) + "\uD83D");
+        
+        // A lone surrogate used to leave the encoder stuck and read() spinning
+        var result = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> new JSONObject(read(new JSONBodyStream(message))));
+        
+        assertEquals("abc?", result.getString("prompt"));
+        assertEquals("a?b" + "x".repeat(5000) + "?", result.getString("middle"));
+    }
+    
+    @Test
+    public void testBigNumbers() throws Exception
+    {
+        var message = new JSONArray<Object>();
+        var integer = new BigInteger("9".repeat(5000));
+        var decimal = new BigDecimal("1." + "3".repeat(9000));
+        
+        for(int i=0; i<5; i++) 
+        {
+            message.add(integer);
+            message.add(decimal);
+            message.add("text");
+        }
+        
+        var json = read(new JSONBodyStream(message));
+        
+        assertEquals(message.toString().replace(" ", ""), json.replace(" ", ""));
+        assertTrue(json.startsWith("[" + integer + "," + decimal + ",\"text\","));
+    }
+    
+    @Test
+    public void testAllocations() throws Exception
+    {
+        var threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        var id = Thread.currentThread().getId();
+        var buffer = new byte[16384];
+        
+        for(var sizes : new int[][]{ {4, 2}, {20, 10}, {60, 40} })
+        {
+            var message = createMessage(sizes[0], sizes[1]);
+            var length = message.toString().getBytes("UTF-8").length;
+            long before;
+            long materialized;
+            long streamed;
+            long count;
+            
+            for(int i=0; i<50; i++)
+            {
+                message.toString().getBytes("UTF-8");
+                read(new JSONBodyStream(message));
+            }
+            
+            before = threads.getThreadAllocatedBytes(id);
+            
+            for(int i=0; i<100; i++) message.toString().getBytes("UTF-8");
+            
+            materialized = (threads.getThreadAllocatedBytes(id) - before) / 100;
+            before = threads.getThreadAllocatedBytes(id);
+            
+            for(int i=0; i<100; i++)
+            {
+                count = 0;
+                
+                try(var stream = new JSONBodyStream(message))
+                {
+                    while(stream.read(buffer) > 0) count++;
+                }
+                
+                assertTrue(count > 0);
+            }
+            
+            streamed = (threads.getThreadAllocatedBytes(id) - before) / 100;
+            
+            // Streaming holds a few pooled buffers regardless of the body size
+            assertTrue(streamed < materialized);
+            assertTrue(streamed < Math.max(16384, length / 4), "Streaming allocated " + streamed + " bytes for a " + length + " byte body");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class MetadataCacheTest
+{
+    @Test
+    public void testCaching()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            stub.setDimensions(768);
+            
+            for(int i=0; i<5; i++)
+            {
+                assertNotNull(instance.getModelDetails("llama3.2"));
+                assertNotNull(instance.getInstalledModels());
+            }
+            
+            assertEquals(1, stub.getRequests("show"));
+            assertEquals(1, stub.getRequests("tags"));
+            
+            // Model facts come from the cached details
+            assertEquals(8192, instance.getContextLength("llama3.2:latest"));
+            assertEquals(768, instance.getEmbeddingLength("llama3.2"));
+            assertEquals(1, stub.getRequests("show"));
+            assertEquals(10, instance.getMetadataStatistics().getInt("hits"));
+        }
+    }
+    
+    @Test
+    public void testMissing()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            stub.setInstalledModels();
+            
+            assertNull(instance.getModelDetails("llama3.2"));
+            assertNull(instance.getModelDetails("llama3.2"));
+            assertEquals(0, instance.getContextLength("llama3.2"));
+            assertEquals(1, stub.getRequests("show"));
+            
+            // Pulling forgets the missing model
+            for(var status : instance.pullModel("llama3.2")) assertNotNull(status);
+            
+            assertNotNull(instance.getModelDetails("llama3.2"));
+            assertEquals(2, stub.getRequests("show"));
+            
+            // As does deleting
+            assertTrue(instance.deleteModel("llama3.2"));
+            assertNull(instance.getModelDetails("llama3.2"));
+            assertEquals(3, stub.getRequests("show"));
+        }
+    }
+    
+    @Test
+    public void testServerFailure()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            stub.setFault("show", 1, 400);
+            
+            // Only a missing model answers null. Other failures are reported.
+            assertThrows(OllamaResponseException.class, () -> instance.getModelDetails("llama3.2"));
+            assertNotNull(instance.getModelDetails("llama3.2"));
+            assertEquals(2, stub.getRequests("show"));
+        }
+    }
+    
+    @Test
+    public void testExpiry() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            instance.setMetadataTtl(100);
+            
+            instance.getInstalledModels();
+            instance.getInstalledModels();
+            
+            assertEquals(1, stub.getRequests("tags"));
+            
+            Thread.sleep(150);
+            
+            instance.getInstalledModels();
+            
+            assertEquals(2, stub.getRequests("tags"));
+            
+            // Disabled
+            instance.setMetadataTtl(0);
+            
+            instance.getInstalledModels();
+            instance.getInstalledModels();
+            
+            assertEquals(4, stub.getRequests("tags"));
+        }
+    }
+    
+    @Test
+    public void testConcurrentMisses() throws Exception
+    {
+        var cache = new MetadataCache(60000);
+        var loads = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var pool = Executors.newFixedThreadPool(8);
+        var results = new ArrayList<Future<String>>();
+        
+        try
+        {
+            for(int i=0; i<8; i++)
+            {
+                results.add(pool.submit(() -> cache.get("show:llama3.2", () -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    
+                    try { release.await(); } catch(InterruptedException e) { throw new RuntimeException(e); }
+                    
+                    return "details";
+                })));
+            }
+            
+            started.await();
+            Thread.sleep(50);
+            release.countDown();
+            
+            for(var result : results) assertEquals("details", result.get(5, TimeUnit.SECONDS));
+            
+            assertEquals(1, loads.get());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testInvalidateDuringLoad() throws Exception
+    {
+        var cache = new MetadataCache(60000);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var pool = Executors.newSingleThreadExecutor();
+        Future<Object> stale;
+        
+        try
+        {
+            // A lookup that started before the pull finished
+            stale = pool.submit(() -> cache.get("show:llama3.2", () -> {
+                started.countDown();
+                
+                try { release.await(); } catch(InterruptedException e) { throw new RuntimeException(e); }
+                
+                return null;
+            }));
+            
+            started.await();
+            cache.invalidate("show:llama3.2");
+            release.countDown();
+            
+            assertNull(stale.get(5, TimeUnit.SECONDS));
+            assertEquals("details", cache.get("show:llama3.2", () -> "details"));
+            assertEquals("details", cache.get("show:llama3.2", () -> "stale"));
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testFailure()
+    {
+        var cache = new MetadataCache(60000);
+        
+        assertThrows(IllegalStateException.class, () -> cache.get("tags", () -> { throw new IllegalStateException(); }));
+        assertEquals("models", cache.get("tags", () -> "models"));
+    }
+}
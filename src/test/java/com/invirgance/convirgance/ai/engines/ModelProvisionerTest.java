@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ModelProvisionerTest
+{
+    @Test
+    public void testProvision()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var provisioner = instance.getProvisioner();
+            var start = System.currentTimeMillis();
+            
+            stub.setInstalledModels("nomic-embed-text");
+            stub.setPullDelay(300);
+            provisioner.setLog(false);
+            
+            var first = provisioner.provision("llama3.2");
+            var second = provisioner.provision("llama3.2:latest");
+            
+            // Returns without waiting on the pull
+            assertTrue(System.currentTimeMillis() - start < 200);
+            assertSame(first, second);
+            assertFalse(provisioner.isReady("llama3.2"));
+            
+            provisioner.await("llama3.2", 0);
+            
+            assertTrue(provisioner.isReady("llama3.2"));
+            assertEquals(1, stub.getRequests("pull"));
+            assertEquals("ready", provisioner.getStatus().getJSONObject("llama3.2:latest").getString("state"));
+            assertEquals(100, provisioner.getStatus().getJSONObject("llama3.2:latest").getInt("percent"));
+            
+            // Installed models are only checked
+            provisioner.await("nomic-embed-text", 0);
+            
+            assertEquals(1, stub.getRequests("pull"));
+            
+            // Deleting the model forgets it
+            instance.deleteModel("llama3.2");
+            
+            assertNull(provisioner.getState("llama3.2"));
+        }
+    }
+    
+    @Test
+    public void testServers()
+    {
+        try(var first = new OllamaStub(); var second = new OllamaStub(); var instance = new Ollama())
+        {
+            instance.setBaseUrls(List.of(first.getBaseUrl(), second.getBaseUrl()));
+            instance.getProvisioner().setLog(false);
+            
+            first.setInstalledModels("llama3.2");
+            second.setInstalledModels();
+            
+            instance.getProvisioner().await("llama3.2", 0);
+            
+            assertEquals(0, first.getRequests("pull"));
+            assertEquals(1, second.getRequests("pull"));
+            assertTrue(second.isInstalled("llama3.2"));
+        }
+    }
+    
+    @Test
+    public void testNotReady()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var provisioner = instance.getProvisioner();
+            
+            stub.setInstalledModels();
+            stub.setPullDelay(1000);
+            provisioner.setLog(false);
+            
+            var error = assertThrows(ModelNotReadyException.class, () -> provisioner.await("llama3.2", 100));
+            
+            assertEquals("llama3.2", error.getModel());
+            
+            // The deadline also bounds the wait
+            try(var scope = new Deadline(100).enter())
+            {
+                assertThrows(DeadlineExceededException.class, () -> provisioner.await("llama3.2", 0));
+            }
+            
+            provisioner.await("llama3.2", 0);
+            
+            assertEquals(1, stub.getRequests("pull"));
+        }
+    }
+    
+    @Test
+    public void testFailure()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var provisioner = instance.getProvisioner();
+            
+            stub.setInstalledModels();
+            stub.setFault("pull", 1, 500);
+            provisioner.setLog(false);
+            
+            assertThrows(ConvirganceException.class, () -> provisioner.await("llama3.2", 0));
+            assertEquals("failed", provisioner.getState("llama3.2"));
+            assertNotNull(provisioner.getStatus().getJSONObject("llama3.2:latest").getString("error"));
+            
+            // Failed pulls are attempted again
+            provisioner.await("llama3.2", 0);
+            
+            assertTrue(provisioner.isReady("llama3.2"));
+            assertEquals(2, stub.getRequests("pull"));
+        }
+    }
+}
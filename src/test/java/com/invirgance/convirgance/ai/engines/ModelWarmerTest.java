@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ModelWarmerTest
+{
+    private static void waitForWarm(ModelWarmer warmer, int count) throws InterruptedException
+    {
+        var end = System.currentTimeMillis() + 5000;
+        
+        while(warmer.getWarmModels().size() < count && System.currentTimeMillis() < end) Thread.sleep(10);
+    }
+    
+    @Test
+    public void testWarmUp() throws Exception
+    {
+        try(var first = new OllamaStub(); var second = new OllamaStub(); var instance = new Ollama())
+        {
+            var warmer = instance.getWarmer();
+            
+            instance.setBaseUrls(List.of(first.getBaseUrl(), second.getBaseUrl()));
+            
+            warmer.register("llama3.2", false);
+            warmer.register("nomic-embed-text", true);
+            
+            waitForWarm(warmer, 2);
+            
+            assertTrue(warmer.getWarmModels().contains("llama3.2"));
+            assertTrue(warmer.getWarmModels().contains("nomic-embed-text"));
+            
+            // Every server loads every model
+            for(var stub : List.of(first, second))
+            {
+                assertEquals(1, stub.getRequests("generate"));
+                assertEquals(1, stub.getRequests("embed"));
+                assertEquals("30m", stub.getLastRequest("generate").getString("keep_alive"));
+                assertEquals("30m", stub.getLastRequest("embed").getString("keep_alive"));
+                assertEquals(0, stub.getLastRequest("embed").getJSONArray("input").size());
+            }
+            
+            // Regular requests for warmed models keep them resident
+            warmer.setKeepAlive("-1");
+            
+            Ollama.await(instance.generateAsync("llama3.2", "Hello"));
+            
+            assertEquals(-1, (first.getRequests("generate") > 1 ? first : second).getLastRequest("generate").getInt("keep_alive"));
+            
+            assertFalse(warmer.isWarm("mistral"));
+            assertEquals(2, warmer.getStatus().size());
+        }
+    }
+    
+    @Test
+    public void testKeepAlive() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var warmer = instance.getWarmer();
+            var message = new JSONObject();
+            
+            warmer.register("llama3.2", false);
+            waitForWarm(warmer, 1);
+            
+            message.put("model", "llama3.2:latest");
+            message.put("prompt", "Hello");
+            message.put("stream", false);
+            
+            // The tag doesn't matter and the caller's request isn't changed
+            Ollama.await(instance.generateAsync(message));
+            
+            assertEquals("30m", stub.getLastRequest("generate").getString("keep_alive"));
+            assertFalse(message.containsKey("keep_alive"));
+            assertTrue(warmer.isRegistered("llama3.2:latest"));
+            assertEquals(1, warmer.getWarmModels().size());
+            assertTrue(warmer.getWarmModels().contains("llama3.2"));
+        }
+    }
+    
+    @Test
+    public void testRewarm() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama())
+        {
+            var warmer = instance.getWarmer();
+            
+            instance.setBaseUrl(stub.getBaseUrl());
+            warmer.setInterval(100);
+            warmer.register("llama3.2", false);
+            
+            Thread.sleep(550);
+            
+            assertTrue(stub.getRequests("generate") >= 3);
+            assertTrue(warmer.isWarm("llama3.2"));
+            
+            warmer.unregister("llama3.2");
+            
+            Thread.sleep(150);
+            
+            var requests = stub.getRequests("generate");
+            
+            Thread.sleep(300);
+            
+            assertEquals(requests, stub.getRequests("generate"));
+            assertFalse(warmer.isRegistered("llama3.2"));
+        }
+    }
+    
+    @Test
+    public void testUnreachable() throws Exception
+    {
+        var stub = new OllamaStub();
+        var url = stub.getBaseUrl();
+        
+        stub.close();
+        
+        try(var instance = new Ollama())
+        {
+            var warmer = instance.getWarmer();
+            var end = System.currentTimeMillis() + 5000;
+            
+            instance.setBaseUrl(url);
+            warmer.register("llama3.2", false);
+            
+            while(warmer.getStatus().getJSONObject("llama3.2").get("error") == null && System.currentTimeMillis() < end) Thread.sleep(10);
+            
+            assertNotNull(warmer.getStatus().getJSONObject("llama3.2").get("error"));
+            assertFalse(warmer.isWarm("llama3.2"));
+        }
+    }
+}
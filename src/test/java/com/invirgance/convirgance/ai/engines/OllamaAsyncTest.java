@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class OllamaAsyncTest
+{
+    @Test
+    public void testFanOut()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var futures = new ArrayList<CompletableFuture<?>>();
+            long start;
+            
+            Ollama.await(instance.generateAsync("llama3.2", "Warm up"));
+            stub.setDelay(500);
+            
+            start = System.currentTimeMillis();
+            
+            for(int i=0; i<4; i++)
+            {
+                futures.add(instance.generateAsync("llama3.2", "Question " + i));
+                futures.add(instance.embedAsync("nomic-embed-text", "Question " + i));
+            }
+            
+            futures.add(instance.getModelDetailsAsync("llama3.2"));
+            
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            
+            // Nine calls of 500ms each should overlap rather than run in sequence
+            assertTrue(System.currentTimeMillis() - start < 2000);
+            assertEquals("Hello", ((JSONArray<JSONObject>)futures.get(0).join()).get(0).getString("response"));
+            assertEquals(OllamaStub.embed("Question 0"), futures.get(1).join());
+        }
+    }
+    
+    @Test
+    public void testFailure()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            CompletableFuture<JSONArray<JSONObject>> future;
+            
+            stub.close();
+            
+            future = instance.generateAsync("llama3.2", "Anyone there?");
+            
+            assertThrows(ConvirganceException.class, () -> Ollama.await(future));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class OllamaEndpointTest
+{
+    @Test
+    public void testBalancing()
+    {
+        try(var first = new OllamaStub(); var second = new OllamaStub(); var instance = new Ollama())
+        {
+            var futures = new ArrayList<CompletableFuture<?>>();
+            
+            instance.setBaseUrls(List.of(first.getBaseUrl(), second.getBaseUrl()));
+            first.setDelay(100);
+            second.setDelay(100);
+            
+            for(int i=0; i<8; i++) futures.add(instance.generateAsync("llama3.2", "Question " + i));
+            
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            
+            assertEquals(8, first.getRequests("generate") + second.getRequests("generate"));
+            assertTrue(first.getRequests("generate") >= 2);
+            assertTrue(second.getRequests("generate") >= 2);
+            
+            for(var status : instance.getEndpointStatus())
+            {
+                assertEquals(0, status.getInt("outstanding"));
+                assertTrue(status.getBoolean("healthy"));
+            }
+        }
+    }
+    
+    @Test
+    public void testEjection() throws Exception
+    {
+        try(var first = new OllamaStub(); var instance = new Ollama())
+        {
+            var second = new OllamaStub();
+            var port = second.getPort();
+            
+            instance.setHealthCheckInterval(100);
+            instance.setMetadataTtl(0); // Every call goes to a server
+            instance.setBaseUrl(first.getBaseUrl() + ", " + second.getBaseUrl());
+            
+            second.close();
+            
+            // Requests fail over to the first server without the caller noticing
+            for(int i=0; i<10; i++) instance.getLoadedModels();
+            
+            assertTrue(first.getRequests() >= 10); // Includes health checks
+            assertFalse(instance.getEndpoints().get(1).isHealthy());
+            
+            second = new OllamaStub(port);
+            
+            Thread.sleep(500);
+            
+            assertTrue(instance.getEndpoints().get(1).isHealthy());
+            
+            for(int i=0; i<10; i++) instance.getLoadedModels();
+            
+            assertTrue(second.getRequests() > 0);
+            
+            second.close();
+        }
+    }
+    
+    @Test
+    public void testUnexpectedHealth() throws Exception
+    {
+        try(var first = new OllamaStub(); var second = new OllamaStub(); var instance = new Ollama())
+        {
+            var end = System.currentTimeMillis() + 5000;
+            
+            // Answers successfully, but not with a list of models
+            second.setFault("ps", 3, 200);
+            
+            instance.setHealthCheckInterval(50);
+            instance.setBaseUrls(List.of(first.getBaseUrl(), second.getBaseUrl()));
+            
+            while(instance.getEndpoints().get(1).isHealthy() && System.currentTimeMillis() < end) Thread.sleep(10);
+            
+            assertFalse(instance.getEndpoints().get(1).isHealthy());
+            assertTrue(instance.getEndpoints().get(0).isHealthy());
+            
+            // Recovers once the server answers properly again
+            end = System.currentTimeMillis() + 5000;
+            
+            while(!instance.getEndpoints().get(1).isHealthy() && System.currentTimeMillis() < end) Thread.sleep(10);
+            
+            assertTrue(instance.getEndpoints().get(1).isHealthy());
+        }
+    }
+    
+    @Test
+    public void testModelAffinity() throws Exception
+    {
+        try(var first = new OllamaStub(); var second = new OllamaStub(); var instance = new Ollama())
+        {
+            var futures = new ArrayList<CompletableFuture<?>>();
+            
+            first.setLoadedModels("llama3.2:latest");
+            second.setLoadedModels("nomic-embed-text:latest");
+            
+            instance.setHealthCheckInterval(100);
+            instance.setModelAffinity(true);
+            instance.setBaseUrls(List.of(first.getBaseUrl(), second.getBaseUrl()));
+            
+            // Wait for the health checks to report the resident models
+            for(var endpoint : instance.getEndpoints())
+            {
+                for(int i=0; i<500 && endpoint.getLoadedModels().isEmpty(); i++) Thread.sleep(10);
+            }
+            
+            for(int i=0; i<8; i++) 
+            {
+                futures.add(instance.generateAsync("llama3.2", "Question " + i));
+                futures.add(instance.embedAsync("nomic-embed-text", "Question " + i));
+            }
+            
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            
+            assertEquals(8, first.getRequests("generate"));
+            assertEquals(0, first.getRequests("embed"));
+            assertEquals(0, second.getRequests("generate"));
+            assertEquals(8, second.getRequests("embed"));
+            
+            // Neither server has the model. The first request loads it on the 
+            // least loaded server and the rest follow it there.
+            for(int i=0; i<4; i++) 
+            {
+                for(var record : instance.generate("qwen3", "Question", false)) assertTrue(record.getBoolean("done"));
+            }
+            
+            assertTrue(first.getRequests("generate") == 12 || second.getRequests("generate") == 4);
+            assertEquals(12, first.getRequests("generate") + second.getRequests("generate"));
+        }
+    }
+}
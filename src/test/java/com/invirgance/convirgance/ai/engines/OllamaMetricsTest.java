@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class OllamaMetricsTest
+{
+    @Test
+    public void testGenerate()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            stub.setTokens(10);
+            stub.setTokenDelay(5);
+            
+            for(int i=0; i<3; i++)
+            {
+                for(var record : instance.generate("llama3.2", "Why is the sky blue?", true)) assertNotNull(record);
+            }
+            
+            var metrics = instance.getMetrics().getSnapshot("generate", "llama3.2");
+            var latency = metrics.getJSONObject("latency");
+            
+            assertEquals(stub.getBaseUrl(), metrics.getString("endpoint"));
+            assertEquals("llama3.2:latest", metrics.getString("model"));
+            assertEquals(3, metrics.getInt("requests"));
+            assertEquals(0, metrics.getInt("errors"));
+            assertEquals(30, metrics.getInt("evalTokens"));
+            assertEquals(200.0, metrics.getDouble("evalTokensPerSecond"), 0.1);
+            assertTrue(metrics.getLong("bytesSent") > 0);
+            assertTrue(metrics.getLong("bytesReceived") > 0);
+            assertEquals(3, latency.getInt("count"));
+            assertTrue(latency.getDouble("p50") >= 50); // Ten tokens at 5ms each
+            assertEquals(3, metrics.getJSONObject("load").getInt("count"));
+        }
+    }
+    
+    @Test
+    public void testErrors()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            instance.setMaxRetries(0);
+            stub.setFault("embed", 2, 500);
+            
+            for(int i=0; i<2; i++)
+            {
+                assertThrows(ConvirganceException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            }
+            
+            instance.getEmbed("nomic-embed-text", "Hello");
+            
+            var metrics = instance.getMetrics().getSnapshot("embed", "nomic-embed-text");
+            
+            assertEquals(3, metrics.getInt("requests"));
+            assertEquals(2, metrics.getInt("errors"));
+            assertEquals(2, metrics.getJSONObject("failures").getInt("http 500"));
+            assertEquals(1, metrics.getInt("promptTokens"));
+            
+            // Requests that never reach a server are reported as well
+            stub.close();
+            
+            assertThrows(ConvirganceException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            assertEquals(1, instance.getMetrics().getSnapshot("embed", "nomic-embed-text").getJSONObject("failures").getInt("connect"));
+        }
+    }
+    
+    @Test
+    public void testJmx() throws Exception
+    {
+        var server = ManagementFactory.getPlatformMBeanServer();
+        
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            instance.setName("metrics-test");
+            instance.generate("llama3.2", "Hello", false).iterator().next();
+            
+            // Engines aren't published unless asked
+            Thread.sleep(100);
+            
+            assertNull(instance.getMetrics().getObjectName());
+            
+            instance.setJmx(true);
+            instance.generate("llama3.2", "Hello", false).iterator().next();
+            
+            var end = System.currentTimeMillis() + 5000;
+            
+            // Published in the background
+            while(instance.getMetrics().getObjectName() == null && System.currentTimeMillis() < end) Thread.sleep(10);
+            
+            var name = instance.getMetrics().getObjectName();
+            var attribute = "generate:llama3.2:latest@" + stub.getBaseUrl() + ".requests";
+            
+            assertEquals("metrics-test", name.getKeyProperty("name").replace("\"", ""));
+            assertTrue(server.isRegistered(name));
+            assertEquals(2L, server.getAttribute(name, attribute));
+            assertTrue(server.getAttribute(name, "Snapshot").toString().contains("llama3.2:latest"));
+            
+            server.invoke(name, "reset", null, null);
+            
+            assertTrue(instance.getMetrics().getSnapshot().isEmpty());
+            
+            instance.close();
+            
+            assertFalse(server.isRegistered(name));
+        }
+    }
+}
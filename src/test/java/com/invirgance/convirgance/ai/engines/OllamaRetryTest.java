@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class OllamaRetryTest
+{
+    private static int getActive(Ollama instance)
+    {
+        var statistics = instance.getBulkheadStatistics();
+        var active = 0;
+        
+        for(var name : statistics.keySet()) active += statistics.getJSONObject(name).getInt("active");
+        
+        return active;
+    }
+    
+    @Test
+    public void testRetry()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            instance.setRetryBackoff(10);
+            
+            stub.setFault("embed", 2, 503);
+            
+            assertEquals(OllamaStub.embed("Hello"), instance.getEmbed("nomic-embed-text", "Hello"));
+            assertEquals(3, stub.getRequests("embed"));
+            assertEquals(2L, instance.getRetryStatistics().getLong("retries"));
+            
+            // Dropped connections are retried as well
+            stub.setFault("show", 1, 0);
+            
+            assertEquals("stub", instance.getModelDetails("llama3.2").getJSONObject("details").getString("family"));
+            assertEquals(2, stub.getRequests("show"));
+        }
+    }
+    
+    @Test
+    public void testBackoffReleasesPermits() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            CompletableFuture<JSONArray<Double>> retrying;
+            long start;
+            
+            instance.setMaxConnections(1);
+            instance.setConnectTimeout(200);
+            instance.setRetryBackoff(1000);
+            instance.setMetadataTtl(0);
+            
+            stub.setFault("embed", 1, 503);
+            
+            retrying = instance.embedAsync("nomic-embed-text", "Hello");
+            
+            while(stub.getRequests("embed") < 1) Thread.sleep(10);
+            
+            Thread.sleep(50);
+            
+            // The only connection is free while the embed backs off
+            start = System.currentTimeMillis();
+            
+            assertNotNull(instance.getLoadedModels());
+            assertTrue(System.currentTimeMillis() - start < 500);
+            assertFalse(retrying.isDone());
+            
+            assertEquals(OllamaStub.embed("Hello"), Ollama.await(retrying));
+            assertEquals(2, stub.getRequests("embed"));
+            assertEquals(0, getActive(instance));
+        }
+    }
+    
+    @Test
+    public void testNoRetry()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var messages = new JSONArray<JSONObject>();
+            
+            instance.setRetryBackoff(10);
+            messages.add(new JSONObject("{\"role\": \"user\", \"content\": \"Hello\"}"));
+            
+            // Chat isn't idempotent from the caller's point of view
+            stub.setFault("chat", 1, 503);
+            
+            try
+            {
+                instance.chat("llama3.2", messages, false).iterator().next();
+                fail("Expected the chat to fail");
+            }
+            catch(OllamaResponseException e)
+            {
+                assertEquals(503, e.getStatusCode());
+            }
+            
+            assertEquals(1, stub.getRequests("chat"));
+            
+            // Client errors won't succeed by trying again
+            stub.setFault("embed", 1, 400);
+            
+            assertThrows(OllamaResponseException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            assertEquals(1, stub.getRequests("embed"));
+            
+            // Retries give up eventually
+            stub.setFault("embed", 10, 500);
+            
+            assertThrows(ConvirganceException.class, () -> instance.getEmbed("nomic-embed-text", "Hello"));
+            assertEquals(4, stub.getRequests("embed"));
+            
+            // Nothing leaks when requests fail
+            stub.setFault("embed", 0, 0);
+            instance.setMaxConnections(1);
+            
+            for(int i=0; i<3; i++) instance.getEmbed("nomic-embed-text", "Hello");
+        }
+    }
+    
+    @Test
+    public void testRetryOtherServer()
+    {
+        try(var first = new OllamaStub(); var second = new OllamaStub(); var instance = new Ollama())
+        {
+            instance.setRetryBackoff(10);
+            instance.setBaseUrls(List.of(first.getBaseUrl(), second.getBaseUrl()));
+            
+            first.setFault("embed", 10, 500);
+            second.setFault("embed", 10, 500);
+            
+            // Whichever server fails, the retry goes to the other one
+            second.setFault("embed", 0, 0);
+            
+            for(int i=0; i<4; i++) instance.getEmbed("nomic-embed-text", "Hello " + i);
+            
+            assertEquals(4, second.getRequests("embed"));
+            assertTrue(first.getRequests("embed") <= 4);
+        }
+    }
+    
+    @Test
+    public void testHedging()
+    {
+        try(var fast = new OllamaStub(); var slow = new OllamaStub(); var instance = new Ollama())
+        {
+            long start;
+            long elapsed;
+            
+            instance.setHedgePercentile(90);
+            instance.setBaseUrls(List.of(fast.getBaseUrl(), slow.getBaseUrl()));
+            
+            // Learn what normal latency looks like
+            for(int i=0; i<40; i++) instance.getEmbed("nomic-embed-text", "Hello " + i);
+            
+            assertEquals(0L, instance.getRetryStatistics().getLong("hedges"));
+            
+            slow.setDelay(2000);
+            start = System.currentTimeMillis();
+            
+            for(int i=0; i<10; i++) instance.getEmbed("nomic-embed-text", "Hello " + i);
+            
+            elapsed = System.currentTimeMillis() - start;
+            
+            System.out.println("10 requests against a slow server took " + elapsed + "ms with hedging. Stats: " + instance.getRetryStatistics());
+            
+            assertTrue(elapsed < 2000);
+            assertTrue(instance.getRetryStatistics().getLong("hedges") > 0);
+            assertTrue(instance.getRetryStatistics().getLong("hedgeWins") > 0);
+            
+            // Cancelled requests give back their connections
+            for(var status : instance.getEndpointStatus()) assertEquals(0, status.getInt("outstanding"));
+        }
+    }
+    
+    @Test
+    public void testHedgeNotStarted() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama())
+        {
+            var end = System.currentTimeMillis() + 5000;
+            int permits;
+            
+            instance.setHedgePercentile(90);
+            instance.setHealthCheckInterval(50);
+            
+            // Requests to the second server fail before they are sent
+            instance.setBaseUrls(List.of(stub.getBaseUrl(), "http://127.0.0.1:1/not a url"));
+            
+            while(instance.getEndpointStatus().getJSONObject(1).getBoolean("healthy") && System.currentTimeMillis() < end) Thread.sleep(10);
+            
+            permits = instance.getConnections().availablePermits();
+            
+            for(int i=0; i<40; i++) instance.getEmbed("nomic-embed-text", "Hello " + i);
+            
+            stub.setDelay(100);
+            
+            // Each request tries to hedge and falls back to the first server
+            for(int i=0; i<5; i++) assertEquals(OllamaStub.embed("Slow " + i), instance.getEmbed("nomic-embed-text", "Slow " + i));
+            
+            assertEquals(0L, instance.getRetryStatistics().getLong("hedges"));
+            assertEquals(permits, instance.getConnections().availablePermits());
+        }
+    }
+}
@@ -0,0 +1,862 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for the Ollama API used to exercise and benchmark the
+ * engine without a live server or any model inference. Supports generate,
+ * chat (including tool calls), embed, show, ps, tags, pull, and delete. 
+ * Responses are deterministic: the same request always gets the same answer,
+ * and embeddings depend only on the text. Latency, generation speed, 
+ * streaming, and failures are all configurable.
+ * <br><br>
+ * The stub can also be run on its own for load testing:
+ * <pre>
+ * java ... OllamaStub [port] [tokens per second]
+ * </pre>
+ *
+ * @author jbanes
+ */
+public class OllamaStub implements AutoCloseable
+{
+    private HttpServer server;
+    private ExecutorService executor = Executors.newCachedThreadPool();
+    
+    private int delay;
+    private int loadDelay;
+    private int tokens = 1;
+    private int tokenDelay;
+    private int chunkSize = 1;
+    private int dimensions = 8;
+    private int pullDelay;
+    private int dropAfter = -1;
+    private String response;
+    private JSONArray<JSONObject> toolCalls;
+    
+    private AtomicInteger requests = new AtomicInteger();
+    private AtomicInteger streamed = new AtomicInteger();
+    private AtomicInteger aborted = new AtomicInteger();
+    private AtomicInteger active = new AtomicInteger();
+    private AtomicInteger maxConcurrent = new AtomicInteger();
+    private Map<String,AtomicInteger> calls = new ConcurrentHashMap<>();
+    private Map<String,JSONObject> last = new ConcurrentHashMap<>();
+    private Map<String,Fault> faults = new ConcurrentHashMap<>();
+    private volatile String[] loaded = new String[0];
+    private Set<String> served = ConcurrentHashMap.newKeySet();
+    private volatile Set<String> installed;
+    
+    static
+    {
+        // Ollama disables Nagle's algorithm. Without this, small responses are 
+        // held back by delayed ACKs and the stub looks 40ms slower than it is.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    
+    public OllamaStub()
+    {
+        this(0);
+    }
+    
+    public OllamaStub(int port)
+    {
+        try
+        {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        }
+        catch(IOException e) { throw new RuntimeException(e); }
+        
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+    
+    public static void main(String[] args) throws Exception
+    {
+        var stub = new OllamaStub(args.length > 0 ? Integer.parseInt(args[0]) : 11434);
+        
+        if(args.length > 1) stub.setTokensPerSecond(Double.parseDouble(args[1]));
+        
+        stub.setTokens(64);
+        stub.setDimensions(768);
+        
+        System.out.println("Ollama stub listening at " + stub.getBaseUrl());
+        
+        Thread.currentThread().join();
+    }
+    
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+    
+    public String getBaseUrl()
+    {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    public int getDelay()
+    {
+        return delay;
+    }
+
+    /**
+     * Milliseconds to wait before answering each request
+     * 
+     * @param delay 
+     */
+    public void setDelay(int delay)
+    {
+        this.delay = delay;
+    }
+
+    public int getLoadDelay()
+    {
+        return loadDelay;
+    }
+
+    /**
+     * Additional milliseconds the first generate, chat, or embed request for
+     * a model waits while the model "loads". Models listed by 
+     * {@link #setLoadedModels(String...)} are already loaded.
+     * 
+     * @param loadDelay 
+     */
+    public void setLoadDelay(int loadDelay)
+    {
+        this.loadDelay = loadDelay;
+    }
+    
+    public int getTokens()
+    {
+        return tokens;
+    }
+
+    /**
+     * The number of tokens generated for each chat and generate request when
+     * no response text is set. The first is "Hello" and the rest are " 1", 
+     * " 2", and so on.
+     * 
+     * @param tokens 
+     */
+    public void setTokens(int tokens)
+    {
+        this.tokens = tokens;
+    }
+
+    public int getTokenDelay()
+    {
+        return tokenDelay;
+    }
+
+    /**
+     * Milliseconds spent generating each token. Streamed responses send each
+     * chunk as soon as its tokens are generated. Other responses are sent 
+     * once every token is generated.
+     * 
+     * @param tokenDelay 
+     */
+    public void setTokenDelay(int tokenDelay)
+    {
+        this.tokenDelay = tokenDelay;
+    }
+    
+    /**
+     * Sets the generation speed. A shortcut for {@link #setTokenDelay(int)}.
+     * 
+     * @param tokensPerSecond the number of tokens generated per second
+     */
+    public void setTokensPerSecond(double tokensPerSecond)
+    {
+        this.tokenDelay = (tokensPerSecond <= 0) ? 0 : (int)Math.round(1000 / tokensPerSecond);
+    }
+
+    public int getDropAfter()
+    {
+        return dropAfter;
+    }
+
+    /**
+     * Drops the connection of streamed responses after sending the given 
+     * number of chunks, without sending the final chunk. Set to -1 to send
+     * complete responses.
+     * 
+     * @param dropAfter the number of chunks to send before dropping
+     */
+    public void setDropAfter(int dropAfter)
+    {
+        this.dropAfter = dropAfter;
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * The number of tokens sent in each streamed chunk. Defaults to 1.
+     * 
+     * @param chunkSize 
+     */
+    public void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public String getResponse()
+    {
+        return response;
+    }
+
+    /**
+     * Fixed text to answer chat and generate requests with. The text is split
+     * into tokens at each space. When not set, the answer is built from the 
+     * configured number of tokens.
+     * 
+     * @param response the answer text
+     */
+    public void setResponse(String response)
+    {
+        this.response = response;
+    }
+
+    public int getDimensions()
+    {
+        return dimensions;
+    }
+
+    /**
+     * The size of the embeddings returned. Defaults to 8.
+     * 
+     * @param dimensions 
+     */
+    public void setDimensions(int dimensions)
+    {
+        this.dimensions = dimensions;
+    }
+
+    public int getPullDelay()
+    {
+        return pullDelay;
+    }
+
+    /**
+     * Milliseconds a pull takes to download the model
+     * 
+     * @param pullDelay 
+     */
+    public void setPullDelay(int pullDelay)
+    {
+        this.pullDelay = pullDelay;
+    }
+
+    public JSONArray<JSONObject> getToolCalls()
+    {
+        return toolCalls;
+    }
+
+    /**
+     * Tool calls to make in answer to chat requests that offer tools. Once the
+     * request includes the tool results, the answer repeats the result of the
+     * last tool back to the caller.
+     * 
+     * @param toolCalls calls in the form <code>{"function": {"name": ..., "arguments": {...}}}</code>
+     */
+    public void setToolCalls(JSONArray<JSONObject> toolCalls)
+    {
+        this.toolCalls = toolCalls;
+    }
+    
+    /**
+     * Restricts the server to the given models. Requests for other models 
+     * fail with a 404 until they are pulled. By default every model is 
+     * treated as installed.
+     * 
+     * @param models full model names including tags
+     */
+    public void setInstalledModels(String... models)
+    {
+        var installed = ConcurrentHashMap.<String>newKeySet();
+        
+        for(var model : models) installed.add(OllamaEndpoint.normalize(model));
+        
+        this.installed = installed;
+    }
+    
+    public boolean isInstalled(String model)
+    {
+        return (installed == null || installed.contains(OllamaEndpoint.normalize(model)));
+    }
+    
+    public int getRequests()
+    {
+        return requests.get();
+    }
+    
+    public int getRequests(String api)
+    {
+        var count = calls.get(api);
+        
+        return (count == null) ? 0 : count.get();
+    }
+    
+    /**
+     * The number of streamed tokens written across all requests
+     * 
+     * @return the number of tokens sent
+     */
+    public int getStreamed()
+    {
+        return streamed.get();
+    }
+    
+    /**
+     * The number of streamed responses cut short because the client went away
+     * 
+     * @return the number of abandoned streams
+     */
+    public int getAborted()
+    {
+        return aborted.get();
+    }
+
+    /**
+     * The largest number of requests the stub was answering at the same time.
+     * Use with {@link #setDelay(int)} so that requests have time to overlap.
+     * 
+     * @return the peak number of concurrent requests
+     */
+    public int getMaxConcurrent()
+    {
+        return maxConcurrent.get();
+    }
+
+    /**
+     * The body of the most recent request to an API
+     * 
+     * @param api the API name such as <code>chat</code>
+     * @return the request or null if the API hasn't been called
+     */
+    public JSONObject getLastRequest(String api)
+    {
+        return last.get(api);
+    }
+
+    /**
+     * Fails the next requests to an API
+     * 
+     * @param api the API name such as <code>embed</code>
+     * @param count the number of requests to fail
+     * @param status the HTTP status to answer with, or 0 to drop the 
+     * connection without answering
+     */
+    public void setFault(String api, int count, int status)
+    {
+        faults.put(api, new Fault(count, status));
+    }
+    
+    private int getFault(String api)
+    {
+        var fault = faults.get(api);
+        
+        if(fault == null || fault.remaining.getAndDecrement() < 1) return -1;
+        
+        return fault.status;
+    }
+
+    /**
+     * Sets the models reported as resident by <code>/api/ps</code>. Models are
+     * also reported once a request has used them, just as Ollama loads a model
+     * on demand.
+     * 
+     * @param models full model names including tags
+     */
+    public void setLoadedModels(String... models)
+    {
+        this.loaded = models;
+        this.served.clear();
+    }
+    
+    private Set<String> getLoadedModels()
+    {
+        var models = new LinkedHashSet<String>(List.of(loaded));
+        
+        models.addAll(served);
+        
+        return models;
+    }
+    
+    /**
+     * Produces the same unit vector for the same text every time
+     * 
+     * @param text the text to embed
+     * @return an eight dimension embedding
+     */
+    public static JSONArray<Double> embed(String text)
+    {
+        return embed(text, 8);
+    }
+    
+    /**
+     * Produces the same unit vector for the same text every time
+     * 
+     * @param text the text to embed
+     * @param dimensions the size of the embedding
+     * @return the embedding
+     */
+    public static JSONArray<Double> embed(String text, int dimensions)
+    {
+        var random = new Random(text.hashCode());
+        var embed = new JSONArray<Double>();
+        var values = new double[dimensions];
+        var sum = 0.0;
+        
+        for(int i=0; i<values.length; i++)
+        {
+            values[i] = random.nextGaussian();
+            sum += values[i] * values[i];
+        }
+        
+        for(var value : values) embed.add(value / Math.sqrt(sum));
+        
+        return embed;
+    }
+    
+    private List<String> getTokens(JSONObject request)
+    {
+        var list = new ArrayList<String>();
+        var text = response;
+        
+        if(text == null)
+        {
+            for(int i=0; i<tokens; i++) list.add((i == 0) ? "Hello" : " " + i);
+            
+            return list;
+        }
+        
+        for(int start=0, end; start < text.length(); start = end)
+        {
+            end = text.indexOf(' ', start + 1);
+            
+            if(end < 0) end = text.length();
+            
+            list.add(text.substring(start, end));
+        }
+        
+        return list;
+    }
+    
+    private boolean isCallingTools(JSONObject request)
+    {
+        var messages = request.getJSONArray("messages");
+        
+        if(toolCalls == null || !request.containsKey("tools")) return false;
+        if(messages == null || messages.isEmpty()) return true;
+        
+        return !"tool".equals(messages.getJSONObject(messages.size() - 1).getString("role"));
+    }
+    
+    private String getToolResult(JSONObject request)
+    {
+        var messages = request.getJSONArray("messages");
+        
+        if(toolCalls == null || messages == null || messages.isEmpty()) return null;
+        
+        var message = messages.getJSONObject(messages.size() - 1);
+        
+        return "tool".equals(message.getString("role")) ? message.getString("content") : null;
+    }
+    
+    /**
+     * Roughly four characters per token, as with most tokenizers
+     */
+    private int getPromptTokens(JSONObject request)
+    {
+        var prompt = request.containsKey("messages") ? request.get("messages").toString() : request.getString("prompt");
+        
+        return (prompt == null) ? 0 : Math.max(1, prompt.length() / 4);
+    }
+    
+    private JSONObject createChunk(String api, JSONObject request, String content, boolean done, int count)
+    {
+        var chunk = new JSONObject();
+        var message = new JSONObject();
+        var context = new JSONArray<Integer>();
+        
+        chunk.put("model", request.getString("model"));
+        chunk.put("created_at", "2025-01-01T00:00:00Z");
+        
+        if(api.equals("chat"))
+        {
+            message.put("role", "assistant");
+            message.put("content", content);
+            
+            chunk.put("message", message);
+        }
+        else
+        {
+            chunk.put("response", content);
+        }
+        
+        chunk.put("done", done);
+        
+        if(!done) return chunk;
+        
+        chunk.put("done_reason", "stop");
+        chunk.put("total_duration", (long)(delay + count * tokenDelay) * 1000000);
+        chunk.put("load_duration", 1000000L);
+        chunk.put("prompt_eval_count", getPromptTokens(request));
+        chunk.put("prompt_eval_duration", getPromptTokens(request) * 100000L);
+        chunk.put("eval_count", count);
+        chunk.put("eval_duration", (long)count * tokenDelay * 1000000);
+        
+        if(api.equals("generate"))
+        {
+            for(int i=0; i<count; i++) context.add(i + 1);
+            
+            chunk.put("context", context);
+        }
+        
+        return chunk;
+    }
+    
+    private JSONObject respond(String api, JSONObject request)
+    {
+        var response = new JSONObject();
+        var embeddings = new JSONArray<JSONArray<Double>>();
+        var models = new JSONArray<JSONObject>();
+        var model = request.getString("model");
+        var result = (model == null) ? null : getToolResult(request);
+        var tokens = (model == null) ? null : getTokens(request);
+        
+        if(model != null && !isInstalled(model) && !List.of("pull", "ps", "tags").contains(api))
+        {
+            response.put("error", "model '" + model + "' not found");
+            
+            return response;
+        }
+        
+        switch(api)
+        {
+            case "ps":
+                for(var name : getLoadedModels()) models.add(describe(name));
+                
+                response.put("models", models);
+                break;
+                
+            case "tags":
+                if(installed != null) for(var name : installed) models.add(describe(name));
+                
+                response.put("models", models);
+                break;
+                
+            case "generate":
+                return createChunk(api, request, String.join("", tokens), true, tokens.size());
+                
+            case "chat":
+                if(isCallingTools(request))
+                {
+                    response = createChunk(api, request, "", true, 0);
+                    
+                    response.getJSONObject("message").put("tool_calls", toolCalls);
+                    return response;
+                }
+                
+                if(result != null) return createChunk(api, request, "The answer is " + result, true, 1);
+                
+                return createChunk(api, request, String.join("", tokens), true, tokens.size());
+                
+            case "embed":
+                for(var input : (JSONArray<String>)request.getJSONArray("input")) embeddings.add(embed(input, dimensions));
+                
+                response.put("model", model);
+                response.put("embeddings", embeddings);
+                response.put("total_duration", 1000000);
+                response.put("prompt_eval_count", embeddings.size());
+                break;
+                
+            case "show":
+                response.put("details", new JSONObject("{\"family\": \"stub\", \"format\": \"gguf\", \"parameter_size\": \"1B\"}"));
+                response.put("model_info", new JSONObject("{\"general.architecture\": \"stub\", \"stub.context_length\": 8192, \"stub.embedding_length\": " + dimensions + "}"));
+                response.put("capabilities", new JSONArray(List.of("completion", "tools", "embedding")));
+                break;
+                
+            case "pull":
+                response.put("status", "success");
+                break;
+                
+            case "delete":
+                return null; // Answered with an empty body
+                
+            default:
+                return null;
+        }
+        
+        return response;
+    }
+    
+    private JSONObject describe(String name)
+    {
+        var model = new JSONObject();
+        
+        model.put("name", name);
+        model.put("model", name);
+        model.put("size", 1000000000L);
+        model.put("digest", Integer.toHexString(name.hashCode()));
+        
+        return model;
+    }
+    
+    private void sleep(long millis)
+    {
+        try
+        {
+            if(millis > 0) Thread.sleep(millis);
+        }
+        catch(InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+    
+    private void write(OutputStream out, JSONObject record) throws IOException
+    {
+        out.write((record.toString() + "\n").getBytes("UTF-8"));
+        out.flush();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        var api = exchange.getRequestURI().getPath().substring("/api/".length());
+        var body = new String(exchange.getRequestBody().readAllBytes(), "UTF-8");
+        var request = body.isBlank() ? new JSONObject() : new JSONObject(body);
+        var response = respond(api, request);
+        var fault = getFault(api);
+        var model = request.getString("model");
+        var inference = (model != null && List.of("generate", "chat", "embed").contains(api));
+        
+        byte[] data;
+        
+        requests.incrementAndGet();
+        calls.computeIfAbsent(api, key -> new AtomicInteger()).incrementAndGet();
+        last.put(api, request);
+        
+        // Only the time spent answering is counted. The client can see the
+        // whole response and send its next request before this thread is done.
+        maxConcurrent.accumulateAndGet(active.incrementAndGet(), Math::max);
+        sleep(delay);
+        active.decrementAndGet();
+        
+        if(fault == 0)
+        {
+            // Closing without a response drops the connection
+            exchange.getRequestBody().close();
+            exchange.getResponseBody().close();
+            return;
+        }
+        
+        if(fault < 0 && inference && response != null && !response.containsKey("error"))
+        {
+            if(!getLoadedModels().contains(OllamaEndpoint.normalize(model))) sleep(loadDelay);
+            
+            served.add(OllamaEndpoint.normalize(model));
+        }
+        
+        try(exchange)
+        {
+            if(fault > 0)
+            {
+                data = "{\"error\": \"injected fault\"}".getBytes("UTF-8");
+                
+                exchange.sendResponseHeaders(fault, data.length);
+                exchange.getResponseBody().write(data);
+                return;
+            }
+            
+            if(api.equals("delete"))
+            {
+                var removed = (installed == null || installed.remove(OllamaEndpoint.normalize(model)));
+                
+                served.remove(OllamaEndpoint.normalize(model));
+                exchange.sendResponseHeaders(removed ? 200 : 404, -1);
+                return;
+            }
+            
+            if(response == null)
+            {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            
+            if(response.containsKey("error"))
+            {
+                data = response.toString().getBytes("UTF-8");
+                
+                exchange.sendResponseHeaders(404, data.length);
+                exchange.getResponseBody().write(data);
+                return;
+            }
+            
+            if(api.equals("pull"))
+            {
+                pull(exchange, request);
+                return;
+            }
+            
+            if(request.getBoolean("stream", false) && List.of("generate", "chat").contains(api) && !isCallingTools(request))
+            {
+                stream(exchange, api, request);
+                return;
+            }
+            
+            // Unstreamed answers arrive once the whole response is generated
+            if(response.containsKey("eval_count")) sleep((long)response.getInt("eval_count") * tokenDelay);
+            
+            data = response.toString().getBytes("UTF-8");
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, data.length);
+            exchange.getResponseBody().write(data);
+        }
+    }
+    
+    private void pull(HttpExchange exchange, JSONObject request) throws IOException
+    {
+        var out = exchange.getResponseBody();
+        var model = request.getString("model");
+        var total = 1000000000L;
+        var steps = 4;
+        JSONObject status;
+        
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        
+        if(request.getBoolean("stream", true))
+        {
+            write(out, new JSONObject("{\"status\": \"pulling manifest\"}"));
+            
+            for(int i=0; i<=steps; i++)
+            {
+                status = new JSONObject();
+                
+                status.put("status", "pulling " + Integer.toHexString(model.hashCode()));
+                status.put("digest", "sha256:" + Integer.toHexString(model.hashCode()));
+                status.put("total", total);
+                status.put("completed", total * i / steps);
+                
+                write(out, status);
+                
+                if(i < steps) sleep(pullDelay / steps);
+            }
+            
+            write(out, new JSONObject("{\"status\": \"verifying sha256 digest\"}"));
+            write(out, new JSONObject("{\"status\": \"writing manifest\"}"));
+        }
+        else
+        {
+            sleep(pullDelay);
+        }
+        
+        if(installed != null) installed.add(OllamaEndpoint.normalize(model));
+        
+        write(out, new JSONObject("{\"status\": \"success\"}"));
+    }
+    
+    private void stream(HttpExchange exchange, String api, JSONObject request) throws IOException
+    {
+        var out = exchange.getResponseBody();
+        var result = getToolResult(request);
+        var tokens = (result != null) ? List.of("The answer is " + result) : getTokens(request);
+        var chunk = new StringBuilder();
+        var drop = dropAfter;
+        var sent = 0;
+        
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        
+        // Promising more bytes than are sent makes the server close the 
+        // connection instead of ending the response cleanly
+        exchange.sendResponseHeaders(200, (drop < 0) ? 0 : Integer.MAX_VALUE);
+        
+        try
+        {
+            for(int i=0; i<tokens.size(); i++)
+            {
+                if(sent == drop) return;
+                
+                sleep(tokenDelay);
+                
+                chunk.append(tokens.get(i));
+                
+                if((i + 1) % chunkSize != 0 && i < tokens.size() - 1) continue;
+                
+                write(out, createChunk(api, request, chunk.toString(), false, 0));
+                
+                sent++;
+                streamed.addAndGet(Math.min(chunkSize, i % chunkSize + 1));
+                chunk.setLength(0);
+            }
+            
+            if(sent == drop) return;
+            
+            write(out, createChunk(api, request, "", true, tokens.size()));
+        }
+        catch(IOException e)
+        {
+            aborted.incrementAndGet();
+        }
+    }
+
+    private static class Fault
+    {
+        AtomicInteger remaining;
+        int status;
+
+        public Fault(int count, int status)
+        {
+            this.remaining = new AtomicInteger(count);
+            this.status = status;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class OllamaStubTest
+{
+    @Test
+    public void testModels()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            instance.setMaxRetries(0);
+            stub.setInstalledModels("llama3.2");
+            
+            assertNotNull(instance.getModelDetails("llama3.2"));
+            assertNull(instance.getModelDetails("mistral"));
+            assertEquals(1, instance.getInstalledModels().size());
+            
+            var statuses = new ArrayList<JSONObject>();
+            
+            for(var status : instance.pullModel("mistral", true, false)) statuses.add(status);
+            
+            assertEquals("pulling manifest", statuses.get(0).getString("status"));
+            assertEquals("success", statuses.get(statuses.size() - 1).getString("status"));
+            assertNotNull(instance.getModelDetails("mistral:latest"));
+            assertEquals(2, instance.getInstalledModels().size());
+            
+            assertTrue(instance.deleteModel("mistral"));
+            assertFalse(instance.deleteModel("mistral"));
+            assertEquals(1, instance.getInstalledModels().size());
+        }
+    }
+    
+    @Test
+    public void testStreaming()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var chunks = new ArrayList<JSONObject>();
+            var start = System.currentTimeMillis();
+            
+            stub.setResponse("The quick brown fox jumps over the lazy dog");
+            stub.setTokensPerSecond(50);
+            stub.setChunkSize(4);
+            
+            for(var chunk : instance.generate("llama3.2", "Hello", true)) chunks.add(chunk);
+            
+            // Nine tokens in chunks of four plus the final record
+            assertEquals(4, chunks.size());
+            assertEquals("The quick brown fox", chunks.get(0).getString("response"));
+            assertEquals(" dog", chunks.get(2).getString("response"));
+            assertEquals(9, chunks.get(3).getInt("eval_count"));
+            assertTrue(chunks.get(3).getBoolean("done"));
+            assertTrue(System.currentTimeMillis() - start >= 9 * 20);
+            assertEquals(9, stub.getStreamed());
+            
+            // Unstreamed responses are the same text delivered at once
+            chunks.clear();
+            
+            for(var chunk : instance.generate("llama3.2", "Hello", false)) chunks.add(chunk);
+            
+            assertEquals(1, chunks.size());
+            assertEquals("The quick brown fox jumps over the lazy dog", chunks.get(0).getString("response"));
+            assertEquals(9, chunks.get(0).getJSONArray("context").size());
+        }
+    }
+    
+    @Test
+    public void testEmbeddings()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            stub.setDimensions(768);
+            
+            var vectors = instance.getEmbedVectors("nomic-embed-text", "one", "two", "one");
+            
+            assertEquals(768, vectors[0].length);
+            assertArrayEquals(vectors[0], vectors[2]);
+            assertNotEquals(vectors[0][0], vectors[1][0]);
+            assertEquals(OllamaStub.embed("two", 768).get(5), vectors[1][5], 0.000001);
+        }
+    }
+    
+    @Test
+    public void testLoadDelay()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var start = System.currentTimeMillis();
+            
+            stub.setLoadDelay(300);
+            
+            Ollama.await(instance.generateAsync("llama3.2", "Hello"));
+            
+            assertTrue(System.currentTimeMillis() - start >= 300);
+            
+            start = System.currentTimeMillis();
+            
+            // The model is resident now
+            Ollama.await(instance.generateAsync("llama3.2", "Hello"));
+            
+            assertTrue(System.currentTimeMillis() - start < 300);
+            assertEquals(1, instance.getLoadedModels().size());
+        }
+    }
+}
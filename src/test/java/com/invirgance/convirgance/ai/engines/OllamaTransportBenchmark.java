@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares opening a new connection for every request against the pooled
+ * keep-alive client used by {@link Ollama}. The metadata cache is disabled so
+ * every call reaches the stub server. Launch it through <code>main()</code> 
+ * from the test classpath.
+ *
+ * @author jbanes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OllamaTransportBenchmark
+{
+    private OllamaStub stub;
+    private Ollama engine;
+    
+    @Setup
+    public void setup()
+    {
+        stub = new OllamaStub();
+        engine = new Ollama(stub.getBaseUrl());
+        
+        engine.setMetadataTtl(0);
+    }
+    
+    @TearDown
+    public void teardown()
+    {
+        engine.close();
+        stub.close();
+    }
+    
+    // The way requests were made before the pooled client: a new connection per call
+    @Benchmark
+    public JSONObject legacy() throws Exception
+    {
+        var connection = (HttpURLConnection)new URI(stub.getBaseUrl() + "/ps").toURL().openConnection();
+        
+        connection.setRequestProperty("Connection", "close");
+        
+        try(var in = connection.getInputStream())
+        {
+            return new JSONObject(new String(in.readAllBytes(), "UTF-8"));
+        }
+    }
+    
+    @Benchmark
+    public Object pooled()
+    {
+        return engine.getLoadedModels();
+    }
+    
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(OllamaTransportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
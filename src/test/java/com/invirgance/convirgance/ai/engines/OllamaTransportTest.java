@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class OllamaTransportTest
+{
+    @Test
+    public void testReadTimeout()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var start = System.currentTimeMillis();
+            
+            stub.setDelay(2000);
+            instance.setReadTimeout(200);
+            
+            assertThrows(ConvirganceException.class, () -> instance.getLoadedModels());
+            assertTrue(System.currentTimeMillis() - start < 1500);
+        }
+    }
+    
+    @Test
+    public void testConnectionPool() throws Exception
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var executor = Executors.newFixedThreadPool(8);
+            var futures = new ArrayList<java.util.concurrent.Future<?>>();
+            
+            stub.setDelay(20);
+            instance.setMaxConnections(2);
+            
+            for(int i=0; i<32; i++)
+            {
+                var prompt = "Hi " + i;
+                
+                futures.add(executor.submit(() -> {
+                    for(var record : instance.generate("llama3.2", prompt, false)) assertTrue(record.getBoolean("done"));
+                }));
+            }
+            
+            for(var future : futures) future.get();
+            
+            executor.shutdown();
+            
+            assertEquals(32, stub.getRequests());
+            assertTrue(stub.getMaxConcurrent() <= 2, "Peak of " + stub.getMaxConcurrent() + " concurrent requests");
+        }
+    }
+    
+    @Test
+    public void testClose()
+    {
+        try(var stub = new OllamaStub())
+        {
+            var instance = new Ollama(stub.getBaseUrl());
+            
+            instance.getLoadedModels();
+            instance.close();
+            
+            // A closed engine transparently creates a new client
+            assertNotNull(instance.getLoadedModels());
+            
+            instance.close();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.engines;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class SingleFlightTest
+{
+    private static String read(InputStream in) throws IOException
+    {
+        var out = new ByteArrayOutputStream();
+        
+        try(in)
+        {
+            in.transferTo(out);
+        }
+        
+        return out.toString("UTF-8");
+    }
+    
+    private static JSONObject generate(String prompt, String options)
+    {
+        var message = new JSONObject();
+        
+        message.put("model", "llama3.2");
+        message.put("prompt", prompt);
+        message.put("stream", false);
+        message.put("options", new JSONObject(options));
+        
+        return message;
+    }
+    
+    @Test
+    public void testCoalescing()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var futures = new ArrayList<CompletableFuture<?>>();
+            
+            stub.setDelay(200);
+            
+            for(int i=0; i<10; i++) futures.add(instance.generateAsync(generate("Why is the sky blue?", "{\"seed\": 42}")));
+            for(int i=0; i<10; i++) futures.add(instance.embedAsync("nomic-embed-text", "Why is the sky blue?"));
+            
+            futures.add(instance.generateAsync(generate("Why is the grass green?", "{\"seed\": 42}")));
+            
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            
+            for(int i=1; i<10; i++) assertEquals(futures.get(0).join(), futures.get(i).join());
+            for(int i=11; i<20; i++) assertEquals(futures.get(10).join(), futures.get(i).join());
+            
+            assertEquals(2, stub.getRequests("generate"));
+            assertEquals(1, stub.getRequests("embed"));
+            assertEquals(21L, instance.getCoalescingStatistics().getLong("requests"));
+            assertEquals(18L, instance.getCoalescingStatistics().getLong("coalesced"));
+            assertEquals(0, instance.getCoalescingStatistics().getInt("inFlight"));
+            
+            // Requests made after the first completes go to the server again
+            instance.getEmbed("nomic-embed-text", "Why is the sky blue?");
+            
+            assertEquals(2, stub.getRequests("embed"));
+            
+            instance.setCoalesce(false);
+            futures.clear();
+            
+            for(int i=0; i<4; i++) futures.add(instance.generateAsync(generate("Why is the sky blue?", "{\"seed\": 42}")));
+            
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            
+            assertEquals(6, stub.getRequests("generate"));
+        }
+    }
+    
+    @Test
+    public void testSampled()
+    {
+        try(var stub = new OllamaStub(); var instance = new Ollama(stub.getBaseUrl()))
+        {
+            var futures = new ArrayList<CompletableFuture<?>>();
+            
+            stub.setDelay(200);
+            
+            // Each caller gets its own sample
+            for(int i=0; i<4; i++) futures.add(instance.generateAsync("llama3.2", "Why is the sky blue?"));
+            for(int i=0; i<4; i++) futures.add(instance.generateAsync(generate("Why is the sky blue?", "{\"temperature\": 0.8}")));
+            
+            // A temperature of 0 always picks the same tokens
+            for(int i=0; i<4; i++) futures.add(instance.generateAsync(generate("Why is the sky blue?", "{\"temperature\": 0}")));
+            
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            
+            assertEquals(9, stub.getRequests("generate"));
+            assertEquals(4L, instance.getCoalescingStatistics().getLong("requests"));
+            assertEquals(3L, instance.getCoalescingStatistics().getLong("coalesced"));
+        }
+    }
+    
+    @Test
+    public void testReplay() throws Exception
+    {
+        var flights = new SingleFlight();
+        var upstream = new ChunkStream();
+        var first = flights.open("key", () -> upstream);
+        
+        upstream.send("{\"token\": 1}\n");
+        
+        assertEquals('{', first.read());
+        
+        // Joins part way through and still sees the whole stream
+        var follower = flights.open("key", () -> { throw new IllegalStateException("Not coalesced"); });
+        var second = CompletableFuture.supplyAsync(() -> {
+            try { return read(follower); }
+            catch(IOException e) { throw new RuntimeException(e); }
+        });
+        
+        upstream.send("{\"token\": 2}\n");
+        upstream.end();
+        
+        assertEquals("\"token\": 1}\n{\"token\": 2}\n", read(first));
+        assertEquals("{\"token\": 1}\n{\"token\": 2}\n", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, flights.getStatistics().getLong("coalesced"));
+        assertEquals(0, flights.getInFlight());
+        assertTrue(upstream.closed);
+    }
+    
+    @Test
+    public void testCancel() throws Exception
+    {
+        var flights = new SingleFlight();
+        var upstream = new ChunkStream();
+        var first = flights.open("key", () -> upstream);
+        var second = flights.open("key", () -> null);
+        
+        upstream.send("partial");
+        
+        assertEquals('p', second.read());
+        
+        first.close();
+        
+        assertFalse(upstream.closed);
+        assertEquals('a', second.read());
+        
+        // The last reader leaving stops the request
+        second.close();
+        
+        assertTrue(upstream.closed);
+        assertEquals(0, flights.getInFlight());
+        
+        var replacement = new ChunkStream();
+        
+        try(var third = flights.open("key", () -> replacement))
+        {
+            replacement.send("new");
+            replacement.end();
+            
+            assertEquals("new", read(third));
+        }
+        
+        assertEquals(2L, flights.getStatistics().getLong("upstream"));
+    }
+    
+    @Test
+    public void testReplayLimit() throws Exception
+    {
+        var flights = new SingleFlight();
+        var upstream = new ChunkStream();
+        var replacement = new ChunkStream();
+        var expected = new StringBuilder();
+        var first = new ByteArrayOutputStream();
+        var second = new ByteArrayOutputStream();
+        var buffer = new byte[8192];
+        
+        flights.setMaxReplaySize(2000);
+        
+        var leader = flights.open("key", () -> upstream);
+        var follower = flights.open("key", () -> null);
+        
+        // Each reader keeps up, so what both have read can be discarded
+        for(int i=0; i<20; i++)
+        {
+            var chunk = String.valueOf((char)('a' + i)).repeat(1000);
+            
+            expected.append(chunk);
+            upstream.send(chunk);
+            
+            first.write(buffer, 0, leader.read(buffer));
+            second.write(buffer, 0, follower.read(buffer));
+        }
+        
+        // Too long to replay, so a new caller makes its own request
+        try(var third = flights.open("key", () -> replacement))
+        {
+            replacement.send("new");
+            replacement.end();
+            
+            assertEquals("new", read(third));
+        }
+        
+        upstream.end();
+        
+        first.write(read(leader).getBytes());
+        second.write(read(follower).getBytes());
+        
+        assertEquals(expected.toString(), first.toString("UTF-8"));
+        assertEquals(expected.toString(), second.toString("UTF-8"));
+        assertEquals(2L, flights.getStatistics().getLong("upstream"));
+        assertEquals(1L, flights.getStatistics().getLong("coalesced"));
+        assertEquals(0, flights.getInFlight());
+    }
+    
+    @Test
+    public void testFailure() throws Exception
+    {
+        var flights = new SingleFlight();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        
+        var leader = CompletableFuture.supplyAsync(() -> flights.open("key", () -> {
+            started.countDown();
+            
+            try { release.await(); } catch(InterruptedException e) { }
+            
+            throw new ConvirganceException("Server is down");
+        }));
+        
+        started.await();
+        
+        var follower = CompletableFuture.supplyAsync(() -> flights.open("key", () -> null));
+        
+        Thread.sleep(50);
+        release.countDown();
+        
+        // Everyone waiting on the request sees its error
+        assertEquals("Server is down", assertThrows(Exception.class, () -> leader.join()).getCause().getMessage());
+        assertEquals("Server is down", assertThrows(Exception.class, () -> follower.join()).getCause().getMessage());
+        assertEquals(0, flights.getInFlight());
+    }
+    
+    @Test
+    public void testKey()
+    {
+        var first = new JSONObject("{\"model\": \"llama3.2\", \"prompt\": \"Hi\", \"options\": {\"seed\": 1, \"temperature\": 0}}");
+        var second = new JSONObject("{\"options\": {\"temperature\": 0, \"seed\": 1}, \"prompt\": \"Hi\", \"model\": \"llama3.2\"}");
+        var third = new JSONObject("{\"options\": {\"temperature\": 0, \"seed\": 2}, \"prompt\": \"Hi\", \"model\": \"llama3.2\"}");
+        
+        assertEquals(SingleFlight.getKey("generate", first), SingleFlight.getKey("generate", second));
+        assertNotEquals(SingleFlight.getKey("generate", first), SingleFlight.getKey("generate", third));
+        assertNotEquals(SingleFlight.getKey("generate", first), SingleFlight.getKey("chat", first));
+    }
+    
+    private static class ChunkStream extends InputStream
+    {
+        private BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(16);
+        private byte[] current = new byte[0];
+        private int position;
+        private volatile boolean closed;
+        
+        public void send(String data) throws InterruptedException
+        {
+            chunks.put(data.getBytes());
+        }
+        
+        public void end() throws InterruptedException
+        {
+            chunks.put(new byte[0]);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            var data = new byte[1];
+            
+            return (read(data, 0, 1) < 0) ? -1 : data[0];
+        }
+
+        @Override
+        public int read(byte[] data, int offset, int length) throws IOException
+        {
+            try
+            {
+                if(closed) throw new IOException("Stream closed");
+                
+                if(position >= current.length)
+                {
+                    current = chunks.take();
+                    position = 0;
+                    
+                    if(current.length == 0) return -1;
+                }
+                
+                length = Math.min(length, current.length - position);
+                
+                System.arraycopy(current, position, data, offset, length);
+                position += length;
+                
+                return length;
+            }
+            catch(InterruptedException e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares search latency of the HNSW index against the exact scan of
+ * {@link MemoryVectorStore}, and prints the recall@10 of the index against
+ * the exact results for each configuration. The vectors are drawn from
+ * overlapping Gaussian clusters. Launch it through <code>main()</code> from 
+ * the test classpath.
+ *
+ * @author jbanes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class HnswVectorStoreBenchmark
+{
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+    
+    @Param({"10000", "100000"})
+    public int size;
+    
+    @Param({"384"})
+    public int dimensions;
+    
+    @Param({"16", "64", "128", "256"})
+    public int efSearch;
+    
+    private HnswVectorStore index;
+    private MemoryVectorStore exact;
+    private float[][] queries;
+    private int next;
+    
+    private float[][] generate(Random random, float[][] centers, int count)
+    {
+        var vectors = new float[count][dimensions];
+        
+        float[] center;
+        
+        for(var vector : vectors)
+        {
+            center = centers[random.nextInt(centers.length)];
+            
+            for(int i=0; i<dimensions; i++) vector[i] = center[i] + (float)random.nextGaussian() * 0.5f;
+        }
+        
+        return vectors;
+    }
+    
+    @Setup
+    public void setup()
+    {
+        var random = new Random(size);
+        var centers = new float[256][dimensions];
+        var expected = new HashSet<String>();
+        var found = 0;
+        
+        for(var center : centers) for(int i=0; i<dimensions; i++) center[i] = (float)random.nextGaussian();
+        
+        index = new HnswVectorStore();
+        exact = new MemoryVectorStore();
+        queries = generate(random, centers, QUERIES);
+        
+        for(var vector : generate(random, centers, size))
+        {
+            index.register(vector, "Document " + exact.getCount());
+            exact.register(vector, "Document " + exact.getCount());
+        }
+        
+        index.setEfSearch(efSearch);
+        index.setThreshold(2.0);
+        index.setLimit(0);
+        index.setMaxResults(K);
+        exact.setThreshold(2.0);
+        exact.setLimit(0);
+        exact.setMaxResults(K);
+        
+        for(var query : queries)
+        {
+            expected.clear();
+            
+            for(var match : exact.matches(query)) expected.add(match.getString("document"));
+            for(var match : index.matches(query)) if(expected.contains(match.getString("document"))) found++;
+        }
+        
+        System.out.printf("%nrecall@%d (size=%d, efSearch=%d): %.4f%n", K, size, efSearch, found / (double)(QUERIES * K));
+    }
+    
+    private float[] nextQuery()
+    {
+        next = (next + 1) % QUERIES;
+        
+        return queries[next];
+    }
+    
+    @Benchmark
+    public Object hnsw()
+    {
+        return index.matches(nextQuery());
+    }
+    
+    @Benchmark
+    public Object exact()
+    {
+        return exact.matches(nextQuery());
+    }
+    
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(HnswVectorStoreBenchmark.class.getSimpleName()).build()).run();
+    }
+}
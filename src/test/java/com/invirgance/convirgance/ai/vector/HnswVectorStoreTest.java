@@ -0,0 +1,193 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.ai.engines.OllamaStub;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class HnswVectorStoreTest
+{
+    // Gaussian clusters, closer to real embeddings than uniform noise
+    private static float[][] generate(int size, int dimensions, long seed)
+    {
+        var random = new Random(seed);
+        var centers = new float[32][dimensions];
+        var vectors = new float[size][dimensions];
+        
+        float[] center;
+        
+        for(var vector : centers) for(int i=0; i<dimensions; i++) vector[i] = (float)random.nextGaussian();
+        
+        for(var vector : vectors)
+        {
+            center = centers[random.nextInt(centers.length)];
+            
+            for(int i=0; i<dimensions; i++) vector[i] = center[i] + (float)random.nextGaussian() * 0.5f;
+        }
+        
+        return vectors;
+    }
+    
+    @Test
+    public void testRecall()
+    {
+        var vectors = generate(5000, 64, 24);
+        var queries = generate(100, 64, 42);
+        var hnsw = new HnswVectorStore();
+        var exact = new MemoryVectorStore();
+        var found = 0;
+        var expected = new HashSet<String>();
+        
+        for(int i=0; i<vectors.length; i++)
+        {
+            hnsw.register(vectors[i], "Document " + i);
+            exact.register(vectors[i], "Document " + i);
+        }
+        
+        hnsw.setThreshold(2.0);
+        hnsw.setLimit(0);
+        hnsw.setMaxResults(10);
+        exact.setThreshold(2.0);
+        exact.setLimit(0);
+        exact.setMaxResults(10);
+        
+        // The clusters overlap heavily, so this needs more than the default
+        hnsw.setEfSearch(200);
+        
+        assertEquals(5000, hnsw.getCount());
+        assertEquals(64, hnsw.getDimensions());
+        
+        for(var query : queries)
+        {
+            expected.clear();
+            
+            for(var match : exact.matches(query)) expected.add(match.getString("document"));
+            for(var match : hnsw.matches(query)) if(expected.contains(match.getString("document"))) found++;
+        }
+        
+        System.out.println("HNSW recall@10: " + (found / 1000.0));
+        
+        assertTrue(found >= 950);
+        
+        // Every document finds itself
+        for(int i=0; i<vectors.length; i+=97) assertEquals("Document " + i, hnsw.match(vectors[i]));
+    }
+    
+    @Test
+    public void testMatches()
+    {
+        var store = new HnswVectorStore();
+        var documents = new String[]{ "One", "Two", "Three", "Four", "Five" };
+        var query = OllamaStub.embed("Three");
+        
+        assertNull(store.match(query));
+        
+        for(var document : documents) store.register(OllamaStub.embed(document), document);
+        
+        store.setThreshold(2.0);
+        
+        var matches = store.matches(query);
+        
+        assertEquals(5, matches.size());
+        assertEquals("Three", matches.get(0).getString("document"));
+        assertEquals(0.0, matches.get(0).getDouble("distance"), 0.0001);
+        
+        for(int i=0; i<matches.size(); i++)
+        {
+            var expected = 1.0 - MemoryVectorStore.computeCosineSimilarity(query, OllamaStub.embed(matches.get(i).getString("document")));
+            
+            assertEquals(expected, matches.get(i).getDouble("distance"), 0.0001);
+        }
+        
+        store.setThreshold(0.0001);
+        
+        assertEquals(1, store.matches(query).size());
+        
+        // Word budget is spent on the closest first, including the one that crosses it
+        store.setThreshold(2.0);
+        store.setLimit(2);
+        
+        assertEquals(3, store.matches(query).size());
+        
+        assertThrows(ConvirganceException.class, () -> store.register(new float[4], "Wrong size"));
+        assertThrows(ConvirganceException.class, () -> store.matches(new float[4]));
+        assertThrows(ConvirganceException.class, () -> store.setM(8));
+        assertThrows(ConvirganceException.class, () -> new HnswVectorStore().setM(1));
+    }
+    
+    @Test
+    public void testConcurrency() throws Exception
+    {
+        var vectors = generate(4000, 32, 7);
+        var store = new HnswVectorStore();
+        var threads = new ArrayList<Thread>();
+        var failure = new AtomicReference<Throwable>();
+        
+        store.setM(8);
+        store.setEfConstruction(64);
+        store.setThreshold(0.0001);
+        
+        for(int i=0; i<1000; i++) store.register(vectors[i], "Document " + i);
+        
+        // Writers keep adding while readers search what's already there
+        for(int t=0; t<4; t++)
+        {
+            final int offset = t;
+            
+            threads.add(Thread.ofPlatform().start(() -> {
+                try
+                {
+                    for(int i=1000+offset; i<vectors.length; i+=4) store.register(vectors[i], "Document " + i);
+                }
+                catch(Throwable e) { failure.set(e); }
+            }));
+            
+            threads.add(Thread.ofPlatform().start(() -> {
+                try
+                {
+                    for(int i=offset; i<1000; i+=4) assertEquals("Document " + i, store.match(vectors[i]));
+                }
+                catch(Throwable e) { failure.set(e); }
+            }));
+        }
+        
+        for(var thread : threads) thread.join();
+        
+        if(failure.get() != null) throw new AssertionError(failure.get());
+        
+        assertEquals(4000, store.getCount());
+        
+        for(int i=0; i<vectors.length; i+=31) assertEquals("Document " + i, store.match(vectors[i]));
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.ai.engines.OllamaStub;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class IvfVectorStoreTest
+{
+    // Gaussian clusters, closer to real embeddings than uniform noise
+    private static float[][] generate(int size, int dimensions, long seed)
+    {
+        var random = new Random(seed);
+        var centers = new float[32][dimensions];
+        var vectors = new float[size][dimensions];
+        
+        float[] center;
+        
+        for(var vector : centers) for(int i=0; i<dimensions; i++) vector[i] = (float)random.nextGaussian();
+        
+        for(var vector : vectors)
+        {
+            center = centers[random.nextInt(centers.length)];
+            
+            for(int i=0; i<dimensions; i++) vector[i] = center[i] + (float)random.nextGaussian() * 0.5f;
+        }
+        
+        return vectors;
+    }
+    
+    private static List<String> documents(JSONArray<JSONObject> matches)
+    {
+        var documents = new ArrayList<String>();
+        
+        for(var match : matches) documents.add(match.getString("document"));
+        
+        return documents;
+    }
+    
+    @Test
+    public void testRecall()
+    {
+        var vectors = generate(5000, 64, 24);
+        var queries = generate(100, 64, 42);
+        var ivf = new IvfVectorStore();
+        var exact = new MemoryVectorStore();
+        var pool = new ForkJoinPool(4);
+        var expected = new HashSet<String>();
+        var found = 0;
+        
+        ivf.setPool(pool);
+        ivf.setTrainingSize(0);
+        ivf.setThreshold(2.0);
+        ivf.setLimit(0);
+        ivf.setMaxResults(10);
+        exact.setThreshold(2.0);
+        exact.setLimit(0);
+        exact.setMaxResults(10);
+        
+        for(int i=0; i<vectors.length; i++)
+        {
+            ivf.register(vectors[i], "Document " + i);
+            exact.register(vectors[i], "Document " + i);
+        }
+        
+        // Exact until trained
+        assertFalse(ivf.isTrained());
+        assertEquals(documents(exact.matches(queries[0])), documents(ivf.matches(queries[0])));
+        
+        ivf.train();
+        
+        assertTrue(ivf.isTrained());
+        assertEquals(71, ivf.getTrainedLists());
+        
+        for(var query : queries)
+        {
+            expected.clear();
+            
+            for(var match : exact.matches(query)) expected.add(match.getString("document"));
+            for(var match : ivf.matches(query)) if(expected.contains(match.getString("document"))) found++;
+        }
+        
+        System.out.println("IVF recall@10: " + (found / 1000.0));
+        
+        assertTrue(found >= 900);
+        
+        // Every document finds itself, including ones added after training
+        for(int i=0; i<vectors.length; i+=97) assertEquals("Document " + i, ivf.match(vectors[i]));
+        
+        ivf.register(queries[0], "Late");
+        exact.register(queries[0], "Late");
+        
+        assertEquals("Late", ivf.match(queries[0]));
+        
+        // Probing every list is exact
+        ivf.setProbes(71);
+        
+        for(var query : queries) assertEquals(documents(exact.matches(query)), documents(ivf.matches(query)));
+        
+        pool.shutdown();
+    }
+    
+    @Test
+    public void testRetrain() throws Exception
+    {
+        var vectors = generate(3000, 32, 25);
+        var store = new IvfVectorStore();
+        var pool = new ForkJoinPool(2);
+        
+        store.setPool(pool);
+        store.setTrainingSize(1000);
+        store.setThreshold(0.0001);
+        
+        for(int i=0; i<999; i++) store.register(vectors[i], "Document " + i);
+        
+        assertFalse(store.isTrained());
+        
+        // Crossing the training size starts training in the background
+        store.register(vectors[999], "Document 999");
+        store.retrain().get(10, TimeUnit.SECONDS);
+        
+        assertTrue(store.isTrained());
+        assertEquals(32, store.getTrainedLists());
+        
+        // Doubling the store retrains with more lists
+        for(int i=1000; i<2000; i++) store.register(vectors[i], "Document " + i);
+        
+        store.retrain().get(10, TimeUnit.SECONDS);
+        
+        assertEquals(45, store.getTrainedLists());
+        
+        // An explicit threshold retrains sooner
+        store.setRetrainThreshold(500);
+        store.setLists(16);
+        
+        for(int i=2000; i<2500; i++) store.register(vectors[i], "Document " + i);
+        
+        store.retrain().get(10, TimeUnit.SECONDS);
+        
+        assertEquals(16, store.getTrainedLists());
+        
+        for(int i=0; i<2500; i+=13) assertEquals("Document " + i, store.match(vectors[i]));
+        
+        pool.shutdown();
+    }
+    
+    @Test
+    public void testMatches()
+    {
+        var store = new IvfVectorStore();
+        var documents = new String[]{ "One", "Two", "Three", "Four", "Five" };
+        var query = OllamaStub.embed("Three");
+        
+        assertNull(store.match(query));
+        
+        for(var document : documents) store.register(OllamaStub.embed(document), document);
+        
+        store.setLists(2);
+        store.setProbes(2);
+        store.train();
+        store.setThreshold(2.0);
+        
+        var matches = store.matches(query);
+        
+        assertEquals(5, matches.size());
+        assertEquals("Three", matches.get(0).getString("document"));
+        assertEquals(0.0, matches.get(0).getDouble("distance"), 0.0001);
+        
+        for(int i=0; i<matches.size(); i++)
+        {
+            var expected = 1.0 - MemoryVectorStore.computeCosineSimilarity(query, OllamaStub.embed(matches.get(i).getString("document")));
+            
+            assertEquals(expected, matches.get(i).getDouble("distance"), 0.0001);
+        }
+        
+        store.setLimit(2);
+        
+        assertEquals(3, store.matches(query).size());
+        
+        assertThrows(ConvirganceException.class, () -> store.register(new float[4], "Wrong size"));
+        assertThrows(ConvirganceException.class, () -> store.matches(new float[4]));
+        assertThrows(ConvirganceException.class, () -> store.setProbes(0));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import com.invirgance.convirgance.json.JSONArray;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures a full scan of the store. The vectors are random and therefore
+ * unrelated to the query, so no document passes the threshold and the time
+ * reported is the cost of the similarity pass alone. Not run by the unit
+ * tests; launch it through <code>main()</code> from the test classpath.
+ *
+ * @author jbanes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MemoryVectorStoreBenchmark
+{
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+    
+    @Param({"384"})
+    public int dimensions;
+    
+    private MemoryVectorStore store;
+    private float[] query;
+    private JSONArray<Double> json;
+    
+    private float[] random(Random random)
+    {
+        var vector = new float[dimensions];
+        
+        for(int i=0; i<vector.length; i++) vector[i] = (float)random.nextGaussian();
+        
+        return vector;
+    }
+    
+    @Setup
+    public void setup()
+    {
+        var random = new Random(size);
+        
+        store = new MemoryVectorStore();
+        query = random(random);
+        json = new JSONArray<>();
+        
+        for(int i=0; i<size; i++) store.register(random(random), "Document " + i);
+        for(var value : query) json.add((double)value);
+    }
+    
+    @Benchmark
+    public Object matches()
+    {
+        return store.matches(query);
+    }
+    
+    @Benchmark
+    public Object matchesJSON()
+    {
+        return store.matches(json);
+    }
+    
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(MemoryVectorStoreBenchmark.class.getSimpleName()).build()).run();
+    }
+}
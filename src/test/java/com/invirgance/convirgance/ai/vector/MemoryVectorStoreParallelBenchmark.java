@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how a full scan scales with the number of cores. A parallelism of 
+ * zero is the sequential scan on the calling thread; anything else is the
+ * size of the pool the segments are split across. Launch it through 
+ * <code>main()</code> from the test classpath.
+ *
+ * @author jbanes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class MemoryVectorStoreParallelBenchmark
+{
+    @Param({"100000", "1000000"})
+    public int size;
+    
+    @Param({"0", "1", "2", "4", "8", "16"})
+    public int parallelism;
+    
+    @Param({"384"})
+    public int dimensions;
+    
+    private MemoryVectorStore store;
+    private ForkJoinPool pool;
+    private float[] query;
+    
+    private float[] random(Random random)
+    {
+        var vector = new float[dimensions];
+        
+        for(int i=0; i<vector.length; i++) vector[i] = (float)random.nextGaussian();
+        
+        return vector;
+    }
+    
+    @Setup
+    public void setup()
+    {
+        var random = new Random(size);
+        
+        store = new MemoryVectorStore();
+        query = random(random);
+        
+        for(int i=0; i<size; i++) store.register(random(random), "Document " + i);
+        
+        if(parallelism > 0)
+        {
+            pool = new ForkJoinPool(parallelism);
+            
+            store.setPool(pool);
+            store.setParallelThreshold(1);
+        }
+        else
+        {
+            store.setParallelThreshold(0);
+        }
+    }
+    
+    @TearDown
+    public void tearDown()
+    {
+        if(pool != null) pool.shutdown();
+    }
+    
+    @Benchmark
+    public Object matches()
+    {
+        return store.matches(query);
+    }
+    
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(MemoryVectorStoreParallelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -23,8 +23,15 @@
  */
 package com.invirgance.convirgance.ai.vector;
 
+import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.ai.engines.Ollama;
+import com.invirgance.convirgance.ai.engines.OllamaStub;
 import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -98,6 +105,221 @@ public class MemoryVectorStoreTest
         assertEquals(5.0, MemoryVectorStore.computeEuclidianDistance(new JSONArray<Double>("[2,3]"), new JSONArray<Double>("[5,7]")));
     }
     
+    @Test
+    public void testMatches()
+    {
+        var store = new MemoryVectorStore();
+        var documents = new String[]{ "One", "Two", "Three", "Four", "Five" };
+        var query = OllamaStub.embed("Three");
+        
+        for(var document : documents) store.register(OllamaStub.embed(document), document);
+        
+        store.setThreshold(2.0);
+        
+        var matches = store.matches(query);
+        
+        assertEquals(5, store.getCount());
+        assertEquals(8, store.getDimensions());
+        assertEquals(5, matches.size());
+        assertEquals("Three", matches.get(0).getString("document"));
+        assertEquals(0.0, matches.get(0).getDouble("distance"), 0.0001);
+        
+        // Matches the reference calculation and comes back sorted
+        for(int i=0; i<matches.size(); i++)
+        {
+            var expected = 1.0 - MemoryVectorStore.computeCosineSimilarity(query, OllamaStub.embed(matches.get(i).getString("document")));
+            
+            assertEquals(expected, matches.get(i).getDouble("distance"), 0.0001);
+            
+            if(i > 0) assertTrue(matches.get(i).getDouble("distance") >= matches.get(i - 1).getDouble("distance"));
+        }
+        
+        store.setThreshold(0.0001);
+        
+        assertEquals("Three", store.match(query));
+        assertEquals(1, store.matches(query).size());
+        
+        assertThrows(ConvirganceException.class, () -> store.register(new float[4], "Wrong size"));
+        assertThrows(ConvirganceException.class, () -> store.matches(new float[4]));
+    }
+    
+    @Test
+    public void testGrowth()
+    {
+        var store = new MemoryVectorStore();
+        
+        for(int i=0; i<1000; i++) store.register(OllamaStub.embed("Document " + i, 32), "Document " + i);
+        
+        store.setLimit(0);
+        
+        assertEquals(1000, store.getCount());
+        assertEquals("Document 737", store.match(OllamaStub.embed("Document 737", 32)));
+        assertEquals("Document 0", store.match(OllamaStub.embed("Document 0", 32)));
+        assertEquals("Document 999", store.match(OllamaStub.embed("Document 999", 32)));
+    }
+    
+    @Test
+    public void testParallel()
+    {
+        var store = new MemoryVectorStore();
+        var pool = new ForkJoinPool(4);
+        var query = OllamaStub.embed("Document 4321", 32);
+        
+        JSONArray<JSONObject> sequential;
+        JSONArray<JSONObject> parallel;
+        
+        for(int i=0; i<5000; i++) store.register(OllamaStub.embed("Document " + i, 32), "Document " + i);
+        
+        store.setPool(pool);
+        store.setSegmentSize(100);
+        
+        // Everything matches, so the word limit decides what is returned
+        for(var threshold : new double[]{ 2.0, 0.5, 0.01 })
+        {
+            store.setThreshold(threshold);
+            
+            for(var limit : new int[]{ 600, 0 })
+            {
+                for(var ranked : new boolean[]{ true, false })
+                {
+                    store.setLimit(limit);
+                    store.setRanked(ranked);
+                    store.setParallelThreshold(0);
+
+                    sequential = store.matches(query);
+
+                    store.setParallelThreshold(1);
+
+                    parallel = store.matches(query);
+
+                    assertEquals(sequential.size(), parallel.size());
+                    assertEquals(sequential.toString(), parallel.toString());
+                }
+            }
+        }
+        
+        store.setThreshold(2.0);
+        store.setLimit(600);
+        
+        assertEquals(301, store.matches(query).size());
+        assertThrows(ConvirganceException.class, () -> store.setSegmentSize(0));
+        
+        pool.shutdown();
+    }
+    
+    private static float[] toArray(JSONArray<Double> embed)
+    {
+        var vector = new float[embed.size()];
+        
+        for(int i=0; i<vector.length; i++) vector[i] = (float)embed.getDouble(i);
+        
+        return vector;
+    }
+    
+    @Test
+    public void testRanked()
+    {
+        var store = new MemoryVectorStore();
+        var query = toArray(OllamaStub.embed("Needle", 32));
+        var random = new Random(23);
+        var documents = new String[3000];
+        var distances = new double[documents.length];
+        var order = new ArrayList<Integer>();
+        var expected = new ArrayList<String>();
+        var words = 0;
+        
+        float[] vector;
+        
+        for(int i=0; i<documents.length; i++)
+        {
+            documents[i] = (i == documents.length - 1) ? "Needle" : ("Document " + i + " of the haystack").repeat(1 + random.nextInt(10));
+            vector = toArray(OllamaStub.embed(documents[i], 32));
+            distances[i] = 1.0 - MemoryVectorStore.computeDotProduct(query, vector, 0) / ((float)MemoryVectorStore.computeMagnitude(query) * (float)MemoryVectorStore.computeMagnitude(vector));
+            
+            order.add(i);
+            store.register(vector, documents[i]);
+        }
+        
+        store.setThreshold(2.0);
+        store.setLimit(600);
+        
+        // The exact match was registered last, after the budget was spent
+        assertEquals("Needle", store.match(query));
+        
+        store.setRanked(false);
+        
+        assertNotEquals("Needle", store.match(query));
+        
+        store.setRanked(true);
+        
+        // Reference: rank everything, then spend the budget
+        order.sort((left, right) -> distances[left] != distances[right] ? Double.compare(distances[left], distances[right]) : left - right);
+        
+        for(var index : order)
+        {
+            if(words > 600) break;
+            
+            expected.add(documents[index]);
+            words += documents[index].split(" ").length;
+        }
+        
+        for(var parallel : new int[]{ 0, 1 })
+        {
+            store.setParallelThreshold(parallel);
+            store.setSegmentSize(128);
+            store.setMaxResults(0);
+            
+            var matches = store.matches(query);
+        
+            assertEquals(expected.size(), matches.size());
+            
+            for(int i=0; i<matches.size(); i++) assertEquals(expected.get(i), matches.get(i).getString("document"));
+            
+            store.setMaxResults(5);
+            
+            matches = store.matches(query);
+            
+            assertEquals(5, matches.size());
+            
+            for(int i=0; i<matches.size(); i++) assertEquals(expected.get(i), matches.get(i).getString("document"));
+        }
+    }
+    
+    @Test
+    public void testAllocation()
+    {
+        var threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        var thread = Thread.currentThread().threadId();
+        var store = new MemoryVectorStore();
+        var query = new float[768];
+        var random = new Random(0);
+        var vector = new float[768];
+        
+        long start;
+        long allocated;
+        
+        for(int i=0; i<10000; i++)
+        {
+            for(int j=0; j<vector.length; j++) vector[j] = (float)random.nextGaussian();
+            
+            store.register(vector, "Document " + i);
+        }
+        
+        for(int j=0; j<query.length; j++) query[j] = (float)random.nextGaussian();
+        
+        // Random vectors are unrelated, so nothing is within the threshold
+        for(int i=0; i<20; i++) assertTrue(store.matches(query).isEmpty());
+        
+        start = threads.getThreadAllocatedBytes(thread);
+        
+        for(int i=0; i<20; i++) store.matches(query);
+        
+        allocated = (threads.getThreadAllocatedBytes(thread) - start) / 20;
+        
+        // Only the result list, not anything per document
+        assertTrue(allocated < 1024, "Bytes allocated searching 10,000 vectors: " + allocated);
+    }
+    
     @Test
     public void testVectors()
     {
@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the SIMD and scalar kernels doing a brute force scan over a block
+ * of 10,000 vectors. Launch it through <code>main()</code> from the test
+ * classpath. The forked JVM enables the Vector API module; without it the
+ * <code>simd</code> parameter falls back to the scalar kernel.
+ *
+ * @author jbanes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SimilarityKernelBenchmark
+{
+    private static final int SIZE = 10000;
+    
+    @Param({"scalar", "simd"})
+    public String kernel;
+    
+    @Param({"384", "768", "1024"})
+    public int dimensions;
+    
+    private SimilarityKernel implementation;
+    private float[] block;
+    private float[] query;
+    
+    @Setup
+    public void setup()
+    {
+        var random = new Random(dimensions);
+        
+        implementation = kernel.equals("simd") ? SimilarityKernel.getInstance() : SimilarityKernel.getScalar();
+        block = new float[SIZE * dimensions];
+        query = new float[dimensions];
+        
+        for(int i=0; i<block.length; i++) block[i] = (float)random.nextGaussian();
+        for(int i=0; i<query.length; i++) query[i] = (float)random.nextGaussian();
+    }
+    
+    @Benchmark
+    public float dotProduct()
+    {
+        var best = Float.NEGATIVE_INFINITY;
+        
+        for(int i=0; i<SIZE; i++) best = Math.max(best, implementation.dotProduct(query, block, i * dimensions));
+        
+        return best;
+    }
+    
+    @Benchmark
+    public float cosineSimilarity()
+    {
+        var best = Float.NEGATIVE_INFINITY;
+        
+        for(int i=0; i<SIZE; i++) best = Math.max(best, implementation.cosineSimilarity(query, block, i * dimensions));
+        
+        return best;
+    }
+    
+    @Benchmark
+    public float squaredDistance()
+    {
+        var best = Float.POSITIVE_INFINITY;
+        
+        for(int i=0; i<SIZE; i++) best = Math.min(best, implementation.squaredDistance(query, block, i * dimensions));
+        
+        return best;
+    }
+    
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(SimilarityKernelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
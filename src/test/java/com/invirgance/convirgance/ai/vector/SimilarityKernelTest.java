@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 INVIRGANCE LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.invirgance.convirgance.ai.vector;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class SimilarityKernelTest
+{
+    private static float[] random(Random random, int length)
+    {
+        var vector = new float[length];
+        
+        for(int i=0; i<length; i++) vector[i] = (float)random.nextGaussian();
+        
+        return vector;
+    }
+    
+    @Test
+    public void testInstance()
+    {
+        var enabled = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        
+        assertEquals("scalar", SimilarityKernel.getScalar().getName());
+        assertEquals(enabled, SimilarityKernel.getInstance().getName().startsWith("simd-"));
+    }
+    
+    @Test
+    public void testScalar()
+    {
+        var kernel = SimilarityKernel.getScalar();
+        var a = new float[]{ 3, 2, 0, 5 };
+        var block = new float[]{ 9, 9, 1, 0, 0, 0, 3, 2, 0, 5 };
+        
+        assertEquals(3.0f, kernel.dotProduct(a, block, 2));
+        assertEquals(38.0f, kernel.dotProduct(a, block, 6));
+        assertEquals(33.0f, kernel.squaredDistance(a, block, 2));
+        assertEquals(0.0f, kernel.squaredDistance(a, block, 6));
+        assertEquals(3/6.164414f, kernel.cosineSimilarity(a, block, 2), 0.0001);
+        assertEquals(1.0f, kernel.cosineSimilarity(a, block, 6), 0.0001);
+        assertEquals(Math.sqrt(38), kernel.magnitude(a), 0.0001);
+    }
+    
+    @Test
+    public void testAgreement()
+    {
+        var simd = SimilarityKernel.getInstance();
+        var scalar = SimilarityKernel.getScalar();
+        var random = new Random(21);
+        
+        float[] a;
+        float[] block;
+        int offset;
+        
+        // Cover lengths shorter than a vector and every possible tail
+        for(int length=1; length<=130; length++)
+        {
+            offset = random.nextInt(8);
+            a = random(random, length);
+            block = random(random, length + offset + random.nextInt(8));
+            
+            assertEquals(scalar.dotProduct(a, block, offset), simd.dotProduct(a, block, offset), 0.0001 * length);
+            assertEquals(scalar.squaredDistance(a, block, offset), simd.squaredDistance(a, block, offset), 0.0001 * length);
+            assertEquals(scalar.cosineSimilarity(a, block, offset), simd.cosineSimilarity(a, block, offset), 0.0001);
+        }
+        
+        a = random(random, 768);
+        
+        assertEquals(1.0f, simd.cosineSimilarity(a, a, 0), 0.0001);
+        assertEquals(0.0f, simd.squaredDistance(a, a, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> simd.dotProduct(new float[64], new float[64], 1));
+    }
+}